@@ -1,13 +1,29 @@
 package com.FBS.Airline_api.contectors;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+
 import com.FBS.Airline_api.dto.AirlineDetailsDto;
+import com.FBS.Airline_api.dto.AirlineRegistrationDto;
 import com.FBS.Airline_api.model.Airline;
 import com.FBS.Airline_api.model.Employee;
+import com.FBS.client.DatabaseApiAsyncClient;
+
+/*
+ * calls database api, every endpoint has its own circuit breaker and bulkhead (see resilience4j.* in application.properties)
+ * so a slow database api fails fast here instead of holding all tomcat threads.
+ * these calls all create data, so none of them is retried
+ */
 
 @Component
 public class DatabaseApiContectors {
@@ -15,24 +31,83 @@ public class DatabaseApiContectors {
     @Value("${database.api.url}")
     String databaseApiUrl;
 
+    RestTemplate restTemplate;
+
+    // non blocking client used by the Async methods
+    DatabaseApiAsyncClient asyncClient;
+
+    @Autowired
+    public DatabaseApiContectors(@Value("${database.api.timeout-millis:5000}") int timeoutMillis,
+                                 RestTemplateBuilder restTemplateBuilder,
+                                 DatabaseApiAsyncClient asyncClient){
+        this.asyncClient = asyncClient;
+
+        // built by spring boot so every call is timed as http.client.requests
+        this.restTemplate = restTemplateBuilder
+            .connectTimeout(Duration.ofMillis(timeoutMillis))
+            .readTimeout(Duration.ofMillis(timeoutMillis))
+            .build();
+    }
+
+    @CircuitBreaker(name = "createAirline")
+    @Bulkhead(name = "createAirline")
     public Airline callGetCreateAirlineEndPoint( Airline airline){
         // create Url 
         String url = databaseApiUrl + "/airline/create";
         // call rest api
-        RestTemplate restTemplate = new RestTemplate();
         ResponseEntity<Airline> response = restTemplate.postForEntity(url, airline, Airline.class);
         return response.getBody(); 
     }
     
 
+    @CircuitBreaker(name = "createAdmin")
+    @Bulkhead(name = "createAdmin")
     public Employee callGetCreateEmployeeEndPoint(Employee admin){
 
         // create Url 
         String url = databaseApiUrl + "/employee/create/admin";
         // call rest api
-        RestTemplate restTemplate = new RestTemplate();
         ResponseEntity<Employee> response = restTemplate.postForEntity(url, admin, Employee.class);
         return response.getBody(); 
         
     }
+
+
+    @CircuitBreaker(name = "registerAirline")
+    @Bulkhead(name = "registerAirline")
+    public AirlineRegistrationDto callRegisterAirlineEndPoint(AirlineRegistrationDto registration){
+
+        // create Url 
+        String url = databaseApiUrl + "/airline/register";
+        // call rest api, airline and admin are created in one transaction
+        ResponseEntity<AirlineRegistrationDto> response = restTemplate.postForEntity(url, registration, AirlineRegistrationDto.class);
+        return response.getBody(); 
+        
+    }
+
+
+    /*
+     * Non blocking variants of the methods above, made by DatabaseApiAsyncClient.
+     * They return at once, the future completes when database api answers or fails with
+     * HttpClientErrorException / HttpServerErrorException like RestTemplate does,
+     * or with ResourceAccessException when it can not be reached or does not answer in database.api.timeout-millis.
+     * Cancelling the returned future aborts the http exchange.
+     */
+
+    public CompletableFuture<Airline> callGetCreateAirlineEndPointAsync(Airline airline){
+        String url = databaseApiUrl + "/airline/create";
+        return asyncClient.call("createAirline", "/airline/create", asyncClient.jsonPost(url, airline), Airline.class);
+    }
+
+
+    public CompletableFuture<Employee> callGetCreateEmployeeEndPointAsync(Employee admin){
+        String url = databaseApiUrl + "/employee/create/admin";
+        return asyncClient.call("createAdmin", "/employee/create/admin", asyncClient.jsonPost(url, admin), Employee.class);
+    }
+
+
+    public CompletableFuture<AirlineRegistrationDto> callRegisterAirlineEndPointAsync(AirlineRegistrationDto registration){
+        String url = databaseApiUrl + "/airline/register";
+        return asyncClient.call("registerAirline", "/airline/register", asyncClient.jsonPost(url, registration), AirlineRegistrationDto.class);
+    }
 }
@@ -1,5 +1,7 @@
 package com.FBS.Airline_api.contoller;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -22,7 +24,7 @@ public class AirlineController {
     }
 
     @PostMapping("/register")
-    public Airline registerAirline(@RequestBody AirlineDetailsDto airlineDetailsDto){
+    public CompletableFuture<Airline> registerAirline(@RequestBody AirlineDetailsDto airlineDetailsDto){
           return this.airlineService.registerAirline(airlineDetailsDto);
     }
     
@@ -0,0 +1,18 @@
+package com.FBS.Airline_api.dto;
+
+import com.FBS.Airline_api.model.Airline;
+import com.FBS.Airline_api.model.Employee;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AirlineRegistrationDto {
+
+    private Airline airline;
+    private Employee admin;
+
+}
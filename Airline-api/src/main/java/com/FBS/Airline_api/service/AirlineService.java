@@ -1,11 +1,13 @@
 package com.FBS.Airline_api.service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.stereotype.Service;
 
 import com.FBS.Airline_api.contectors.DatabaseApiContectors;
 import com.FBS.Airline_api.dto.AirlineDetailsDto;
+import com.FBS.Airline_api.dto.AirlineRegistrationDto;
 import com.FBS.Airline_api.enums.CompanySize;
 import com.FBS.Airline_api.enums.EmployeeRole;
 import com.FBS.Airline_api.model.Airline;
@@ -24,7 +26,7 @@ public class AirlineService {
     }
 
 
-    public Airline registerAirline(AirlineDetailsDto airlineDetailsDto){
+    public CompletableFuture<Airline> registerAirline(AirlineDetailsDto airlineDetailsDto){
         // we need to create airline and employee
         Airline airline = mappingUtility.mapToAirline(airlineDetailsDto, EmployeeRole.ADMIN);
 
@@ -34,23 +36,17 @@ public class AirlineService {
         ));
             
         Employee admin = mappingUtility.mapToEmployee(airlineDetailsDto, EmployeeRole.ADMIN); 
-        admin.setAirlineName(airline);
 
-        this.createAirlineInDatabase(airline);
-        this.createEmployeeInDatabase(admin);
-
-        return airline;
+        // database api links the admin to the airline and saves both in one transaction,
+        // the call is non blocking, no thread waits while database api works
+        return databaseApiContectors.callRegisterAirlineEndPointAsync(new AirlineRegistrationDto(airline, admin))
+            .thenApply(AirlineRegistrationDto::getAirline);
     
     }
 
 
-    public Airline createAirlineInDatabase(Airline airline){
-        return databaseApiContectors.callGetCreateAirlineEndPoint(airline);
-    }
-
-
-    public Employee createEmployeeInDatabase(Employee admin){
-        return databaseApiContectors.callGetCreateEmployeeEndPoint(admin);
+    public AirlineRegistrationDto registerAirlineInDatabase(AirlineRegistrationDto registration){
+        return databaseApiContectors.callRegisterAirlineEndPoint(registration);
     }
     
 }
@@ -2,8 +2,12 @@ package com.FBS.auth_Api;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+import com.FBS.tracing.FileSpanExporter;
 
 @SpringBootApplication
+@Import(FileSpanExporter.class)
 public class AuthApiApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,25 @@
+package com.FBS.auth_Api.conectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ConectorConfiguration {
+
+    /*
+     * runs the primary and the hedged customer lookups. no queue, when every thread is busy a lookup
+     * runs on the caller's thread without a hedge. spring shuts it down with the context.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor hedgeExecutor(@Value("${database.api.hedge.threads:100}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("hedge-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -1,41 +1,193 @@
 package com.FBS.auth_Api.conectors;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import com.FBS.auth_Api.models.Customer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.retry.annotation.Retry;
 
 /*
  * this class is responsble for calling diffrents endpoints for database api
+ * every call is guarded by a circuit breaker, a bulkhead and a retry (see resilience4j.* in application.properties)
+ * so a slow database api fails fast here instead of holding all tomcat threads
  */
 
 @Component
 public class DatabaseApiConectors {
 
-    @Value("${database.api.url}")
+    static final int STALE_CACHE_SIZE = 10000;
+
     String databaseApiUrl;
-    
+    boolean hedgeEnabled;
+    long hedgeDelayMillis;
+
+    RestTemplate restTemplate;
+    ThreadPoolTaskExecutor hedgeExecutor;
+
+    // last good answer per email without its password, served only when database api can not be reached
+    Cache<String, Customer> staleCustomers;
+
+    public DatabaseApiConectors(@Value("${database.api.url}") String databaseApiUrl,
+                                @Value("${database.api.timeout-millis:2000}") int timeoutMillis,
+                                @Value("${database.api.hedge.enabled:false}") boolean hedgeEnabled,
+                                @Value("${database.api.hedge.delay-millis:100}") long hedgeDelayMillis,
+                                @Value("${database.api.stale-ttl-millis:600000}") long staleTtlMillis,
+                                @Qualifier("hedgeExecutor") ThreadPoolTaskExecutor hedgeExecutor,
+                                RestTemplateBuilder restTemplateBuilder) {
+        this.databaseApiUrl = databaseApiUrl;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        this.hedgeExecutor = hedgeExecutor;
+        this.staleCustomers = Caffeine.newBuilder()
+            .maximumSize(STALE_CACHE_SIZE)
+            .expireAfterWrite(Duration.ofMillis(staleTtlMillis))
+            .build();
+
+        // built by spring boot so every call is timed as http.client.requests
+        this.restTemplate = restTemplateBuilder
+            .connectTimeout(Duration.ofMillis(timeoutMillis))
+            .readTimeout(Duration.ofMillis(timeoutMillis))
+            .build();
+    }
+
     /*
      * This method is responsible for calling get employee by email endpoint
      * /api/v1/db/empolyee/{email}
      * it will return Employee object
+     * when database api can not be reached the last known customer is returned, without its password
      * @param email
-     * @return Customer 
+     * @return Customer
      */
+    @CircuitBreaker(name = "customerByEmail", fallbackMethod = "getStaleCustomerByEmail")
+    @Bulkhead(name = "customerByEmail")
+    @Retry(name = "customerByEmail")
     public Customer callGetCustomerByEmailEndPoint(String email){
-        // 1. create url
-        String url = databaseApiUrl + "/customer/email/" + email; 
-        // 2. create RequestEntity
-        RequestEntity request = RequestEntity.get(url).build();
-        // 3. call the database api 
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<Customer> response =  restTemplate.exchange(url, HttpMethod.GET, request, Customer.class);
-        return response.getBody();    
-    }  
+        Customer customer;
+        try {
+            customer = hedgeEnabled ? this.getCustomerHedged(email) : this.getCustomer(email);
+        } catch (HttpClientErrorException e) {
+            // the account is gone or the request is wrong, an old copy must not answer for it
+            staleCustomers.invalidate(email);
+            throw e;
+        }
+        if (customer == null) {
+            staleCustomers.invalidate(email);
+        } else {
+            staleCustomers.put(email, withoutPassword(customer));
+        }
+        return customer;
+    }
+
+    private Customer getCustomer(String email){
+        // 1. create url, email stays a uri variable so metrics group all lookups under one route
+        String url = databaseApiUrl + "/customer/email/{email}";
+        // 2. call the database api
+        ResponseEntity<Customer> response =  restTemplate.exchange(url, HttpMethod.GET, null, Customer.class, email);
+        return response.getBody();
+    }
+
+    /*
+     * sends a second identical lookup when the first one has not answered after hedge.delay-millis
+     * and returns whichever answers first. the other one is cancelled, which interrupts its thread
+     * and aborts its http exchange. when the hedge pool is full the lookup runs without a hedge.
+     */
+    private Customer getCustomerHedged(String email){
+        ExecutorCompletionService<Customer> race = new ExecutorCompletionService<>(hedgeExecutor.getThreadPoolExecutor());
+        Future<Customer> primary;
+        try {
+            primary = race.submit(() -> this.getCustomer(email));
+        } catch (RejectedExecutionException e) {
+            return this.getCustomer(email);
+        }
+        Future<Customer> hedge = null;
+        try {
+            Future<Customer> done = race.poll(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+            if (done == null) {
+                // primary is slow, race it against a hedge
+                try {
+                    hedge = race.submit(() -> this.getCustomer(email));
+                } catch (RejectedExecutionException e) {
+                    // no thread for a hedge, wait for the primary alone
+                }
+            }
+            int pending = hedge == null ? 1 : 2;
+            ExecutionException failure = null;
+            while (pending-- > 0) {
+                if (done == null) {
+                    done = race.take();
+                }
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    failure = e;
+                    done = null;
+                }
+            }
+            throw this.unwrap(failure.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for database api");
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    private RuntimeException unwrap(Throwable cause){
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new ResourceAccessException(cause.getMessage());
+    }
+
+    /*
+     * fallback of callGetCustomerByEmailEndPoint, resilience4j calls it with the failure.
+     * only when database api could not answer: circuit open, connection failed or timed out, or a 5xx.
+     */
+    private Customer getStaleCustomerByEmail(String email, Throwable error) throws Throwable {
+        boolean unavailable = error instanceof CallNotPermittedException
+            || error instanceof ResourceAccessException
+            || error instanceof HttpServerErrorException;
+        Customer cached = unavailable ? staleCustomers.getIfPresent(email) : null;
+        if (cached == null) {
+            throw error;
+        }
+        return cached;
+    }
 
+    // the copy kept for outages, a password is only ever checked against a fresh answer
+    private static Customer withoutPassword(Customer customer){
+        Customer copy = new Customer();
+        copy.setCustomerId(customer.getCustomerId());
+        copy.setName(customer.getName());
+        copy.setEmail(customer.getEmail());
+        copy.setPhone(customer.getPhone());
+        copy.setAddress(customer.getAddress());
+        copy.setWalletBalance(customer.getWalletBalance());
+        copy.setLoyaltyPoints(customer.getLoyaltyPoints());
+        copy.setRole(customer.getRole());
+        return copy;
+    }
 
 }
@@ -28,7 +28,9 @@ public class AuthConfiguration {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(
                                 "/api/v1/auth/token",
-                                "/api/v1/auth/validate"
+                                "/api/v1/auth/validate",
+                                // metrics scrape, only reachable on the management port
+                                "/actuator/**"
                         ).permitAll()
                         .anyRequest().authenticated()
                 )
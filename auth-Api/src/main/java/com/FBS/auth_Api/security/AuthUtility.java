@@ -1,7 +1,10 @@
 package com.FBS.auth_Api.security;
 
+import java.security.Key;
 import java.util.Date;
 
+import javax.crypto.spec.SecretKeySpec;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -10,8 +13,11 @@ import com.FBS.auth_Api.models.Customer;
 import com.FBS.auth_Api.enums.Role;
 import com.FBS.auth_Api.service.CustomerService;
 
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import jakarta.annotation.PostConstruct;
 
 @Component
 public class AuthUtility {
@@ -22,12 +28,31 @@ public class AuthUtility {
     String secretPassword;
 
     CustomerService customerService;
+
+    // derived once from secretPassword, both are immutable and thread safe
+    Key signingKey;
+    JwtParser jwtParser;
     
     @Autowired
     public AuthUtility(CustomerService customerService) {
         this.customerService = customerService;
     }
 
+    /**
+     * This method is responsible for building the HMAC key and the JWT parser once,
+     * instead of decoding the secret on every sign and parse call.
+     * The secret is base64 decoded the same way the old String based api did,
+     * so tokens issued before this change are still valid.
+     */
+    @PostConstruct
+    public void initSigningKey(){
+        byte[] secretBytes = Decoders.BASE64.decode(secretPassword);
+        this.signingKey = new SecretKeySpec(secretBytes, SignatureAlgorithm.HS256.getJcaName());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     public String generateToken(String email,
                                 String password,
                                 String role){
@@ -35,7 +60,7 @@ public class AuthUtility {
         String jwtToken = Jwts.builder()
                 .setExpiration(new Date(System.currentTimeMillis() + expirationTime))
                 .setIssuedAt(new Date())
-                .signWith(SignatureAlgorithm.HS256, secretPassword)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .setSubject(payload)
                 .compact();
         return jwtToken;
@@ -46,7 +71,7 @@ public class AuthUtility {
      * @param token
      */
     public String decryptJwtToken(String token){
-        String payload = Jwts.parser().setSigningKey(secretPassword)
+        String payload = jwtParser
                 .parseClaimsJws(token)
                 .getBody()
                 .getSubject();
@@ -65,7 +90,8 @@ public class AuthUtility {
         String role = data[2];
         // I need to get the user having this email and password. 
         Customer customer = customerService.getCustomerDetails(email);
-        if(customer == null){
+        // a customer served from the outage cache has no password and can not confirm a token
+        if(customer == null || customer.getPassword() == null){
             return false;
         }
         if(!customer.getPassword().equals(password)){
@@ -0,0 +1,67 @@
+package com.FBS.auth_Api.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * JMH benchmark for token issuing and token parsing on one core.
+ * It is not a unit test, run it with
+ * mvn -q test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ *     "-Dexec.args=-cp %classpath com.FBS.auth_Api.security.AuthUtilityBenchmark"
+ * the result is printed as tokens per second.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuthUtilityBenchmark {
+
+    AuthUtility authUtility;
+    String token;
+
+    @Setup
+    public void setup(){
+        // customer service is only needed by validateToken, which calls database api
+        authUtility = new AuthUtility(null);
+        authUtility.expirationTime = 100000000L;
+        authUtility.secretPassword = "cvvghxcgxsdsafsdsfzfxvxcjvklkhohifkbkjggbjvjvhv";
+        authUtility.initSigningKey();
+        token = authUtility.generateToken("user@fbs.com", "password", "Customer");
+    }
+
+    @Benchmark
+    public String issueToken(){
+        return authUtility.generateToken("user@fbs.com", "password", "Customer");
+    }
+
+    @Benchmark
+    public String parseToken(){
+        return authUtility.decryptJwtToken(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AuthUtilityBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,98 @@
+package com.FBS.auth_Api.security;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Load driver for /api/v1/auth/validate, used to compare the platform thread pool with the
+ * virtual-threads profile. It is not a unit test, start auth-Api first and run
+ * mvn -q test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ *     "-Dexec.args=-cp %classpath com.FBS.auth_Api.security.ValidateTokenLoadDriver http://localhost:8089 2000 30"
+ * arguments are base url, concurrent clients and seconds to run.
+ */
+
+public class ValidateTokenLoadDriver {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8089";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(64))
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        // 1. get one token, every client validates the same token
+        HttpRequest tokenRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/token"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"user@fbs.com\",\"password\":\"password\",\"role\":\"Customer\"}"))
+                .build();
+        String token = httpClient.send(tokenRequest, HttpResponse.BodyHandlers.ofString()).body();
+        HttpRequest validateRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/validate"))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+
+        // 2. every client sends requests back to back until the time is over
+        long endAt = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long[][] latencies = new long[clients][];
+        CountDownLatch done = new CountDownLatch(clients);
+        ExecutorService clientThreads = Executors.newFixedThreadPool(clients);
+        for (int i = 0; i < clients; i++) {
+            int client = i;
+            clientThreads.execute(() -> {
+                long[] own = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < endAt) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = httpClient.send(validateRequest, HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() == 200) {
+                            ok.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    }
+                    if (count == own.length) {
+                        own = Arrays.copyOf(own, count * 2);
+                    }
+                    own[count++] = System.nanoTime() - start;
+                }
+                latencies[client] = Arrays.copyOf(own, count);
+                done.countDown();
+            });
+        }
+        done.await();
+        clientThreads.shutdown();
+
+        // 3. print throughput and latency percentiles
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("clients=%d seconds=%d ok=%d failed=%d throughput=%.1f req/s%n",
+                clients, seconds, ok.get(), failed.get(), ok.get() / (double) seconds);
+        if (all.length > 0) {
+            System.out.printf("p50=%d ms p95=%d ms p99=%d ms%n",
+                    percentile(all, 0.50), percentile(all, 0.95), percentile(all, 0.99));
+        }
+        System.exit(0);
+    }
+
+    static long percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1_000_000;
+    }
+}
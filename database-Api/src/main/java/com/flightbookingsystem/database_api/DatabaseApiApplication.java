@@ -2,8 +2,14 @@ package com.flightbookingsystem.database_api;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Import;
+
+import com.FBS.tracing.FileSpanExporter;
 
 @SpringBootApplication
+@Import(FileSpanExporter.class)
+@EnableCaching
 public class DatabaseApiApplication {
 
 	public static void main(String[] args) {
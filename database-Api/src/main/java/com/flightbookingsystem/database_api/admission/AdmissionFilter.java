@@ -0,0 +1,66 @@
+package com.flightbookingsystem.database_api.admission;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/*
+ * this class is responsible for admitting seat holds and bookings that carry an X-Admission-Token.
+ * the token is checked and the flight and customer limits are taken here, before the request reaches
+ * a controller, so a turned away request never touches the database or waits for a pool connection.
+ * the checked token is handed to the controller as the request attribute ATTRIBUTE.
+ * requests without a token go on, the controllers admit them once they know the flight.
+ */
+
+@Component
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Admission-Token";
+    public static final String ATTRIBUTE = "admissionToken";
+
+    AdmissionService admissionService;
+
+    @Autowired
+    public AdmissionFilter(AdmissionService admissionService) {
+        this.admissionService = admissionService;
+    }
+
+    // POST /api/v1/db/booking/create, POST /api/v1/db/booking/{bookingId}/reschedule and PUT /api/v1/db/seat/{seatId}
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return request.getHeader(HEADER) == null
+            || !(("POST".equals(request.getMethod()) && uri.equals("/api/v1/db/booking/create"))
+                || ("POST".equals(request.getMethod()) && uri.matches("/api/v1/db/booking/[0-9a-fA-F-]{36}/reschedule"))
+                || ("PUT".equals(request.getMethod()) && uri.matches("/api/v1/db/seat/[0-9a-fA-F-]{36}")));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        AdmissionToken token;
+        AdmissionService.Permit permit;
+        try {
+            token = admissionService.verify(request.getHeader(HEADER));
+            permit = admissionService.acquire(token.getFlightId(), token.getCustomerId());
+        } catch (AdmissionRejectedException e) {
+            response.setStatus(e.getStatus().value());
+            if (e.getRetryAfterSeconds() > 0) {
+                response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            }
+            return;
+        }
+
+        try (permit) {
+            request.setAttribute(ATTRIBUTE, token);
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.flightbookingsystem.database_api.admission;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/*
+ * thrown when a hold or booking is not let in, status is what the client gets back
+ * and retryAfterSeconds goes into the Retry-After header
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(HttpStatus status, long retryAfterSeconds, String message) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    // the answer a controller gives back when it turns the request away
+    public <T> ResponseEntity<T> toResponse() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        if (retryAfterSeconds > 0) {
+            response.header("Retry-After", String.valueOf(retryAfterSeconds));
+        }
+        return response.build();
+    }
+}
@@ -0,0 +1,323 @@
+package com.flightbookingsystem.database_api.admission;
+
+import com.flightbookingsystem.database_api.dto.QueueTicketDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * this class is responsible for admission control on the seat hold and booking path.
+ *
+ * 1. waiting room: when a sale opens on a flight, customers join a FIFO queue and get a ticket number.
+ *    the room lets admit-per-second tickets through, so a customer's position is just their ticket minus
+ *    the last admitted ticket, no database and no scan. an admitted customer gets a signed admission
+ *    token that any node holding the same secret can check.
+ * 2. per customer token bucket: rate-per-second holds and bookings, with bursts of burst.
+ * 3. per flight concurrency: at most max-concurrent holds and bookings of one flight run at once,
+ *    the rest are turned away at once with 503 instead of queueing for database connections.
+ *
+ * everything that is turned away costs a few map lookups, so throughput stays flat when demand is far
+ * above what the database can take. the waiting rooms live in memory of the node that opened them.
+ */
+
+@Service
+public class AdmissionService {
+
+    static final Logger log = LoggerFactory.getLogger(AdmissionService.class);
+    static final long TICKS_PER_SECOND = 10;
+
+    MeterRegistry meterRegistry;
+
+    SecretKeySpec signingKey;
+    long tokenTtlSeconds;
+    double customerRatePerSecond;
+    int customerBurst;
+    int flightMaxConcurrent;
+
+    Map<UUID, Room> rooms = new ConcurrentHashMap<>();
+    Cache<UUID, TokenBucket> customerBuckets;
+    Cache<UUID, Semaphore> flightPermits;
+
+    ScheduledExecutorService admitter = Executors.newSingleThreadScheduledExecutor();
+
+    @Autowired
+    public AdmissionService(MeterRegistry meterRegistry,
+                            @Value("${admission.token.secret:}") String secret,
+                            @Value("${admission.token.ttl-seconds:300}") long tokenTtlSeconds,
+                            @Value("${admission.customer.rate-per-second:2}") double customerRatePerSecond,
+                            @Value("${admission.customer.burst:5}") int customerBurst,
+                            @Value("${admission.flight.max-concurrent:4}") int flightMaxConcurrent) {
+        this.meterRegistry = meterRegistry;
+        this.tokenTtlSeconds = tokenTtlSeconds;
+        this.customerRatePerSecond = customerRatePerSecond;
+        this.customerBurst = customerBurst;
+        this.flightMaxConcurrent = flightMaxConcurrent;
+
+        byte[] key;
+        if (secret.isBlank()) {
+            // fine for one node, every node must share the secret to accept each other's tokens
+            log.warn("admission.token.secret is not set, admission tokens are only valid on this node until it restarts");
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = Base64.getDecoder().decode(secret);
+        }
+        this.signingKey = new SecretKeySpec(key, "HmacSHA256");
+
+        this.customerBuckets = Caffeine.newBuilder().maximumSize(1_000_000).expireAfterAccess(Duration.ofMinutes(10)).build();
+        this.flightPermits = Caffeine.newBuilder().maximumSize(100_000).expireAfterAccess(Duration.ofHours(1)).build();
+
+        admitter.scheduleAtFixedRate(this::admit, 1000 / TICKS_PER_SECOND, 1000 / TICKS_PER_SECOND, TimeUnit.MILLISECONDS);
+    }
+
+    // ---------- waiting room ----------
+
+    /**
+     * This method is responsible for opening the waiting room of a flight, from now on holds and
+     * bookings of the flight need an admission token
+     * @param flightId
+     * @param admitPerSecond how many customers leave the queue every second
+     */
+    public void open(UUID flightId, int admitPerSecond) {
+        Room room = rooms.computeIfAbsent(flightId, id -> new Room());
+        room.admitPerSecond = admitPerSecond;
+    }
+
+    public boolean close(UUID flightId) {
+        return rooms.remove(flightId) != null;
+    }
+
+    public boolean isOpen(UUID flightId) {
+        return rooms.containsKey(flightId);
+    }
+
+    /**
+     * This method is responsible for putting a customer in the queue of a flight,
+     * joining again keeps the first ticket
+     * @param flightId
+     * @param customerId
+     * @return QueueTicketDto or null when the flight has no waiting room
+     */
+    public QueueTicketDto join(UUID flightId, UUID customerId) {
+        Room room = rooms.get(flightId);
+        if (room == null) {
+            return null;
+        }
+        long ticket = room.tickets.computeIfAbsent(customerId, id -> room.issued.incrementAndGet());
+        return this.ticket(flightId, customerId, room, ticket);
+    }
+
+    /**
+     * This method is responsible for the place of a customer in the queue, two reads and a subtraction
+     * @param flightId
+     * @param customerId
+     * @return QueueTicketDto or null when the customer is not in the queue
+     */
+    public QueueTicketDto position(UUID flightId, UUID customerId) {
+        Room room = rooms.get(flightId);
+        Long ticket = room == null ? null : room.tickets.get(customerId);
+        if (ticket == null) {
+            return null;
+        }
+        return this.ticket(flightId, customerId, room, ticket);
+    }
+
+    private QueueTicketDto ticket(UUID flightId, UUID customerId, Room room, long ticket) {
+        long position = Math.max(0, ticket - room.admitted.get());
+        if (position > 0) {
+            // come back about when the queue should have reached this ticket, at least a second from now
+            long retryAfter = Math.max(1, position / Math.max(1, room.admitPerSecond));
+            return new QueueTicketDto(flightId, customerId, ticket, position, null, retryAfter);
+        }
+        long expiresAt = System.currentTimeMillis() / 1000 + tokenTtlSeconds;
+        String token = this.sign(new AdmissionToken(flightId, customerId, ticket, expiresAt));
+        return new QueueTicketDto(flightId, customerId, ticket, 0, token, 0);
+    }
+
+    // every tick each room lets the next admitPerSecond / TICKS_PER_SECOND tickets through
+    private void admit() {
+        for (Room room : rooms.values()) {
+            room.credit += (double) room.admitPerSecond / TICKS_PER_SECOND;
+            long step = (long) room.credit;
+            room.credit -= step;
+            long issued = room.issued.get();
+            room.admitted.updateAndGet(admitted -> Math.min(issued, admitted + step));
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        admitter.shutdownNow();
+    }
+
+    // ---------- tokens ----------
+
+    String sign(AdmissionToken token) {
+        String payload = token.getFlightId() + "|" + token.getCustomerId() + "|" + token.getTicket() + "|" + token.getExpiresAtEpochSecond();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + encoder.encodeToString(this.mac(payload));
+    }
+
+    /**
+     * This method is responsible for checking the signature and the expiry of an admission token
+     * @param value the X-Admission-Token header
+     * @return AdmissionToken
+     * @throws AdmissionRejectedException 403 when the token is forged, broken or expired
+     */
+    public AdmissionToken verify(String value) {
+        try {
+            String[] parts = value.split("\\.");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected payload.signature");
+            }
+            String payload = new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8);
+            if (!MessageDigest.isEqual(this.mac(payload), Base64.getUrlDecoder().decode(parts[1]))) {
+                throw this.rejected(HttpStatus.FORBIDDEN, 0, "signature");
+            }
+            String[] fields = payload.split("\\|");
+            AdmissionToken token = new AdmissionToken(UUID.fromString(fields[0]), UUID.fromString(fields[1]),
+                Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+            if (token.getExpiresAtEpochSecond() < System.currentTimeMillis() / 1000) {
+                throw this.rejected(HttpStatus.FORBIDDEN, 0, "expired");
+            }
+            return token;
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw this.rejected(HttpStatus.FORBIDDEN, 0, "malformed");
+        }
+    }
+
+    private byte[] mac(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(signingKey);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ---------- limits ----------
+
+    /**
+     * This method is responsible for letting one hold or booking of a flight in,
+     * the permit must be closed when the request is done
+     * @param flightId
+     * @param customerId null when the caller is not known yet, then only the flight limit applies
+     * @return Permit
+     * @throws AdmissionRejectedException 429 over the customer rate, 503 when the flight is busy
+     */
+    public Permit acquire(UUID flightId, UUID customerId) {
+        if (customerId != null) {
+            TokenBucket bucket = customerBuckets.get(customerId, id -> new TokenBucket(customerRatePerSecond, customerBurst));
+            if (!bucket.tryTake(System.nanoTime())) {
+                throw this.rejected(HttpStatus.TOO_MANY_REQUESTS, 1, "customer-rate");
+            }
+        }
+        Semaphore permits = flightPermits.get(flightId, id -> new Semaphore(flightMaxConcurrent));
+        if (!permits.tryAcquire()) {
+            throw this.rejected(HttpStatus.SERVICE_UNAVAILABLE, 1, "flight-busy");
+        }
+        return new Permit(permits);
+    }
+
+    /**
+     * This method is responsible for requests that came without an admission token,
+     * they are only let in when the flight has no waiting room open
+     * @param flightId
+     * @param customerId
+     * @return Permit
+     */
+    public Permit acquireWithoutToken(UUID flightId, UUID customerId) {
+        if (this.isOpen(flightId)) {
+            throw this.rejected(HttpStatus.FORBIDDEN, 0, "waiting-room");
+        }
+        return this.acquire(flightId, customerId);
+    }
+
+    // a token is only good for the flight and the customer it was given to
+    public void checkToken(AdmissionToken token, UUID flightId, UUID customerId) {
+        if (!token.getFlightId().equals(flightId) || (customerId != null && !token.getCustomerId().equals(customerId))) {
+            throw this.rejected(HttpStatus.FORBIDDEN, 0, "token-mismatch");
+        }
+    }
+
+    private AdmissionRejectedException rejected(HttpStatus status, long retryAfterSeconds, String reason) {
+        meterRegistry.counter("admission.rejected", "reason", reason).increment();
+        return new AdmissionRejectedException(status, retryAfterSeconds, reason);
+    }
+
+    static class Room {
+        final AtomicLong issued = new AtomicLong();
+        final AtomicLong admitted = new AtomicLong();
+        final Map<UUID, Long> tickets = new ConcurrentHashMap<>();
+        volatile int admitPerSecond;
+        // only touched by the admitter thread
+        double credit;
+    }
+
+    static class TokenBucket {
+        final double tokensPerNano;
+        final int burst;
+        double tokens;
+        long lastRefill;
+
+        TokenBucket(double ratePerSecond, int burst) {
+            this.tokensPerNano = ratePerSecond / 1_000_000_000.0;
+            this.burst = burst;
+            this.tokens = burst;
+            this.lastRefill = System.nanoTime();
+        }
+
+        synchronized boolean tryTake(long now) {
+            tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+
+    // released once, by whoever finishes the request
+    public static class Permit implements AutoCloseable {
+        final Semaphore permits;
+        boolean released;
+
+        Permit(Semaphore permits) {
+            this.permits = permits;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!released) {
+                released = true;
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.flightbookingsystem.database_api.admission;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+// what a signed admission token says: this customer left the waiting room of this flight with this ticket
+@Value
+public class AdmissionToken {
+    UUID flightId;
+    UUID customerId;
+    long ticket;
+    long expiresAtEpochSecond;
+}
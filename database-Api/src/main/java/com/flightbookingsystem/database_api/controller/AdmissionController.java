@@ -0,0 +1,75 @@
+package com.flightbookingsystem.database_api.controller;
+
+
+import com.flightbookingsystem.database_api.admission.AdmissionService;
+import com.flightbookingsystem.database_api.dto.QueueTicketDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/db/admission")
+public class AdmissionController {
+
+     AdmissionService admissionService;
+
+    @Autowired
+    public AdmissionController(AdmissionService admissionService) {
+        this.admissionService = admissionService;
+    }
+
+    // Open the waiting room of a flight for a sale, admitPerSecond customers are let through every second
+    @PostMapping("/{flightId}/open")
+    public ResponseEntity<Void> openWaitingRoom(@PathVariable UUID flightId,
+                                                @RequestParam int admitPerSecond) {
+        if (admitPerSecond <= 0) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        admissionService.open(flightId, admitPerSecond);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    // Close the waiting room, holds and bookings of the flight need no token again
+    @DeleteMapping("/{flightId}")
+    public ResponseEntity<Void> closeWaitingRoom(@PathVariable UUID flightId) {
+        if (!admissionService.close(flightId)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    // Join the queue, joining again gives back the same ticket
+    @PostMapping("/{flightId}/join/{customerId}")
+    public ResponseEntity<QueueTicketDto> join(@PathVariable UUID flightId,
+                                               @PathVariable UUID customerId) {
+        QueueTicketDto ticket = admissionService.join(flightId, customerId);
+        if (ticket == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return this.withRetryAfter(ticket);
+    }
+
+    // Place in the queue, with the admission token once it is the customer's turn
+    @GetMapping("/{flightId}/position/{customerId}")
+    public ResponseEntity<QueueTicketDto> position(@PathVariable UUID flightId,
+                                                   @PathVariable UUID customerId) {
+        QueueTicketDto ticket = admissionService.position(flightId, customerId);
+        if (ticket == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return this.withRetryAfter(ticket);
+    }
+
+    // tells polling clients when to ask again
+    private ResponseEntity<QueueTicketDto> withRetryAfter(QueueTicketDto ticket) {
+        if (ticket.getAdmissionToken() != null) {
+            return new ResponseEntity<>(ticket, HttpStatus.OK);
+        }
+        return ResponseEntity.status(HttpStatus.OK)
+            .header("Retry-After", String.valueOf(ticket.getRetryAfterSeconds()))
+            .body(ticket);
+    }
+}
@@ -5,6 +5,7 @@ import com.flightbookingsystem.database_api.model.Aircraft;
 import com.flightbookingsystem.database_api.model.Airline;
 import com.flightbookingsystem.database_api.reposatories.AircraftRepository;
 import com.flightbookingsystem.database_api.reposatories.AirlineRepository;
+import com.flightbookingsystem.database_api.service.SeatLayoutService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -47,6 +48,10 @@ public class AircraftController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
+        if (!this.hasValidConfiguration(aircraft)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
         aircraft.setAirline(airline);
         Aircraft savedAircraft = aircraftRepository.save(aircraft);
         return new ResponseEntity<>(savedAircraft, HttpStatus.CREATED);
@@ -63,6 +68,9 @@ public class AircraftController {
         aircraft.setType(updatedAircraft.getType());
         aircraft.setCapacity(updatedAircraft.getCapacity());
         aircraft.setConfiguration(updatedAircraft.getConfiguration());
+        if (!this.hasValidConfiguration(aircraft)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
 
         // Optional: Update airline if needed
         if (updatedAircraft.getAirline() != null) {
@@ -73,6 +81,19 @@ public class AircraftController {
         return new ResponseEntity<>(savedAircraft, HttpStatus.OK);
     }
 
+    // the configuration is compiled into the seat map, see SeatLayoutService
+    private boolean hasValidConfiguration(Aircraft aircraft) {
+        if (aircraft.getConfiguration() == null) {
+            return true;
+        }
+        try {
+            SeatLayoutService.compile(aircraft.getConfiguration(), aircraft.getCapacity());
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
     // Get all flights of an aircraft
     @GetMapping("/{aircraftId}/flights")
     public ResponseEntity<List> getFlightsOfAircraft(@PathVariable UUID aircraftId) {
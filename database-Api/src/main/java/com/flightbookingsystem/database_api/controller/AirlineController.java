@@ -1,12 +1,17 @@
 package com.flightbookingsystem.database_api.controller;
 
 
+import com.flightbookingsystem.database_api.dto.AirlineRegistrationDto;
 import com.flightbookingsystem.database_api.model.Airline;
 import com.flightbookingsystem.database_api.model.CompanySize;
+import com.flightbookingsystem.database_api.model.Employee;
+import com.flightbookingsystem.database_api.model.EmployeeRole;
 import com.flightbookingsystem.database_api.reposatories.AirlineRepository;
+import com.flightbookingsystem.database_api.reposatories.EmployeeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -17,10 +22,12 @@ import java.util.UUID;
 public class AirlineController {
 
      AirlineRepository airlineRepository;
+     EmployeeRepository employeeRepository;
 
     @Autowired
-    public AirlineController(AirlineRepository airlineRepository) {
+    public AirlineController(AirlineRepository airlineRepository, EmployeeRepository employeeRepository) {
         this.airlineRepository = airlineRepository;
+        this.employeeRepository = employeeRepository;
     }
     // Get all airlines
     @GetMapping("/get/all")
@@ -43,6 +50,23 @@ public class AirlineController {
         return airlineRepository.save(airline);
     }
 
+    // create a new airline together with its admin employee, both rows commit or neither does
+    @Transactional
+    @PostMapping("/register")
+    public ResponseEntity<AirlineRegistrationDto> registerAirline(@RequestBody AirlineRegistrationDto registration) {
+        if (registration.getAirline() == null || registration.getAdmin() == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        Airline airline = airlineRepository.save(registration.getAirline());
+
+        Employee admin = registration.getAdmin();
+        admin.setEmployeeRole(EmployeeRole.ADMIN);
+        admin.setAirline(airline);
+        admin = employeeRepository.save(admin);
+
+        return new ResponseEntity<>(new AirlineRegistrationDto(airline, admin), HttpStatus.CREATED);
+    }
 
     @PostMapping("/update/{airlineId}")
     public ResponseEntity<Airline> updateAirline(@PathVariable UUID airlineId, @RequestBody Airline updatedAirline) {
@@ -0,0 +1,81 @@
+package com.flightbookingsystem.database_api.controller;
+
+
+import com.flightbookingsystem.database_api.dto.ArchiveResultDto;
+import com.flightbookingsystem.database_api.dto.ArchivedBookingDto;
+import com.flightbookingsystem.database_api.dto.ArchivedFeedbackDto;
+import com.flightbookingsystem.database_api.dto.ArchivedNotificationDto;
+import com.flightbookingsystem.database_api.service.ArchiveService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/db/archive")
+public class ArchiveController {
+
+     ArchiveService archiveService;
+
+    @Autowired
+    public ArchiveController(ArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    // Move everything old enough to the archive now, without waiting for the scheduled run
+    @PostMapping("/run")
+    public ResponseEntity<ArchiveResultDto> run() {
+        ArchiveResultDto result = archiveService.run();
+        if (result == null) {
+            // a run is already going, or the archive tables are not made yet
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    // Get an archived booking by ID
+    @GetMapping("/booking/{bookingId}")
+    public ResponseEntity<ArchivedBookingDto> getBooking(@PathVariable UUID bookingId) {
+        ArchivedBookingDto booking = archiveService.findBooking(bookingId);
+        if (booking == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(booking, HttpStatus.OK);
+    }
+
+    // Archived bookings of a customer with departure from the start of from to the end of to (utc days)
+    @GetMapping("/booking/customer/{customerId}")
+    public ResponseEntity<List<ArchivedBookingDto>> getBookingsOfCustomer(@PathVariable UUID customerId,
+                                                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (to.isBefore(from)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(archiveService.findBookingsOfCustomer(customerId,
+            from.atStartOfDay(ZoneOffset.UTC), to.plusDays(1).atStartOfDay(ZoneOffset.UTC)), HttpStatus.OK);
+    }
+
+    // Archived notifications of a customer sent from the start of from to the end of to (utc days)
+    @GetMapping("/notification/customer/{customerId}")
+    public ResponseEntity<List<ArchivedNotificationDto>> getNotificationsOfCustomer(@PathVariable UUID customerId,
+                                                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (to.isBefore(from)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(archiveService.findNotificationsOfCustomer(customerId,
+            from.atStartOfDay(ZoneOffset.UTC), to.plusDays(1).atStartOfDay(ZoneOffset.UTC)), HttpStatus.OK);
+    }
+
+    // Archived feedbacks of a flight
+    @GetMapping("/feedback/flight/{flightId}")
+    public ResponseEntity<List<ArchivedFeedbackDto>> getFeedbacksOfFlight(@PathVariable UUID flightId) {
+        return new ResponseEntity<>(archiveService.findFeedbacksOfFlight(flightId), HttpStatus.OK);
+    }
+}
@@ -1,14 +1,34 @@
 package com.flightbookingsystem.database_api.controller;
 
 
+import com.flightbookingsystem.database_api.admission.AdmissionFilter;
+import com.flightbookingsystem.database_api.admission.AdmissionRejectedException;
+import com.flightbookingsystem.database_api.admission.AdmissionService;
+import com.flightbookingsystem.database_api.admission.AdmissionToken;
+import com.flightbookingsystem.database_api.dto.PnrBookingDto;
+import com.flightbookingsystem.database_api.dto.RescheduleDto;
+import com.flightbookingsystem.database_api.dto.RescheduleResultDto;
+import com.flightbookingsystem.database_api.dto.SeatStatusDeltaDto;
 import com.flightbookingsystem.database_api.model.Booking;
+import com.flightbookingsystem.database_api.model.BookingStatus;
 import com.flightbookingsystem.database_api.model.Customer;
+import com.flightbookingsystem.database_api.model.Fare;
 import com.flightbookingsystem.database_api.model.Flight;
+import com.flightbookingsystem.database_api.model.Payment;
 import com.flightbookingsystem.database_api.model.Seat;
+import com.flightbookingsystem.database_api.model.SeatStatus;
 import com.flightbookingsystem.database_api.reposatories.*;
+import com.flightbookingsystem.database_api.service.BookingSequencer;
+import com.flightbookingsystem.database_api.service.ItineraryService;
+import com.flightbookingsystem.database_api.service.PnrService;
+import com.flightbookingsystem.database_api.service.SeatEventHub;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.ZonedDateTime;
@@ -24,68 +44,157 @@ public class BookingController {
      FlightRepository flightRepository;
      SeatRepository seatRepository;
      PaymentRepository paymentRepository;
+     MeterRegistry meterRegistry;
+     ItineraryService itineraryService;
+     PnrService pnrService;
+     AdmissionService admissionService;
+     BookingSequencer bookingSequencer;
+     TransactionTemplate transactionTemplate;
+     ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public BookingController(BookingRepository bookingRepository,
                              CustomerRepository customerRepository,
                              FlightRepository flightRepository,
                              SeatRepository seatRepository,
-                             PaymentRepository paymentRepository) {
+                             PaymentRepository paymentRepository,
+                             MeterRegistry meterRegistry,
+                             ItineraryService itineraryService,
+                             PnrService pnrService,
+                             AdmissionService admissionService,
+                             BookingSequencer bookingSequencer,
+                             TransactionTemplate transactionTemplate,
+                             ApplicationEventPublisher eventPublisher) {
         this.bookingRepository = bookingRepository;
         this.customerRepository = customerRepository;
         this.flightRepository = flightRepository;
         this.seatRepository = seatRepository;
         this.paymentRepository = paymentRepository;
+        this.meterRegistry = meterRegistry;
+        this.itineraryService = itineraryService;
+        this.pnrService = pnrService;
+        this.admissionService = admissionService;
+        this.bookingSequencer = bookingSequencer;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
     }
 
 
-    // Get all bookings
+    // Get all bookings, in the booking detail shape
     @GetMapping
     public List<Booking> getAllBookings() {
-        return bookingRepository.findAll();
+        return bookingRepository.findDetailBy();
     }
 
-    // Get booking by ID
+    // Get booking by ID, with everything the booking detail shows
     @GetMapping("/{bookingId}")
     public ResponseEntity<Booking> getBookingById(@PathVariable UUID bookingId) {
-        Booking booking = bookingRepository.findById(bookingId).orElse(null);
+        Booking booking = bookingRepository.findDetailByBookingId(bookingId).orElse(null);
+        if (booking == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(booking, HttpStatus.OK);
+    }
+
+    // Get booking by PNR, for check-in kiosks and support, cached by PnrService
+    @GetMapping("/pnr/{pnr}")
+    public ResponseEntity<PnrBookingDto> getBookingByPnr(@PathVariable String pnr) {
+        PnrBookingDto booking = pnrService.findByPnr(pnr.toUpperCase());
         if (booking == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
         return new ResponseEntity<>(booking, HttpStatus.OK);
     }
 
+    // Get the bookings of a customer, earliest departure first
+    @GetMapping("/customer/{customerId}")
+    public ResponseEntity<List<Booking>> getBookingsOfCustomer(@PathVariable UUID customerId) {
+        if (!customerRepository.existsById(customerId)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(bookingRepository.findDetailByCustomerCustomerIdOrderByFlightDepartureAsc(customerId), HttpStatus.OK);
+    }
+
     // Create a new booking
     @PostMapping("/create")
-    public ResponseEntity<Booking> createBooking(@RequestBody Booking booking) {
+    public ResponseEntity<Booking> createBooking(@RequestBody Booking booking,
+                                                 @RequestAttribute(name = AdmissionFilter.ATTRIBUTE, required = false) AdmissionToken token) {
         // Validate related entities
         if (booking.getCustomer() == null || booking.getFlight() == null || booking.getSeat() == null) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
+        // with a token AdmissionFilter already let it in, without one it is admitted here
+        AdmissionService.Permit permit;
+        try {
+            if (token != null) {
+                admissionService.checkToken(token, booking.getFlight().getFlightId(), booking.getCustomer().getCustomerId());
+                permit = null;
+            } else {
+                permit = admissionService.acquireWithoutToken(booking.getFlight().getFlightId(), booking.getCustomer().getCustomerId());
+            }
+        } catch (AdmissionRejectedException e) {
+            return e.toResponse();
+        }
+        try (permit) {
+            if (bookingSequencer.isEnabled()) {
+                // the flight's sequencer claims the seat and writes the booking, no connection is held while waiting
+                ResponseEntity<Booking> saved = bookingSequencer.execute(booking.getFlight().getFlightId(), booking.getSeat().getSeatId(),
+                    SeatStatus.BOOKED, booking.getCustomer().getCustomerId(), () -> this.saveBooking(booking, true));
+                if (!saved.getStatusCode().is2xxSuccessful()) {
+                    return saved;
+                }
+                // written in the sequencer's session, read again here so the answer can load what it shows
+                return new ResponseEntity<>(bookingRepository.findDetailByBookingId(saved.getBody().getBookingId()).orElse(null), saved.getStatusCode());
+            }
+            return transactionTemplate.execute(status -> this.saveBooking(booking, false));
+        }
+    }
+
+    // in sequence the flight's sequencer checked the seat already, otherwise its row is locked and checked here the same way
+    private ResponseEntity<Booking> saveBooking(Booking booking, boolean sequenced) {
         Customer customer = customerRepository.findById(booking.getCustomer().getCustomerId()).orElse(null);
         Flight flight = flightRepository.findById(booking.getFlight().getFlightId()).orElse(null);
-        Seat seat = seatRepository.findById(booking.getSeat().getSeatId()).orElse(null);
+        UUID seatId = booking.getSeat().getSeatId();
+        Seat seat = (sequenced ? seatRepository.findById(seatId) : seatRepository.findLockedBySeatId(seatId)).orElse(null);
 
         if (customer == null || flight == null || seat == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
+        if (!sequenced && (seat.getFlight() == null || !flight.getFlightId().equals(seat.getFlight().getFlightId())
+            || BookingSequencer.conflict(seat, SeatStatus.BOOKED, customer.getCustomerId()) != null)) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
 
         booking.setCustomer(customer);
         booking.setFlight(flight);
         booking.setSeat(seat);
         booking.setBookingTime(ZonedDateTime.now());
+        // the PNR is always made here, whatever the caller sent
+        booking.setPnrNumber(pnrService.generate());
 
         // Save payment if exists
         if (booking.getPayment() != null) {
             paymentRepository.save(booking.getPayment());
         }
 
+        if (seat.getSeatStatus() != SeatStatus.BOOKED) {
+            seat.setSeatStatus(SeatStatus.BOOKED);
+            seat.setHeldBy(null);
+            itineraryService.seatSaved(seat);
+            eventPublisher.publishEvent(new SeatStatusDeltaDto(flight.getFlightId(), seat.getSeatId(),
+                seat.getSeatNumber(), seat.getSeatStatus(), SeatEventHub.change(seat.getSeatStatus())));
+        }
+
         Booking savedBooking = bookingRepository.save(booking);
+        itineraryService.bookingSaved(savedBooking);
+        meterRegistry.counter("bookings.created",
+            "status", String.valueOf(savedBooking.getBookingStatus())).increment();
         return new ResponseEntity<>(savedBooking, HttpStatus.CREATED);
     }
 
     // Delete booking
+    @Transactional
     @DeleteMapping("/{bookingId}")
     public ResponseEntity<Void> deleteBooking(@PathVariable UUID bookingId) {
         Booking booking = bookingRepository.findById(bookingId).orElse(null);
@@ -94,10 +203,14 @@ public class BookingController {
         }
 
         bookingRepository.delete(booking);
+        itineraryService.bookingDeleted(bookingId);
+        pnrService.evict(booking.getPnrNumber());
+        meterRegistry.counter("bookings.deleted").increment();
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
     // Update booking
+    @Transactional
     @PutMapping("/{bookingId}")
     public ResponseEntity<Booking> updateBooking(@PathVariable UUID bookingId, @RequestBody Booking updatedBooking) {
         Booking booking = bookingRepository.findById(bookingId).orElse(null);
@@ -106,15 +219,142 @@ public class BookingController {
         }
 
         booking.setBookingStatus(updatedBooking.getBookingStatus());
-        booking.setPnrNumber(updatedBooking.getPnrNumber());
+        // the PNR is not changed, it is printed on tickets and indexed
         // Optionally update customer, flight, seat, payment
         if (updatedBooking.getPayment() != null) {
             booking.setPayment(paymentRepository.save(updatedBooking.getPayment()));
         }
 
         Booking savedBooking = bookingRepository.save(booking);
+        itineraryService.bookingSaved(savedBooking);
+        pnrService.evict(savedBooking.getPnrNumber());
         return new ResponseEntity<>(savedBooking, HttpStatus.OK);
     }
 
+    // Move a booking to another seat, on the same flight or another one, and settle the fare difference with the wallet
+    @PostMapping("/{bookingId}/reschedule")
+    public ResponseEntity<RescheduleResultDto> rescheduleBooking(@PathVariable UUID bookingId,
+                                                                 @RequestBody RescheduleDto reschedule,
+                                                                 @RequestAttribute(name = AdmissionFilter.ATTRIBUTE, required = false) AdmissionToken token) {
+        if (reschedule.getSeatId() == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        UUID flightId = bookingSequencer.isEnabled() ? bookingSequencer.flightOf(reschedule.getSeatId())
+            : seatRepository.findFlightIdBySeatId(reschedule.getSeatId()).orElse(null);
+        UUID customerId = bookingRepository.findCustomerIdByBookingId(bookingId).orElse(null);
+        if (flightId == null || customerId == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        // admitted to the new flight like a new booking
+        AdmissionService.Permit permit;
+        try {
+            if (token != null) {
+                admissionService.checkToken(token, flightId, customerId);
+                permit = null;
+            } else {
+                permit = admissionService.acquireWithoutToken(flightId, customerId);
+            }
+        } catch (AdmissionRejectedException e) {
+            return e.toResponse();
+        }
+        try (permit) {
+            if (bookingSequencer.isEnabled()) {
+                // the new flight's sequencer claims the new seat, without a holder since no held seat can be taken,
+                // the old seat is released outside the old flight's queue
+                ResponseEntity<RescheduleResultDto> moved = bookingSequencer.execute(flightId, reschedule.getSeatId(),
+                    SeatStatus.BOOKED, null, () -> this.moveBooking(bookingId, reschedule.getSeatId()));
+                if (!moved.getStatusCode().is2xxSuccessful()) {
+                    return moved;
+                }
+                RescheduleResultDto result = moved.getBody();
+                bookingSequencer.invalidate(result.getOldFlightId());
+                result.setBooking(bookingRepository.findDetailByBookingId(bookingId).orElse(null));
+                return new ResponseEntity<>(result, HttpStatus.OK);
+            }
+            return transactionTemplate.execute(status -> this.moveBooking(bookingId, reschedule.getSeatId()));
+        }
+    }
+
+    /*
+     * one transaction: lock, check, then write. rows are locked in one order for every reschedule,
+     * the booking, then both seats by seatId, then the customer, so two reschedules that share seats
+     * (two customers swapping) wait for each other instead of deadlocking. nothing is written until
+     * every check passed, so an answer other than 200 leaves everything as it was.
+     */
+    private ResponseEntity<RescheduleResultDto> moveBooking(UUID bookingId, UUID newSeatId) {
+        Booking booking = bookingRepository.findLockedByBookingId(bookingId).orElse(null);
+        if (booking == null || booking.getSeat() == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (booking.getBookingStatus() == BookingStatus.CANCELLED) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        UUID oldSeatId = booking.getSeat().getSeatId();
+        if (oldSeatId.equals(newSeatId)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        boolean oldFirst = oldSeatId.compareTo(newSeatId) < 0;
+        Seat first = seatRepository.findLockedBySeatId(oldFirst ? oldSeatId : newSeatId).orElse(null);
+        Seat second = seatRepository.findLockedBySeatId(oldFirst ? newSeatId : oldSeatId).orElse(null);
+        Seat oldSeat = oldFirst ? first : second;
+        Seat newSeat = oldFirst ? second : first;
+        if (oldSeat == null || newSeat == null || newSeat.getFlight() == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        // only a free seat, a held one is kept for the booking of whoever holds it
+        if (newSeat.getSeatStatus() != null && newSeat.getSeatStatus() != SeatStatus.AVAILABLE) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+
+        Customer customer = customerRepository.findLockedByCustomerId(booking.getCustomer().getCustomerId()).orElse(null);
+        if (customer == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        double fareDifference = fareOf(newSeat) - fareOf(oldSeat);
+        double wallet = customer.getWalletBalance() == null ? 0 : customer.getWalletBalance();
+        if (fareDifference > wallet) {
+            return new ResponseEntity<>(HttpStatus.PAYMENT_REQUIRED);
+        }
+
+        customer.setWalletBalance(wallet - fareDifference);
+        Payment payment = booking.getPayment();
+        if (payment != null) {
+            payment.setAmount((payment.getAmount() == null ? 0 : payment.getAmount()) + fareDifference);
+            itineraryService.paymentSaved(payment);
+        }
+
+        Flight oldFlight = oldSeat.getFlight();
+        oldSeat.setSeatStatus(SeatStatus.AVAILABLE);
+        oldSeat.setHeldBy(null);
+        newSeat.setSeatStatus(SeatStatus.BOOKED);
+        newSeat.setHeldBy(null);
+        booking.setSeat(newSeat);
+        booking.setFlight(newSeat.getFlight());
+        Booking savedBooking = bookingRepository.save(booking);
+
+        for (Seat seat : List.of(oldSeat, newSeat)) {
+            itineraryService.seatSaved(seat);
+            eventPublisher.publishEvent(new SeatStatusDeltaDto(seat.getFlight().getFlightId(), seat.getSeatId(),
+                seat.getSeatNumber(), seat.getSeatStatus(), SeatEventHub.change(seat.getSeatStatus())));
+        }
+        itineraryService.bookingSaved(savedBooking);
+        pnrService.evict(savedBooking.getPnrNumber());
+        meterRegistry.counter("bookings.rescheduled",
+            "flight", oldFlight != null && oldFlight.getFlightId().equals(newSeat.getFlight().getFlightId()) ? "same" : "other").increment();
+        return new ResponseEntity<>(new RescheduleResultDto(savedBooking, fareDifference, customer.getWalletBalance(),
+            oldFlight == null ? null : oldFlight.getFlightId()), HttpStatus.OK);
+    }
+
+    // what a seat costs, its fare or else the price of its flight
+    private static double fareOf(Seat seat) {
+        Fare fare = seat.getFare();
+        if (fare != null) {
+            return (fare.getBasePrice() == null ? 0 : fare.getBasePrice()) + (fare.getTax() == null ? 0 : fare.getTax());
+        }
+        return seat.getFlight() == null || seat.getFlight().getPrice() == null ? 0 : seat.getFlight().getPrice();
+    }
+
 
 }
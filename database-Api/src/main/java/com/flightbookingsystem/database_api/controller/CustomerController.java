@@ -2,10 +2,17 @@ package com.flightbookingsystem.database_api.controller;
 
 
 import com.flightbookingsystem.database_api.model.Customer;
+import com.flightbookingsystem.database_api.model.FeedBack;
+import com.flightbookingsystem.database_api.model.ItineraryEntry;
 import com.flightbookingsystem.database_api.reposatories.CustomerRepository;
+import com.flightbookingsystem.database_api.reposatories.ItineraryEntryRepository;
+import com.flightbookingsystem.database_api.service.ItineraryService;
+import com.flightbookingsystem.database_api.service.NotificationInboxService;
+import com.flightbookingsystem.database_api.service.RatingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -17,10 +24,22 @@ public class CustomerController {
 
 
      CustomerRepository customerRepository;
+     ItineraryEntryRepository itineraryEntryRepository;
+     ItineraryService itineraryService;
+     RatingService ratingService;
+     NotificationInboxService notificationInboxService;
 
     @Autowired
-    public CustomerController(CustomerRepository customerRepository) {
+    public CustomerController(CustomerRepository customerRepository,
+                              ItineraryEntryRepository itineraryEntryRepository,
+                              ItineraryService itineraryService,
+                              RatingService ratingService,
+                              NotificationInboxService notificationInboxService) {
         this.customerRepository = customerRepository;
+        this.itineraryEntryRepository = itineraryEntryRepository;
+        this.itineraryService = itineraryService;
+        this.ratingService = ratingService;
+        this.notificationInboxService = notificationInboxService;
     }
 
     @GetMapping("/email/{email}")
@@ -49,6 +68,17 @@ public class CustomerController {
         return new ResponseEntity<>(customer, HttpStatus.OK);
     }
 
+    // "my bookings" page, read from the itinerary read model in one indexed query
+    @GetMapping("/{customerId}/itinerary")
+    public ResponseEntity<List<ItineraryEntry>> getItinerary(@PathVariable UUID customerId) {
+        List<ItineraryEntry> itinerary = itineraryEntryRepository.findByCustomerIdOrderByDepartureAsc(customerId);
+        // only an empty itinerary needs a second look, to tell no bookings from no customer
+        if (itinerary.isEmpty() && !customerRepository.existsById(customerId)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(itinerary, HttpStatus.OK);
+    }
+
     @PutMapping("/{customerId}")
     public ResponseEntity<Customer> updateCustomer(@PathVariable UUID customerId, @RequestBody Customer updatedCustomer) {
         Customer customer = customerRepository.findById(customerId).orElse(null);
@@ -70,6 +100,7 @@ public class CustomerController {
         return new ResponseEntity<>(savedCustomer, HttpStatus.OK);
     }
 
+    @Transactional
     @DeleteMapping("/{customerId}")
     public ResponseEntity<Void> deleteCustomer(@PathVariable UUID customerId) {
         Customer customer = customerRepository.findById(customerId).orElse(null);
@@ -77,7 +108,15 @@ public class CustomerController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
+        // the customer's feedbacks are deleted with it and leave the ratings
+        for (FeedBack feedback : customer.getFeedbacks()) {
+            if (RatingService.isValid(feedback.getRating()) && feedback.getFlight() != null) {
+                ratingService.ratingRemoved(feedback.getFlight(), feedback.getRating());
+            }
+        }
         customerRepository.delete(customer);
+        itineraryService.customerDeleted(customerId);
+        notificationInboxService.customerDeleted(customerId);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
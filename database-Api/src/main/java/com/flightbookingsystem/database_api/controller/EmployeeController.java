@@ -1,16 +1,22 @@
 package com.flightbookingsystem.database_api.controller;
 
 
+import com.flightbookingsystem.database_api.dto.EmployeeImportResultDto;
 import com.flightbookingsystem.database_api.model.Airline;
 import com.flightbookingsystem.database_api.model.Employee;
 import com.flightbookingsystem.database_api.model.Role;
 import com.flightbookingsystem.database_api.reposatories.AirlineRepository;
 import com.flightbookingsystem.database_api.reposatories.EmployeeRepository;
+import com.flightbookingsystem.database_api.service.EmployeeImportService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -21,11 +27,15 @@ public class EmployeeController {
 
      EmployeeRepository employeeRepository;
      AirlineRepository airlineRepository;
+     EmployeeImportService employeeImportService;
 
     @Autowired
-    public EmployeeController(EmployeeRepository employeeRepository, AirlineRepository airlineRepository) {
+    public EmployeeController(EmployeeRepository employeeRepository,
+                              AirlineRepository airlineRepository,
+                              EmployeeImportService employeeImportService) {
         this.employeeRepository = employeeRepository;
         this.airlineRepository = airlineRepository;
+        this.employeeImportService = employeeImportService;
     }
 
    
@@ -52,7 +62,8 @@ public class EmployeeController {
      }
 
 
-    // Create a new employee with airline id
+    // Create a new employee with airline id, only the employee row is written
+    @Transactional
     @PostMapping("/create/{airlineId}") 
     public ResponseEntity<Employee> createEmployee(@PathVariable UUID airlineId, @RequestBody Employee employee) {
         Airline airline = airlineRepository.findById(airlineId).orElse(null);
@@ -65,6 +76,30 @@ public class EmployeeController {
         return new ResponseEntity<>(savedEmployee, HttpStatus.CREATED);
     }
 
+    // Bulk import employees of an airline from a json array, saved in batches
+    @PostMapping(value = "/bulk/{airlineId}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<EmployeeImportResultDto> importEmployeesJson(@PathVariable UUID airlineId, InputStream body) throws IOException {
+        Airline airline = airlineRepository.findById(airlineId).orElse(null);
+        if (airline == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        EmployeeImportResultDto result = employeeImportService.importJson(airline, body);
+        // rows before failedLine are saved, the body says how many
+        return new ResponseEntity<>(result, result.getError() == null ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST);
+    }
+
+    // Bulk import employees of an airline from csv rows, saved in batches
+    @PostMapping(value = "/bulk/{airlineId}", consumes = "text/csv")
+    public ResponseEntity<EmployeeImportResultDto> importEmployeesCsv(@PathVariable UUID airlineId, InputStream body) throws IOException {
+        Airline airline = airlineRepository.findById(airlineId).orElse(null);
+        if (airline == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        EmployeeImportResultDto result = employeeImportService.importCsv(airline, body);
+        // rows before failedLine are saved, the body says how many
+        return new ResponseEntity<>(result, result.getError() == null ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST);
+    }
+
     // Update employee
     @PutMapping("/{employeeId}")
     public ResponseEntity<Employee> updateEmployee(@PathVariable UUID employeeId, @RequestBody Employee updatedEmployee) {
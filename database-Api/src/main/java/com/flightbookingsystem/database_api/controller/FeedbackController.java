@@ -1,15 +1,21 @@
 package com.flightbookingsystem.database_api.controller;
 
 
+import com.flightbookingsystem.database_api.dto.FeedbackSearchDto;
 import com.flightbookingsystem.database_api.model.Customer;
 import com.flightbookingsystem.database_api.model.FeedBack;
 import com.flightbookingsystem.database_api.model.Flight;
+import com.flightbookingsystem.database_api.model.RatingAggregate;
+import com.flightbookingsystem.database_api.model.RatingScope;
 import com.flightbookingsystem.database_api.reposatories.CustomerRepository;
 import com.flightbookingsystem.database_api.reposatories.FeedBackRepository;
 import com.flightbookingsystem.database_api.reposatories.FlightRepository;
+import com.flightbookingsystem.database_api.service.FeedbackSearchService;
+import com.flightbookingsystem.database_api.service.RatingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.ZonedDateTime;
@@ -24,14 +30,20 @@ public class FeedbackController {
      FeedBackRepository feedBackRepository;
      CustomerRepository customerRepository;
      FlightRepository flightRepository;
+     RatingService ratingService;
+     FeedbackSearchService feedbackSearchService;
 
     @Autowired
     public FeedbackController(FeedBackRepository feedBackRepository,
                               CustomerRepository customerRepository,
-                              FlightRepository flightRepository) {
+                              FlightRepository flightRepository,
+                              RatingService ratingService,
+                              FeedbackSearchService feedbackSearchService) {
         this.feedBackRepository = feedBackRepository;
         this.customerRepository = customerRepository;
         this.flightRepository = flightRepository;
+        this.ratingService = ratingService;
+        this.feedbackSearchService = feedbackSearchService;
     }
 
     // Get all feedbacks
@@ -50,11 +62,54 @@ public class FeedbackController {
         return new ResponseEntity<>(feedback, HttpStatus.OK);
     }
 
-    // Create new feedback
+    // Search the comments ("lost baggage", delay), best match first, optionally of one airline,
+    // one route (originId and destinationId) or one rating, with counts per airline and rating
+    @GetMapping("/search")
+    public ResponseEntity<FeedbackSearchDto> searchFeedbacks(@RequestParam String q,
+                                                             @RequestParam(required = false) UUID airlineId,
+                                                             @RequestParam(required = false) UUID originId,
+                                                             @RequestParam(required = false) UUID destinationId,
+                                                             @RequestParam(required = false) Integer rating,
+                                                             @RequestParam(defaultValue = "0") int page,
+                                                             @RequestParam(defaultValue = "20") int size) {
+        if ((originId == null) != (destinationId == null) || page < 0 || size < 1 || size > 100) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        FeedbackSearchDto result = feedbackSearchService.search(q, airlineId, originId, destinationId, rating, page, size);
+        if (result == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    // Rating of a flight, count, average and how many gave 1 to 5 stars
+    @GetMapping("/rating/flight/{flightId}")
+    public ResponseEntity<RatingAggregate> getFlightRating(@PathVariable UUID flightId) {
+        return new ResponseEntity<>(ratingService.find(RatingScope.FLIGHT, flightId, null), HttpStatus.OK);
+    }
+
+    // Rating of an airline over all its flights
+    @GetMapping("/rating/airline/{airlineId}")
+    public ResponseEntity<RatingAggregate> getAirlineRating(@PathVariable UUID airlineId) {
+        return new ResponseEntity<>(ratingService.find(RatingScope.AIRLINE, airlineId, null), HttpStatus.OK);
+    }
+
+    // Rating of a route over all flights from origin to destination
+    @GetMapping("/rating/route/{originId}/{destinationId}")
+    public ResponseEntity<RatingAggregate> getRouteRating(@PathVariable UUID originId,
+                                                          @PathVariable UUID destinationId) {
+        return new ResponseEntity<>(ratingService.find(RatingScope.ROUTE, originId, destinationId), HttpStatus.OK);
+    }
+
+    // Create new feedback, rating is 1 to 5
+    @Transactional
     @PostMapping("/create/{customerId}/{flightId}")
     public ResponseEntity<FeedBack> createFeedback(@PathVariable UUID customerId,
                                                    @PathVariable UUID flightId,
                                                    @RequestBody FeedBack feedback) {
+        if (!RatingService.isValid(feedback.getRating())) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
         Customer customer = customerRepository.findById(customerId).orElse(null);
         Flight flight = flightRepository.findById(flightId).orElse(null);
 
@@ -67,17 +122,24 @@ public class FeedbackController {
         feedback.setCreatedAt(ZonedDateTime.now());
 
         FeedBack savedFeedback = feedBackRepository.save(feedback);
+        ratingService.ratingAdded(flight, savedFeedback.getRating());
         return new ResponseEntity<>(savedFeedback, HttpStatus.CREATED);
     }
 
     // Update feedback
+    @Transactional
     @PutMapping("/{feedbackId}")
     public ResponseEntity<FeedBack> updateFeedback(@PathVariable UUID feedbackId,
                                                    @RequestBody FeedBack updatedFeedback) {
+        if (!RatingService.isValid(updatedFeedback.getRating())) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
         FeedBack feedback = feedBackRepository.findById(feedbackId).orElse(null);
         if (feedback == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
+        Integer oldRating = feedback.getRating();
+        Flight oldFlight = feedback.getFlight();
 
         feedback.setRating(updatedFeedback.getRating());
         feedback.setComments(updatedFeedback.getComments());
@@ -86,14 +148,28 @@ public class FeedbackController {
             feedback.setCustomer(updatedFeedback.getCustomer());
         }
         if (updatedFeedback.getFlight() != null) {
-            feedback.setFlight(updatedFeedback.getFlight());
+            // loaded by id so the rating moves to the airline and route of the new flight
+            Flight flight = flightRepository.findById(updatedFeedback.getFlight().getFlightId()).orElse(null);
+            if (flight == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            feedback.setFlight(flight);
         }
 
         FeedBack savedFeedback = feedBackRepository.save(feedback);
+        if (!savedFeedback.getRating().equals(oldRating) || savedFeedback.getFlight() != oldFlight) {
+            if (RatingService.isValid(oldRating) && oldFlight != null) {
+                ratingService.ratingRemoved(oldFlight, oldRating);
+            }
+            if (savedFeedback.getFlight() != null) {
+                ratingService.ratingAdded(savedFeedback.getFlight(), savedFeedback.getRating());
+            }
+        }
         return new ResponseEntity<>(savedFeedback, HttpStatus.OK);
     }
 
     // Delete feedback
+    @Transactional
     @DeleteMapping("/{feedbackId}")
     public ResponseEntity<Void> deleteFeedback(@PathVariable UUID feedbackId) {
         FeedBack feedback = feedBackRepository.findById(feedbackId).orElse(null);
@@ -102,6 +178,9 @@ public class FeedbackController {
         }
 
         feedBackRepository.delete(feedback);
+        if (RatingService.isValid(feedback.getRating()) && feedback.getFlight() != null) {
+            ratingService.ratingRemoved(feedback.getFlight(), feedback.getRating());
+        }
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 }
@@ -1,19 +1,34 @@
 package com.flightbookingsystem.database_api.controller;
 
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.flightbookingsystem.database_api.dto.FlightSearchResultDto;
+import com.flightbookingsystem.database_api.dto.ScheduleEntryDto;
 import com.flightbookingsystem.database_api.model.Aircraft;
 import com.flightbookingsystem.database_api.model.Airline;
 import com.flightbookingsystem.database_api.model.Airport;
 import com.flightbookingsystem.database_api.model.Flight;
+import com.flightbookingsystem.database_api.model.RatingAggregateId;
+import com.flightbookingsystem.database_api.model.ScheduleImport;
+import com.flightbookingsystem.database_api.model.ScheduleImportStatus;
 import com.flightbookingsystem.database_api.reposatories.AircraftRepository;
 import com.flightbookingsystem.database_api.reposatories.AirlineRepository;
 import com.flightbookingsystem.database_api.reposatories.AirportRepository;
 import com.flightbookingsystem.database_api.reposatories.FlightRepository;
+import com.flightbookingsystem.database_api.reposatories.ScheduleImportRepository;
+import com.flightbookingsystem.database_api.service.ItineraryService;
+import com.flightbookingsystem.database_api.service.RatingService;
+import com.flightbookingsystem.database_api.service.ScheduleImportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.UUID;
 
@@ -25,28 +40,57 @@ public class FlightController {
      AirportRepository airportRepository;
      AirlineRepository airlineRepository;
      AircraftRepository aircraftRepository;
+     ItineraryService itineraryService;
+     ScheduleImportService scheduleImportService;
+     ScheduleImportRepository scheduleImportRepository;
+     RatingService ratingService;
 
     @Autowired
     public FlightController(FlightRepository flightRepository,
                             AirportRepository airportRepository,
                             AirlineRepository airlineRepository,
-                            AircraftRepository aircraftRepository) {
+                            AircraftRepository aircraftRepository,
+                            ItineraryService itineraryService,
+                            ScheduleImportService scheduleImportService,
+                            ScheduleImportRepository scheduleImportRepository,
+                            RatingService ratingService) {
         this.flightRepository = flightRepository;
         this.airportRepository = airportRepository;
         this.airlineRepository = airlineRepository;
         this.aircraftRepository = aircraftRepository;
+        this.itineraryService = itineraryService;
+        this.scheduleImportService = scheduleImportService;
+        this.scheduleImportRepository = scheduleImportRepository;
+        this.ratingService = ratingService;
     }
 
-    // Get all flights
+    // Get all flights, in the flight detail shape
     @GetMapping
     public List<Flight> getAllFlights() {
-        return flightRepository.findAll();
+        return flightRepository.findDetailBy();
     }
 
-    // Get flight by ID
+    // Flights from origin to destination (airport codes) departing on date (day in zone),
+    // with the ratings of each flight, its airline and its route
+    @GetMapping("/search")
+    public ResponseEntity<List<FlightSearchResultDto>> searchFlights(@RequestParam String origin,
+                                                                     @RequestParam String destination,
+                                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                                     @RequestParam(defaultValue = "UTC") String zone) {
+        ZoneId zoneId;
+        try {
+            zoneId = ZoneId.of(zone);
+        } catch (DateTimeException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(flightRepository.search(origin, destination, date.atStartOfDay(zoneId),
+            date.plusDays(1).atStartOfDay(zoneId), RatingAggregateId.NONE), HttpStatus.OK);
+    }
+
+    // Get flight by ID, with airline, aircraft, airports and seats
     @GetMapping("/{flightId}")
     public ResponseEntity<Flight> getFlightById(@PathVariable UUID flightId) {
-        Flight flight = flightRepository.findById(flightId).orElse(null);
+        Flight flight = flightRepository.findDetailByFlightId(flightId).orElse(null);
         if (flight == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -78,7 +122,48 @@ public class FlightController {
         return new ResponseEntity<>(savedFlight, HttpStatus.CREATED);
     }
 
+    // Import a seasonal timetable of an airline, the flights are written in the background
+    // 400 with every problem found when the timetable does not fit airports, aircraft or fares
+    @PostMapping("/schedule/{airlineId}")
+    public ResponseEntity<ScheduleImport> importSchedule(@PathVariable UUID airlineId,
+                                                         @RequestBody List<ScheduleEntryDto> entries) throws JsonProcessingException {
+        Airline airline = airlineRepository.findById(airlineId).orElse(null);
+        if (airline == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        ScheduleImport scheduleImport = scheduleImportService.start(airline, entries);
+        if (scheduleImport.getStatus() == ScheduleImportStatus.REJECTED) {
+            return new ResponseEntity<>(scheduleImport, HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(scheduleImport, HttpStatus.ACCEPTED);
+    }
+
+    // Progress of a timetable import
+    @GetMapping("/schedule/import/{importId}")
+    public ResponseEntity<ScheduleImport> getScheduleImport(@PathVariable UUID importId) {
+        ScheduleImport scheduleImport = scheduleImportRepository.findById(importId).orElse(null);
+        if (scheduleImport == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(scheduleImport, HttpStatus.OK);
+    }
+
+    // Carry on with a failed timetable import from the first flight it did not write
+    @PostMapping("/schedule/import/{importId}/resume")
+    public ResponseEntity<ScheduleImport> resumeScheduleImport(@PathVariable UUID importId) {
+        ScheduleImport scheduleImport = scheduleImportRepository.findById(importId).orElse(null);
+        if (scheduleImport == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (scheduleImport.getStatus() != ScheduleImportStatus.FAILED) {
+            return new ResponseEntity<>(scheduleImport, HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(scheduleImportService.resume(scheduleImport), HttpStatus.ACCEPTED);
+    }
+
     // Update flight
+    @Transactional
     @PutMapping("/{flightId}")
     public ResponseEntity<Flight> updateFlight(@PathVariable UUID flightId,
                                                @RequestBody Flight updatedFlight) {
@@ -87,30 +172,37 @@ public class FlightController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
+        Airline oldAirline = flight.getAirline();
+        Airport oldOrigin = flight.getOriginAirport();
+        Airport oldDestination = flight.getDestinationAirport();
+
         flight.setDeparture(updatedFlight.getDeparture());
         flight.setArrival(updatedFlight.getArrival());
         flight.setPrice(updatedFlight.getPrice());
         flight.setStatus(updatedFlight.getStatus());
 
-        // Optional: Update relationships
+        // Optional: Update relationships, loaded by id so the itinerary gets their names
         if (updatedFlight.getOriginAirport() != null) {
-            flight.setOriginAirport(updatedFlight.getOriginAirport());
+            flight.setOriginAirport(airportRepository.findById(updatedFlight.getOriginAirport().getAirportId()).orElse(null));
         }
         if (updatedFlight.getDestinationAirport() != null) {
-            flight.setDestinationAirport(updatedFlight.getDestinationAirport());
+            flight.setDestinationAirport(airportRepository.findById(updatedFlight.getDestinationAirport().getAirportId()).orElse(null));
         }
         if (updatedFlight.getAirline() != null) {
-            flight.setAirline(updatedFlight.getAirline());
+            flight.setAirline(airlineRepository.findById(updatedFlight.getAirline().getAirlineId()).orElse(null));
         }
         if (updatedFlight.getAircraft() != null) {
-            flight.setAircraft(updatedFlight.getAircraft());
+            flight.setAircraft(aircraftRepository.findById(updatedFlight.getAircraft().getAircraftId()).orElse(null));
         }
 
         Flight savedFlight = flightRepository.save(flight);
+        itineraryService.flightSaved(savedFlight);
+        ratingService.flightMoved(oldAirline, oldOrigin, oldDestination, savedFlight);
         return new ResponseEntity<>(savedFlight, HttpStatus.OK);
     }
 
     // Delete flight
+    @Transactional
     @DeleteMapping("/{flightId}")
     public ResponseEntity<Void> deleteFlight(@PathVariable UUID flightId) {
         Flight flight = flightRepository.findById(flightId).orElse(null);
@@ -118,7 +210,9 @@ public class FlightController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
+        ratingService.flightDeleted(flight);
         flightRepository.delete(flight);
+        itineraryService.flightDeleted(flightId);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 }
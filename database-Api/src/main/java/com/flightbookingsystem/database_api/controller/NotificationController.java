@@ -1,16 +1,25 @@
 package com.flightbookingsystem.database_api.controller;
 
 
+import com.flightbookingsystem.database_api.dto.InboxPageDto;
 import com.flightbookingsystem.database_api.model.Customer;
 import com.flightbookingsystem.database_api.model.Notification;
+import com.flightbookingsystem.database_api.model.NotificationInbox;
 import com.flightbookingsystem.database_api.reposatories.CustomerRepository;
 import com.flightbookingsystem.database_api.reposatories.NotificationRepository;
+import com.flightbookingsystem.database_api.service.NotificationInboxService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.Base64;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,12 +29,15 @@ public class NotificationController {
 
     NotificationRepository notificationRepository;
      CustomerRepository customerRepository;
+     NotificationInboxService notificationInboxService;
 
     @Autowired
     public NotificationController(NotificationRepository notificationRepository,
-                                  CustomerRepository customerRepository) {
+                                  CustomerRepository customerRepository,
+                                  NotificationInboxService notificationInboxService) {
         this.notificationRepository = notificationRepository;
         this.customerRepository = customerRepository;
+        this.notificationInboxService = notificationInboxService;
     }
 
     // Get all notifications
@@ -34,6 +46,71 @@ public class NotificationController {
         return notificationRepository.findAll();
     }
 
+    // Inbox of a customer, newest first, size at a time, the next page starts at nextCursor
+    @GetMapping("/customer/{customerId}")
+    public ResponseEntity<InboxPageDto> getInbox(@PathVariable UUID customerId,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "20") int size,
+                                                 @RequestParam(defaultValue = "false") boolean unreadOnly) {
+        if (size < 1 || size > 100) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        // one more than the page, it tells whether there is a next page
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Notification> notifications;
+        if (cursor == null) {
+            notifications = notificationRepository.findInbox(customerId, unreadOnly, limit);
+        } else {
+            String[] position;
+            try {
+                position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                notifications = notificationRepository.findInboxAfter(customerId,
+                    Instant.parse(position[0]).atZone(ZoneOffset.UTC), UUID.fromString(position[1]), unreadOnly, limit);
+            } catch (RuntimeException e) {
+                // not a cursor this endpoint gave out
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        String nextCursor = null;
+        if (notifications.size() > size) {
+            notifications = notifications.subList(0, size);
+            Notification last = notifications.get(size - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (last.getSentAt().toInstant() + "|" + last.getNotificationId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new ResponseEntity<>(new InboxPageDto(customerId, notificationInboxService.unreadCount(customerId),
+            notifications, nextCursor), HttpStatus.OK);
+    }
+
+    // Unread count of a customer for the notification bell, one row read
+    @GetMapping("/customer/{customerId}/unread")
+    public ResponseEntity<NotificationInbox> getUnreadCount(@PathVariable UUID customerId) {
+        return new ResponseEntity<>(new NotificationInbox(customerId, notificationInboxService.unreadCount(customerId)), HttpStatus.OK);
+    }
+
+    // Mark some notifications of a customer read, ids of other customers are ignored
+    @Transactional
+    @PostMapping("/customer/{customerId}/read")
+    public ResponseEntity<NotificationInbox> markRead(@PathVariable UUID customerId,
+                                                      @RequestBody List<UUID> notificationIds) {
+        if (notificationIds.isEmpty() || notificationIds.size() > 1000) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        int read = notificationRepository.markRead(customerId, notificationIds, ZonedDateTime.now());
+        notificationInboxService.notificationsRead(customerId, read);
+        return new ResponseEntity<>(new NotificationInbox(customerId, notificationInboxService.unreadCount(customerId)), HttpStatus.OK);
+    }
+
+    // Mark every notification of a customer read
+    @Transactional
+    @PostMapping("/customer/{customerId}/read-all")
+    public ResponseEntity<NotificationInbox> markAllRead(@PathVariable UUID customerId) {
+        int read = notificationRepository.markAllRead(customerId, ZonedDateTime.now());
+        notificationInboxService.notificationsRead(customerId, read);
+        return new ResponseEntity<>(new NotificationInbox(customerId, notificationInboxService.unreadCount(customerId)), HttpStatus.OK);
+    }
+
     // Get notification by ID
     @GetMapping("/{notificationId}")
     public ResponseEntity<Notification> getNotificationById(@PathVariable UUID notificationId) {
@@ -44,7 +121,8 @@ public class NotificationController {
         return new ResponseEntity<>(notification, HttpStatus.OK);
     }
 
-    // Create new notification
+    // Create new notification, unread
+    @Transactional
     @PostMapping("/create/{customerId}")
     public ResponseEntity<Notification> createNotification(@PathVariable UUID customerId,
                                                            @RequestBody Notification notification) {
@@ -55,8 +133,10 @@ public class NotificationController {
 
         notification.setCustomer(customer);
         notification.setSentAt(ZonedDateTime.now());
+        notification.setReadAt(null);
 
         Notification savedNotification = notificationRepository.save(notification);
+        notificationInboxService.notificationCreated(customerId);
         return new ResponseEntity<>(savedNotification, HttpStatus.CREATED);
     }
 
@@ -77,15 +157,19 @@ public class NotificationController {
         return new ResponseEntity<>(savedNotification, HttpStatus.OK);
     }
 
-    // Delete notification
+    // Delete notification, the row is locked so a concurrent mark read either lands before readAt is read or finds no row
+    @Transactional
     @DeleteMapping("/{notificationId}")
     public ResponseEntity<Void> deleteNotification(@PathVariable UUID notificationId) {
-        Notification notification = notificationRepository.findById(notificationId).orElse(null);
+        Notification notification = notificationRepository.findLockedByNotificationId(notificationId).orElse(null);
         if (notification == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
         notificationRepository.delete(notification);
+        if (notification.getCustomer() != null) {
+            notificationInboxService.notificationDeleted(notification.getCustomer().getCustomerId(), notification.getReadAt() == null);
+        }
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
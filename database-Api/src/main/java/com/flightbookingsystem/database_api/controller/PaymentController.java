@@ -6,11 +6,23 @@ import com.flightbookingsystem.database_api.model.Payment;
 import com.flightbookingsystem.database_api.model.PaymentStatus;
 import com.flightbookingsystem.database_api.reposatories.BookingRepository;
 import com.flightbookingsystem.database_api.reposatories.PaymentRepository;
+import com.flightbookingsystem.database_api.service.FinanceExportService;
+import com.flightbookingsystem.database_api.service.ItineraryService;
+import com.flightbookingsystem.database_api.service.PnrService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,12 +32,21 @@ public class PaymentController {
 
      PaymentRepository paymentRepository;
      BookingRepository bookingRepository;
+     ItineraryService itineraryService;
+     PnrService pnrService;
+     FinanceExportService financeExportService;
 
     @Autowired
     public PaymentController(PaymentRepository paymentRepository,
-                             BookingRepository bookingRepository) {
+                             BookingRepository bookingRepository,
+                             ItineraryService itineraryService,
+                             PnrService pnrService,
+                             FinanceExportService financeExportService) {
         this.paymentRepository = paymentRepository;
         this.bookingRepository = bookingRepository;
+        this.itineraryService = itineraryService;
+        this.pnrService = pnrService;
+        this.financeExportService = financeExportService;
     }
 
     // Get all payments
@@ -34,6 +55,33 @@ public class PaymentController {
         return paymentRepository.findAll();
     }
 
+    // Bookings with their payments as csv for finance reconciliation, streamed while it is read
+    // bookings made from the start of from to the end of to (days in zone), optionally of one airline,
+    // archived=true adds the archived bookings of departed flights
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPayments(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                @RequestParam(required = false) UUID airlineId,
+                                                                @RequestParam(defaultValue = "UTC") String zone,
+                                                                @RequestParam(defaultValue = "false") boolean archived) {
+        ZoneId zoneId;
+        try {
+            zoneId = ZoneId.of(zone);
+        } catch (DateTimeException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (to.isBefore(from)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        StreamingResponseBody body = out -> financeExportService.writeBookingsCsv(
+            from.atStartOfDay(zoneId), to.plusDays(1).atStartOfDay(zoneId), airlineId, archived, out);
+        return ResponseEntity.ok()
+            .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payments-" + from + "-" + to + ".csv\"")
+            .body(body);
+    }
+
     // Get payment by ID
     @GetMapping("/{paymentId}")
     public ResponseEntity<Payment> getPaymentById(@PathVariable UUID paymentId) {
@@ -45,6 +93,7 @@ public class PaymentController {
     }
 
     // Create new payment
+    @Transactional
     @PostMapping("/create/{bookingId}")
     public ResponseEntity<Payment> createPayment(@PathVariable UUID bookingId,
                                                  @RequestBody Payment payment) {
@@ -57,10 +106,14 @@ public class PaymentController {
         payment.setBooking(booking);
 
         Payment savedPayment = paymentRepository.save(payment);
+        // booking owns the payment_id column, link it from that side so the payment is stored on the booking
+        booking.setPayment(savedPayment);
+        itineraryService.bookingSaved(booking);
         return new ResponseEntity<>(savedPayment, HttpStatus.CREATED);
     }
 
     // Update payment
+    @Transactional
     @PutMapping("/{paymentId}")
     public ResponseEntity<Payment> updatePayment(@PathVariable UUID paymentId,
                                                  @RequestBody Payment updatedPayment) {
@@ -80,10 +133,15 @@ public class PaymentController {
         }
 
         Payment savedPayment = paymentRepository.save(payment);
+        itineraryService.paymentSaved(savedPayment);
+        if (savedPayment.getBooking() != null) {
+            pnrService.evict(savedPayment.getBooking().getPnrNumber());
+        }
         return new ResponseEntity<>(savedPayment, HttpStatus.OK);
     }
 
     // Delete payment
+    @Transactional
     @DeleteMapping("/{paymentId}")
     public ResponseEntity<Void> deletePayment(@PathVariable UUID paymentId) {
         Payment payment = paymentRepository.findById(paymentId).orElse(null);
@@ -91,6 +149,11 @@ public class PaymentController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
+        // unlink it from the booking first, the booking holds the foreign key
+        if (payment.getBooking() != null) {
+            payment.getBooking().setPayment(null);
+        }
+        itineraryService.paymentDeleted(paymentId);
         paymentRepository.delete(payment);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
@@ -1,16 +1,33 @@
 package com.flightbookingsystem.database_api.controller;
 
 
+import com.flightbookingsystem.database_api.admission.AdmissionFilter;
+import com.flightbookingsystem.database_api.admission.AdmissionRejectedException;
+import com.flightbookingsystem.database_api.admission.AdmissionService;
+import com.flightbookingsystem.database_api.admission.AdmissionToken;
+import com.flightbookingsystem.database_api.dto.SeatMapDto;
+import com.flightbookingsystem.database_api.dto.SeatStatusDeltaDto;
+import com.flightbookingsystem.database_api.model.Aircraft;
 import com.flightbookingsystem.database_api.model.Fare;
 import com.flightbookingsystem.database_api.model.Flight;
 import com.flightbookingsystem.database_api.model.Seat;
 import com.flightbookingsystem.database_api.reposatories.FareRepository;
 import com.flightbookingsystem.database_api.reposatories.FlightRepository;
 import com.flightbookingsystem.database_api.reposatories.SeatRepository;
+import com.flightbookingsystem.database_api.service.BookingSequencer;
+import com.flightbookingsystem.database_api.service.ItineraryService;
+import com.flightbookingsystem.database_api.service.SeatEventHub;
+import com.flightbookingsystem.database_api.service.SeatLayoutService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 import java.util.List;
 import java.util.UUID;
@@ -22,20 +39,76 @@ public class SeatController {
      SeatRepository seatRepository;
      FlightRepository flightRepository;
      FareRepository fareRepository;
+     MeterRegistry meterRegistry;
+     ItineraryService itineraryService;
+     SeatLayoutService seatLayoutService;
+     SeatEventHub seatEventHub;
+     ApplicationEventPublisher eventPublisher;
+     AdmissionService admissionService;
+     BookingSequencer bookingSequencer;
+     TransactionTemplate transactionTemplate;
 
     @Autowired
     public SeatController(SeatRepository seatRepository,
                           FlightRepository flightRepository,
-                          FareRepository fareRepository) {
+                          FareRepository fareRepository,
+                          MeterRegistry meterRegistry,
+                          ItineraryService itineraryService,
+                          SeatLayoutService seatLayoutService,
+                          SeatEventHub seatEventHub,
+                          ApplicationEventPublisher eventPublisher,
+                          AdmissionService admissionService,
+                          BookingSequencer bookingSequencer,
+                          TransactionTemplate transactionTemplate) {
         this.seatRepository = seatRepository;
         this.flightRepository = flightRepository;
         this.fareRepository = fareRepository;
+        this.meterRegistry = meterRegistry;
+        this.itineraryService = itineraryService;
+        this.seatLayoutService = seatLayoutService;
+        this.seatEventHub = seatEventHub;
+        this.eventPublisher = eventPublisher;
+        this.admissionService = admissionService;
+        this.bookingSequencer = bookingSequencer;
+        this.transactionTemplate = transactionTemplate;
     }
 
-    // Get all seats
+    // Get all seats, with fare and flight
     @GetMapping
     public List<Seat> getAllSeats() {
-        return seatRepository.findAll();
+        return seatRepository.findDetailBy();
+    }
+
+    // Seat map of a flight, the compiled layout of its aircraft with the live status of every seat
+    @GetMapping("/map/{flightId}")
+    public ResponseEntity<SeatMapDto> getSeatMap(@PathVariable UUID flightId) {
+        Aircraft aircraft = flightRepository.findAircraftByFlightId(flightId).orElse(null);
+        if (aircraft == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try {
+            return new ResponseEntity<>(seatLayoutService.seatMap(flightId, aircraft), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            // the aircraft configuration was saved before layouts were checked
+            return new ResponseEntity<>(HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+    }
+
+    // Seat status changes of a flight as server-sent events (event: seat), load the seat map once subscribed
+    // event: resync means changes were missed, reload the seat map and subscribe again
+    // the flight is not looked up here, open-in-view would hold that connection for as long as the stream is open
+    @GetMapping("/stream/{flightId}")
+    public ResponseEntity<ResponseBodyEmitter> streamSeatChanges(@PathVariable UUID flightId) {
+        ResponseBodyEmitter emitter = seatEventHub.subscribe(flightId);
+        if (emitter == null) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.TEXT_EVENT_STREAM)
+            .cacheControl(CacheControl.noCache())
+            // nginx would otherwise hold the events back in its buffer
+            .header("X-Accel-Buffering", "no")
+            .body(emitter);
     }
 
     // Get seat by ID
@@ -67,19 +140,100 @@ public class SeatController {
         return new ResponseEntity<>(savedSeat, HttpStatus.CREATED);
     }
 
-    // Update seat
+    // Update seat, a hold (RESERVED) is kept for customerId, or the customer of the admission token, and only they can book the seat
     @PutMapping("/{seatId}")
     public ResponseEntity<Seat> updateSeat(@PathVariable UUID seatId,
-                                           @RequestBody Seat updatedSeat) {
-        Seat seat = seatRepository.findById(seatId).orElse(null);
+                                           @RequestBody Seat updatedSeat,
+                                           @RequestParam(required = false) UUID customerId,
+                                           @RequestAttribute(name = AdmissionFilter.ATTRIBUTE, required = false) AdmissionToken token) {
+        UUID holder = token != null && customerId == null ? token.getCustomerId() : customerId;
+        if (bookingSequencer.isEnabled() && updatedSeat.getSeatStatus() != null) {
+            return this.updateSeatInSequence(seatId, updatedSeat, holder, token);
+        }
+        if (updatedSeat.getSeatStatus() == null && token == null) {
+            return transactionTemplate.execute(status -> this.updateSeatInTransaction(seatId, updatedSeat, holder));
+        }
+
+        // admitted before the transaction opens, so requests waiting for the flight's permits hold no connection
+        UUID flightId = bookingSequencer.flightOf(seatId);
+        if (flightId == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try (AdmissionService.Permit permit = this.admit(token, flightId, holder, updatedSeat.getSeatStatus() != null)) {
+            return transactionTemplate.execute(status -> this.updateSeatInTransaction(seatId, updatedSeat, holder));
+        } catch (AdmissionRejectedException e) {
+            return e.toResponse();
+        }
+    }
+
+    // a status change is checked like the sequencer checks it. the row is locked either way, the whole row is
+    // written back and must not undo a hold or booking committed in between
+    private ResponseEntity<Seat> updateSeatInTransaction(UUID seatId, Seat updatedSeat, UUID holder) {
+        boolean changesStatus = updatedSeat.getSeatStatus() != null;
+        Seat seat = seatRepository.findLockedBySeatId(seatId).orElse(null);
         if (seat == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
+        if (changesStatus && BookingSequencer.conflict(seat, updatedSeat.getSeatStatus(), holder) != null) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+
+        return this.saveSeat(seat, updatedSeat, holder, changesStatus && updatedSeat.getSeatStatus() != seat.getSeatStatus());
+    }
+
+    // the flight's sequencer checks the status change and writes it, no connection is held while waiting
+    private ResponseEntity<Seat> updateSeatInSequence(UUID seatId, Seat updatedSeat, UUID holder, AdmissionToken token) {
+        UUID flightId = bookingSequencer.flightOf(seatId);
+        if (flightId == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        try (AdmissionService.Permit permit = this.admit(token, flightId, holder, true)) {
+            ResponseEntity<Seat> saved = bookingSequencer.execute(flightId, seatId, updatedSeat.getSeatStatus(), holder, () -> {
+                Seat seat = seatRepository.findById(seatId).orElse(null);
+                if (seat == null) {
+                    return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+                }
+                return this.saveSeat(seat, updatedSeat, holder, updatedSeat.getSeatStatus() != seat.getSeatStatus());
+            });
+            if (!saved.getStatusCode().is2xxSuccessful()) {
+                return saved;
+            }
+            // written in the sequencer's session, read again here so the answer can load what it shows
+            return new ResponseEntity<>(seatRepository.findById(seatId).orElse(null), saved.getStatusCode());
+        } catch (AdmissionRejectedException e) {
+            return e.toResponse();
+        }
+    }
+
+    // with a token AdmissionFilter already let it in, without one holds and releases are admitted like bookings
+    private AdmissionService.Permit admit(AdmissionToken token, UUID flightId, UUID customerId, boolean statusChanged) {
+        if (token != null) {
+            admissionService.checkToken(token, flightId, customerId);
+            return null;
+        }
+        if (statusChanged && flightId != null) {
+            return admissionService.acquireWithoutToken(flightId, customerId);
+        }
+        return null;
+    }
+
+    private ResponseEntity<Seat> saveSeat(Seat seat, Seat updatedSeat, UUID holder, boolean statusChanged) {
+        // count holds, bookings and releases by the status the seat moves to
+        if (statusChanged) {
+            meterRegistry.counter("seat.status.changes",
+                "from", String.valueOf(seat.getSeatStatus()),
+                "to", updatedSeat.getSeatStatus().name()).increment();
+        }
 
         seat.setSeatNumber(updatedSeat.getSeatNumber());
         seat.setSeatClass(updatedSeat.getSeatClass());
         seat.setSeatType(updatedSeat.getSeatType());
-        seat.setSeatStatus(updatedSeat.getSeatStatus());
+        // without a status the seat stays held or booked, the status and its holder only change with a status
+        if (updatedSeat.getSeatStatus() != null) {
+            seat.setSeatStatus(updatedSeat.getSeatStatus());
+            seat.setHeldBy(BookingSequencer.heldBy(updatedSeat.getSeatStatus(), holder));
+        }
 
         // Optional: update flight or fare
         if (updatedSeat.getFlight() != null) {
@@ -90,6 +244,12 @@ public class SeatController {
         }
 
         Seat savedSeat = seatRepository.save(seat);
+        itineraryService.seatSaved(savedSeat);
+        // pushed to open seat maps once the transaction commits
+        if (statusChanged && savedSeat.getFlight() != null) {
+            eventPublisher.publishEvent(new SeatStatusDeltaDto(savedSeat.getFlight().getFlightId(), savedSeat.getSeatId(),
+                savedSeat.getSeatNumber(), savedSeat.getSeatStatus(), SeatEventHub.change(savedSeat.getSeatStatus())));
+        }
         return new ResponseEntity<>(savedSeat, HttpStatus.OK);
     }
 
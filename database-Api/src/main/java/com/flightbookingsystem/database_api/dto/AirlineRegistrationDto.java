@@ -0,0 +1,18 @@
+package com.flightbookingsystem.database_api.dto;
+
+import com.flightbookingsystem.database_api.model.Airline;
+import com.flightbookingsystem.database_api.model.Employee;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AirlineRegistrationDto {
+
+    private Airline airline;
+    private Employee admin;
+
+}
@@ -0,0 +1,19 @@
+package com.flightbookingsystem.database_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * how many rows one archive run moved out of the live tables.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchiveResultDto {
+
+    private long bookings;
+    private long notifications;
+    private long feedbacks;
+
+}
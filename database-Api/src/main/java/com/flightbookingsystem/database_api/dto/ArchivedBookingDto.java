@@ -0,0 +1,39 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * a booking of a departed flight as it was archived, with its payment, seat number and flight in one row.
+ * the airline name and airport codes are copied so the row still reads right if those change later.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedBookingDto {
+
+    private UUID bookingId;
+    private String pnrNumber;
+    private ZonedDateTime bookingTime;
+    private String bookingStatus;
+    private UUID customerId;
+    private UUID flightId;
+    private ZonedDateTime departure;
+    private UUID airlineId;
+    private String airlineName;
+    private String originAirportCode;
+    private String destinationAirportCode;
+    private UUID seatId;
+    private String seatNumber;
+    private UUID paymentId;
+    private Double amount;
+    private String method;
+    private String paymentStatus;
+    private String txnReference;
+    private ZonedDateTime archivedAt;
+
+}
@@ -0,0 +1,25 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * a feedback moved to the archive.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedFeedbackDto {
+
+    private UUID feedbackId;
+    private UUID customerId;
+    private UUID flightId;
+    private Integer rating;
+    private String comments;
+    private ZonedDateTime createdAt;
+
+}
@@ -0,0 +1,26 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * a notification moved to the archive.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedNotificationDto {
+
+    private UUID notificationId;
+    private UUID customerId;
+    private String type;
+    private String message;
+    private String status;
+    private ZonedDateTime sentAt;
+    private ZonedDateTime readAt;
+
+}
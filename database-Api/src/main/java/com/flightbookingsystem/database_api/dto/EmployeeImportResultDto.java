@@ -0,0 +1,24 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * imported rows are committed. when the import stopped early, failedLine is the line of the
+ * file where it stopped and error why, both are null when every row was imported.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeImportResultDto {
+
+    private UUID airlineId;
+    private int imported;
+    private int batches;
+    private Integer failedLine;
+    private String error;
+
+}
@@ -0,0 +1,64 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * one page of a feedback comment search, best match first.
+ * total is how many feedbacks match the query and the filters. airlines and ratings are facet
+ * counts, each one applies every filter except its own, so they show what picking another airline
+ * or rating would give.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FeedbackSearchDto {
+
+    private String query;
+    private long total;
+    private int page;
+    private int size;
+    private List<Hit> results;
+    private List<AirlineCount> airlines;
+    private List<RatingCount> ratings;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Hit {
+        private UUID feedbackId;
+        private Integer rating;
+        private String comments;
+        private ZonedDateTime createdAt;
+        private UUID customerId;
+        private UUID flightId;
+        private UUID airlineId;
+        private String airlineName;
+        private String originAirportCode;
+        private String destinationAirportCode;
+        private double rank;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class AirlineCount {
+        private UUID airlineId;
+        private String airlineName;
+        private long count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RatingCount {
+        private int rating;
+        private long count;
+    }
+
+}
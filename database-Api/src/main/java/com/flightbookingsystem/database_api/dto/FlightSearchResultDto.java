@@ -0,0 +1,66 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * one row of a flight search, with the ratings of the flight, its airline and its route.
+ * the ratings come from the rating aggregates joined in the search query, counts are 0 and
+ * averages 0 when nobody rated yet.
+ */
+@Data
+@NoArgsConstructor
+public class FlightSearchResultDto {
+
+    private UUID flightId;
+    private ZonedDateTime departure;
+    private ZonedDateTime arrival;
+    private Double price;
+    private String status;
+    private UUID airlineId;
+    private String airlineName;
+    private String originAirportCode;
+    private String destinationAirportCode;
+
+    private long flightRatingCount;
+    private double flightRatingAverage;
+    private long airlineRatingCount;
+    private double airlineRatingAverage;
+    private long routeRatingCount;
+    private double routeRatingAverage;
+
+    // used by the search query, rating counts and sums are null for subjects without feedback
+    public FlightSearchResultDto(UUID flightId, ZonedDateTime departure, ZonedDateTime arrival, Double price, String status,
+                                 UUID airlineId, String airlineName, String originAirportCode, String destinationAirportCode,
+                                 Long flightRatingCount, Long flightRatingSum,
+                                 Long airlineRatingCount, Long airlineRatingSum,
+                                 Long routeRatingCount, Long routeRatingSum) {
+        this.flightId = flightId;
+        this.departure = departure;
+        this.arrival = arrival;
+        this.price = price;
+        this.status = status;
+        this.airlineId = airlineId;
+        this.airlineName = airlineName;
+        this.originAirportCode = originAirportCode;
+        this.destinationAirportCode = destinationAirportCode;
+        this.flightRatingCount = count(flightRatingCount);
+        this.flightRatingAverage = average(flightRatingCount, flightRatingSum);
+        this.airlineRatingCount = count(airlineRatingCount);
+        this.airlineRatingAverage = average(airlineRatingCount, airlineRatingSum);
+        this.routeRatingCount = count(routeRatingCount);
+        this.routeRatingAverage = average(routeRatingCount, routeRatingSum);
+    }
+
+    static long count(Long count) {
+        return count == null ? 0 : count;
+    }
+
+    static double average(Long count, Long sum) {
+        return count == null || count == 0 ? 0 : (double) sum / count;
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.flightbookingsystem.database_api.dto;
+
+import com.flightbookingsystem.database_api.model.Notification;
+
+import java.util.List;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * one page of a customer's notification inbox, newest first.
+ * nextCursor goes into the cursor parameter for the next page, it is null on the last page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InboxPageDto {
+
+    private UUID customerId;
+    private long unreadCount;
+    private List<Notification> notifications;
+    private String nextCursor;
+
+}
@@ -0,0 +1,157 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import com.flightbookingsystem.database_api.model.Aircraft;
+import com.flightbookingsystem.database_api.model.Airline;
+import com.flightbookingsystem.database_api.model.Airport;
+import com.flightbookingsystem.database_api.model.Booking;
+import com.flightbookingsystem.database_api.model.BookingStatus;
+import com.flightbookingsystem.database_api.model.Customer;
+import com.flightbookingsystem.database_api.model.Fare;
+import com.flightbookingsystem.database_api.model.Flight;
+import com.flightbookingsystem.database_api.model.Payment;
+import com.flightbookingsystem.database_api.model.PaymentStatus;
+import com.flightbookingsystem.database_api.model.Seat;
+import com.flightbookingsystem.database_api.model.SeatClass;
+import com.flightbookingsystem.database_api.model.SeatStatus;
+
+import lombok.Value;
+
+/*
+ * a booking as the PNR lookup answers it, the fields of the booking detail without the customer's
+ * password. it is copied out of the entities and never changes, so one cached instance can be
+ * handed to every request while the entities stay in the session that loaded them.
+ */
+@Value
+public class PnrBookingDto {
+
+    UUID bookingId;
+    ZonedDateTime bookingTime;
+    String pnrNumber;
+    BookingStatus bookingStatus;
+    CustomerInfo customer;
+    FlightInfo flight;
+    SeatInfo seat;
+    PaymentInfo payment;
+
+    public static PnrBookingDto of(Booking booking) {
+        return new PnrBookingDto(booking.getBookingId(), booking.getBookingTime(), booking.getPnrNumber(),
+            booking.getBookingStatus(), CustomerInfo.of(booking.getCustomer()), FlightInfo.of(booking.getFlight()),
+            SeatInfo.of(booking.getSeat()), PaymentInfo.of(booking.getPayment()));
+    }
+
+    @Value
+    public static class CustomerInfo {
+        UUID customerId;
+        String name;
+        String email;
+        String phone;
+
+        static CustomerInfo of(Customer customer) {
+            return customer == null ? null
+                : new CustomerInfo(customer.getCustomerId(), customer.getName(), customer.getEmail(), customer.getPhone());
+        }
+    }
+
+    @Value
+    public static class FlightInfo {
+        UUID flightId;
+        AirportInfo originAirport;
+        AirportInfo destinationAirport;
+        ZonedDateTime departure;
+        ZonedDateTime arrival;
+        Double price;
+        String status;
+        AirlineInfo airline;
+        AircraftInfo aircraft;
+
+        static FlightInfo of(Flight flight) {
+            return flight == null ? null
+                : new FlightInfo(flight.getFlightId(), AirportInfo.of(flight.getOriginAirport()),
+                    AirportInfo.of(flight.getDestinationAirport()), flight.getDeparture(), flight.getArrival(),
+                    flight.getPrice(), flight.getStatus(), AirlineInfo.of(flight.getAirline()), AircraftInfo.of(flight.getAircraft()));
+        }
+    }
+
+    @Value
+    public static class AirportInfo {
+        UUID airportId;
+        String airportCode;
+        String name;
+        String city;
+        String country;
+
+        static AirportInfo of(Airport airport) {
+            return airport == null ? null
+                : new AirportInfo(airport.getAirportId(), airport.getAirportCode(), airport.getName(), airport.getCity(), airport.getCountry());
+        }
+    }
+
+    @Value
+    public static class AirlineInfo {
+        UUID airlineId;
+        String name;
+
+        static AirlineInfo of(Airline airline) {
+            return airline == null ? null : new AirlineInfo(airline.getAirlineId(), airline.getName());
+        }
+    }
+
+    @Value
+    public static class AircraftInfo {
+        UUID aircraftId;
+        String aircraftNumber;
+        String type;
+
+        static AircraftInfo of(Aircraft aircraft) {
+            return aircraft == null ? null : new AircraftInfo(aircraft.getAircraftId(), aircraft.getAircraftNumber(), aircraft.getType());
+        }
+    }
+
+    @Value
+    public static class SeatInfo {
+        UUID seatId;
+        String seatNumber;
+        SeatClass seatClass;
+        String seatType;
+        SeatStatus seatStatus;
+        FareInfo fare;
+
+        static SeatInfo of(Seat seat) {
+            return seat == null ? null
+                : new SeatInfo(seat.getSeatId(), seat.getSeatNumber(), seat.getSeatClass(), seat.getSeatType(),
+                    seat.getSeatStatus(), FareInfo.of(seat.getFare()));
+        }
+    }
+
+    @Value
+    public static class FareInfo {
+        UUID fareId;
+        SeatClass seatClass;
+        Double basePrice;
+        Double tax;
+        String currency;
+
+        static FareInfo of(Fare fare) {
+            return fare == null ? null
+                : new FareInfo(fare.getFareId(), fare.getSeatClass(), fare.getBasePrice(), fare.getTax(), fare.getCurrency());
+        }
+    }
+
+    @Value
+    public static class PaymentInfo {
+        UUID paymentId;
+        Double amount;
+        String method;
+        PaymentStatus paymentStatus;
+        String txnReference;
+
+        static PaymentInfo of(Payment payment) {
+            return payment == null ? null
+                : new PaymentInfo(payment.getPaymentId(), payment.getAmount(), payment.getMethod(),
+                    payment.getPaymentStatus(), payment.getTxnReference());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * a customer's place in the waiting room of a flight.
+ * position is how many customers are still in front, admissionToken is set once it reaches 0
+ * and goes into the X-Admission-Token header of the seat hold and the booking.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class QueueTicketDto {
+
+    private UUID flightId;
+    private UUID customerId;
+    private long ticket;
+    private long position;
+    private String admissionToken;
+    private long retryAfterSeconds;
+
+}
@@ -0,0 +1,19 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * the seat a booking moves to, on the same flight or another one.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RescheduleDto {
+
+    private UUID seatId;
+
+}
@@ -0,0 +1,28 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.flightbookingsystem.database_api.model.Booking;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * a booking after it moved to its new seat. fareDifference is what the new seat costs more than the
+ * old one, taken from the wallet, or less, paid back to it when negative. walletBalance is the
+ * balance after that. oldFlightId is the flight the booking left, not sent.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RescheduleResultDto {
+
+    private Booking booking;
+    private double fareDifference;
+    private Double walletBalance;
+    @JsonIgnore
+    private UUID oldFlightId;
+
+}
@@ -0,0 +1,39 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * one line of a seasonal timetable, e.g. DEL -> HYD daily 06:00 on aircraft X from startDate to endDate.
+ * daysOfWeek empty means every day, departureTime is local time in timeZone (UTC when not given).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScheduleEntryDto {
+
+    private UUID originId;
+    private UUID destinationId;
+    private UUID aircraftId;
+
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private List<DayOfWeek> daysOfWeek;
+    private LocalTime departureTime;
+    private String timeZone;
+    private Integer durationMinutes;
+
+    private Double price;
+    private String status;
+
+    // optional, the same seats are created on every flight
+    private List<SeatTemplateDto> seats;
+
+}
@@ -0,0 +1,34 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.flightbookingsystem.database_api.model.SeatLayout;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * seat map of one flight: the cached layout of its aircraft and the live status of its seats.
+ * seatRows has one text per layout row with one letter per seat, A available, B booked, R reserved,
+ * X blocked, '.' for a seat the flight does not have, and '-' for an aisle, e.g. "AAB-.AX".
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatMapDto {
+
+    private UUID flightId;
+    private String aircraftNumber;
+    private SeatLayout layout;
+    private List<String> seatRows;
+
+    // ids of the seats that can be booked, by seat number
+    private Map<String, UUID> availableSeatIds;
+
+    // seats of the flight whose number is not in the layout
+    private int unplacedSeats;
+
+}
@@ -0,0 +1,26 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.util.UUID;
+
+import com.flightbookingsystem.database_api.model.SeatStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * one seat of a flight changed status, pushed to everyone watching the flight (SeatEventHub).
+ * change is what happened to the seat: held, booked, released or blocked.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatStatusDeltaDto {
+
+    private UUID flightId;
+    private UUID seatId;
+    private String seatNumber;
+    private SeatStatus seatStatus;
+    private String change;
+
+}
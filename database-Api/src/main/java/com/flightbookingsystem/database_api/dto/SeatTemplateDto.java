@@ -0,0 +1,22 @@
+package com.flightbookingsystem.database_api.dto;
+
+import java.util.UUID;
+
+import com.flightbookingsystem.database_api.model.SeatClass;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one seat that is created on every flight of a schedule entry
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatTemplateDto {
+
+    private String seatNumber;
+    private SeatClass seatClass;
+    private String seatType;
+    private UUID fareId;
+
+}
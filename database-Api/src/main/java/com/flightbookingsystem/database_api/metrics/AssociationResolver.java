@@ -0,0 +1,113 @@
+package com.flightbookingsystem.database_api.metrics;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.MappingMetamodel;
+import org.hibernate.metamodel.mapping.internal.ToOneAttributeMapping;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * this class is responsible for naming the association behind a repeated sql statement.
+ * a lazy collection load reads "from flight f1_0 where f1_0.airline_id=?", which is Airline.flights,
+ * a to-one load reads "from airline a1_0 where a1_0.airline_id=?", which is Airline by id reached
+ * through Flight.airline, Aircraft.airline or Employee.airline.
+ * the table and column names come from the hibernate metamodel, built on first use.
+ */
+
+@Component
+public class AssociationResolver {
+
+    static final Pattern LOAD_BY_KEY = Pattern.compile(
+        "\\bfrom\\s+(\\w+)\\s+(\\w+)\\b.*?\\bwhere\\s+\\2\\.(\\w+)\\s*(=\\s*\\?|in\\s*\\()",
+        Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    // "table.column" -> association
+    volatile Map<String, String> associations;
+
+    // hibernate asks for QueryCountInspector while building the entity manager factory,
+    // so the factory is looked up lazily
+    @Autowired
+    public AssociationResolver(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * This method is responsible for naming the association an sql statement loads
+     * @param sql
+     * @return association like Airline.flights, or null when the statement is not a load by key
+     */
+    public String resolve(String sql) {
+        Matcher matcher = LOAD_BY_KEY.matcher(sql);
+        if (!matcher.find()) {
+            return null;
+        }
+        String key = (matcher.group(1) + "." + matcher.group(3)).toLowerCase(Locale.ROOT);
+        return this.associations().get(key);
+    }
+
+    private Map<String, String> associations() {
+        if (associations == null) {
+            associations = this.buildAssociations();
+        }
+        return associations;
+    }
+
+    private Map<String, String> buildAssociations() {
+        MappingMetamodel metamodel = entityManagerFactory.getObject()
+            .unwrap(SessionFactoryImplementor.class)
+            .getMappingMetamodel();
+        Map<String, String> byKey = new HashMap<>();
+
+        // one-to-many collections, keyed by the foreign key column on the element table
+        metamodel.forEachCollectionDescriptor(collection -> {
+            if (collection instanceof AbstractCollectionPersister persister) {
+                String role = persister.getRole();
+                String shortRole = role.substring(role.lastIndexOf('.', role.lastIndexOf('.') - 1) + 1);
+                byKey.put(this.key(persister.getTableName(), persister.getKeyColumnNames()[0]), shortRole);
+            }
+        });
+
+        // to-one associations, keyed by the primary key of the target table
+        Map<String, TreeSet<String>> referencedBy = new HashMap<>();
+        metamodel.forEachEntityDescriptor(entity -> entity.forEachAttributeMapping(attribute -> {
+            if (attribute instanceof ToOneAttributeMapping toOne) {
+                String target = toOne.getAssociatedEntityMappingType().getEntityName();
+                referencedBy.computeIfAbsent(target, name -> new TreeSet<>())
+                    .add(this.simpleName(entity.getEntityName()) + "." + toOne.getAttributeName());
+            }
+        }));
+        metamodel.forEachEntityDescriptor(entity -> {
+            if (entity instanceof AbstractEntityPersister persister) {
+                String description = this.simpleName(entity.getEntityName()) + " by id";
+                TreeSet<String> via = referencedBy.get(entity.getEntityName());
+                if (via != null) {
+                    description += " via " + String.join(" / ", List.copyOf(via));
+                }
+                byKey.putIfAbsent(this.key(persister.getTableName(), persister.getIdentifierColumnNames()[0]), description);
+            }
+        });
+        return byKey;
+    }
+
+    private String key(String table, String column) {
+        return (table + "." + column).toLowerCase(Locale.ROOT);
+    }
+
+    private String simpleName(String entityName) {
+        return entityName.substring(entityName.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,79 @@
+package com.flightbookingsystem.database_api.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/*
+ * this class is responsible for recording how many sql statements every request ran.
+ * published as db.queries.per.request, tagged with the same uri template as http.server.requests,
+ * so a route whose count grows with the size of the result shows up next to its latency.
+ * requests over sql.budget.max-queries-per-request are logged (sql.budget.mode=LOG)
+ * or stopped with SqlBudgetExceededException (sql.budget.mode=FAIL).
+ */
+
+@Component
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    static final Logger log = LoggerFactory.getLogger(QueryCountFilter.class);
+
+    public enum BudgetMode { OFF, LOG, FAIL }
+
+    MeterRegistry meterRegistry;
+    QueryCountInspector queryCountInspector;
+    int budget;
+    BudgetMode budgetMode;
+
+    @Autowired
+    public QueryCountFilter(MeterRegistry meterRegistry,
+                            QueryCountInspector queryCountInspector,
+                            @Value("${sql.budget.max-queries-per-request:50}") int budget,
+                            @Value("${sql.budget.mode:LOG}") BudgetMode budgetMode) {
+        this.meterRegistry = meterRegistry;
+        this.queryCountInspector = queryCountInspector;
+        this.budget = budget;
+        this.budgetMode = budgetMode;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        // a test already counts this thread with assertAtMost
+        if (queryCountInspector.isCounting()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        queryCountInspector.start(budget, budgetMode == BudgetMode.FAIL);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryStats stats = queryCountInspector.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            DistributionSummary.builder("db.queries.per.request")
+                .description("sql statements run while serving one request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(stats.getTotal());
+            if (budgetMode != BudgetMode.OFF && stats.isOverBudget()) {
+                log.warn("{} {} over sql budget: {}", request.getMethod(), uri, queryCountInspector.describe(stats));
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.flightbookingsystem.database_api.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+ * this class is responsible for counting the sql statements hibernate runs on the current thread.
+ * it registers itself as hibernate's statement inspector. QueryCountFilter opens a count per request,
+ * tests open one with assertAtMost, statements run outside an open count are not recorded.
+ */
+
+@Component
+public class QueryCountInspector implements StatementInspector, HibernatePropertiesCustomizer {
+
+    static final int REPORTED_OFFENDERS = 5;
+
+    ThreadLocal<QueryStats> current = new ThreadLocal<>();
+    AssociationResolver associationResolver;
+
+    @Autowired
+    public QueryCountInspector(AssociationResolver associationResolver) {
+        this.associationResolver = associationResolver;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        QueryStats stats = current.get();
+        if (stats != null) {
+            stats.record(sql);
+            // fail once, on the statement that crosses the budget
+            if (stats.failOnBudget && stats.total == stats.budget + 1) {
+                throw new SqlBudgetExceededException(this.describe(stats));
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * This method is responsible for starting a count on this thread
+     * @param budget statements allowed before the count is over budget
+     * @param failOnBudget throw SqlBudgetExceededException on the first statement over budget
+     * @return QueryStats filled while the count is open
+     */
+    public QueryStats start(int budget, boolean failOnBudget) {
+        QueryStats stats = new QueryStats(budget, failOnBudget);
+        current.set(stats);
+        return stats;
+    }
+
+    // stop counting on this thread and return what was counted since start
+    public QueryStats stop() {
+        QueryStats stats = current.get();
+        current.remove();
+        return stats;
+    }
+
+    public boolean isCounting() {
+        return current.get() != null;
+    }
+
+    /**
+     * Test helper, fails with an AssertionError naming the repeated associations
+     * when work runs more than maxQueries statements.
+     *   queryCountInspector.assertAtMost(2, () -> mockMvc.perform(get("/api/v1/db/booking/{id}", bookingId)));
+     * requests made inside work are counted here, QueryCountFilter does not open its own count.
+     * @param maxQueries
+     * @param work
+     * @return QueryStats of work
+     */
+    public QueryStats assertAtMost(int maxQueries, CheckedRunnable work) {
+        QueryStats stats = this.start(maxQueries, false);
+        try {
+            work.run();
+        } catch (Exception e) {
+            throw new IllegalStateException("work failed after " + stats.total + " sql statements", e);
+        } finally {
+            this.stop();
+        }
+        if (stats.isOverBudget()) {
+            throw new AssertionError(this.describe(stats));
+        }
+        return stats;
+    }
+
+    /**
+     * This method is responsible for describing a count for logs and errors
+     *   57 sql statements, budget 20. repeated: Airline.flights x40, Aircraft by id via Flight.aircraft x12
+     * @param stats
+     * @return String
+     */
+    public String describe(QueryStats stats) {
+        StringBuilder description = new StringBuilder()
+            .append(stats.total).append(" sql statements, budget ").append(stats.budget).append('.');
+        List<Map.Entry<String, Integer>> repeated = stats.getRepeatedStatements();
+        if (repeated.isEmpty()) {
+            return description.toString();
+        }
+        description.append(" repeated: ");
+        for (int i = 0; i < Math.min(REPORTED_OFFENDERS, repeated.size()); i++) {
+            Map.Entry<String, Integer> statement = repeated.get(i);
+            String association = associationResolver.resolve(statement.getKey());
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append(association != null ? association : "[" + statement.getKey() + "]")
+                .append(" x").append(statement.getValue());
+        }
+        return description.toString();
+    }
+
+    @FunctionalInterface
+    public interface CheckedRunnable {
+        void run() throws Exception;
+    }
+}
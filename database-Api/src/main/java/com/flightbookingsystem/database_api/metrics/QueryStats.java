@@ -0,0 +1,55 @@
+package com.flightbookingsystem.database_api.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * sql statements counted for one request (or one test block), see QueryCountInspector.
+ * the same statement text run many times is the signature of an n+1, hibernate only changes the
+ * bound parameters between the loads of one association.
+ */
+
+public class QueryStats {
+
+    int budget;
+    boolean failOnBudget;
+    int total;
+    Map<String, Integer> statements = new HashMap<>();
+
+    QueryStats(int budget, boolean failOnBudget) {
+        this.budget = budget;
+        this.failOnBudget = failOnBudget;
+    }
+
+    void record(String sql) {
+        total++;
+        statements.merge(sql, 1, Integer::sum);
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public boolean isOverBudget() {
+        return total > budget;
+    }
+
+    // statements that ran more than once, the most repeated first
+    public List<Map.Entry<String, Integer>> getRepeatedStatements() {
+        List<Map.Entry<String, Integer>> repeated = new ArrayList<>();
+        for (Map.Entry<String, Integer> statement : statements.entrySet()) {
+            if (statement.getValue() > 1) {
+                repeated.add(statement);
+            }
+        }
+        repeated.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()));
+        return repeated;
+    }
+}
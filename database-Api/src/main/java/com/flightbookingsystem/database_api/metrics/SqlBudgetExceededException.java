@@ -0,0 +1,13 @@
+package com.flightbookingsystem.database_api.metrics;
+
+/*
+ * thrown by QueryCountInspector when sql.budget.mode=FAIL and a request runs more statements than
+ * sql.budget.max-queries-per-request. the message names the associations that were loaded one by one.
+ */
+
+public class SqlBudgetExceededException extends RuntimeException {
+
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
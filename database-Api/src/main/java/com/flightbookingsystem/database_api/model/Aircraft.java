@@ -1,6 +1,7 @@
 package com.flightbookingsystem.database_api.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -13,6 +14,7 @@ import java.util.UUID;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Aircraft {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -23,8 +25,9 @@ public class Aircraft {
     private Integer capacity;
     private String configuration;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "airline_id")
+    @JsonIgnoreProperties({"employees", "aircrafts", "flights"})
     private Airline airline;
 
     @OneToMany(mappedBy = "aircraft", cascade = CascadeType.ALL)
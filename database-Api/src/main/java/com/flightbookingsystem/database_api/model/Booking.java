@@ -3,16 +3,24 @@ package com.flightbookingsystem.database_api.model;
 import java.time.ZonedDateTime;
 import java.util.UUID;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -21,34 +29,57 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_booking_pnr", columnList = "pnr_number", unique = true),
+    // date range of the finance export
+    @Index(name = "idx_booking_time", columnList = "booking_time")
+})
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@NamedEntityGraph(
+    name = "Booking.detail",
+    attributeNodes = {
+        @NamedAttributeNode("customer"),
+        @NamedAttributeNode(value = "flight", subgraph = "flight"),
+        @NamedAttributeNode(value = "seat", subgraph = "seat"),
+        @NamedAttributeNode("payment")
+    },
+    subgraphs = {
+        @NamedSubgraph(name = "flight", attributeNodes = {
+            @NamedAttributeNode("airline"),
+            @NamedAttributeNode("aircraft"),
+            @NamedAttributeNode("originAirport"),
+            @NamedAttributeNode("destinationAirport")
+        }),
+        @NamedSubgraph(name = "seat", attributeNodes = @NamedAttributeNode("fare"))
+    }
+)
 public class Booking {
     @Id
-    @org.hibernate.annotations.GenericGenerator(
-        name = "UUID",
-        strategy = "org.hibernate.id.UUIDGenerator"
-    )
-    @jakarta.persistence.GeneratedValue(generator = "UUID")  
+    @org.hibernate.annotations.UuidGenerator(algorithm = TimeOrderedUuidGenerator.class)
     private UUID bookingId;
 
     private ZonedDateTime bookingTime;
+    // set by PnrService when the booking is created, never changed
     private String pnrNumber;
 
     @Enumerated(EnumType.STRING)
     private BookingStatus bookingStatus;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id")
     private Customer customer;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "flight_id")
+    @JsonIgnoreProperties({"seats"})
     private Flight flight;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seat_id")
+    @JsonIgnoreProperties({"flight"})
     private Seat seat;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "payment_id")
     private Payment payment;
 
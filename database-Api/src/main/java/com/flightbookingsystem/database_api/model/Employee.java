@@ -3,6 +3,8 @@ package com.flightbookingsystem.database_api.model;
 
 import java.util.UUID;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -29,8 +31,10 @@ public class Employee {
 
     private String status;
 
-    @ManyToOne
+    // the airline is returned without its collections, otherwise airline -> employees -> airline never ends
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "airline_id")
+    @JsonIgnoreProperties({"employees", "aircrafts", "flights"})
     private Airline airline;
 
 }
@@ -4,6 +4,8 @@ package com.flightbookingsystem.database_api.model;
 import com.flightbookingsystem.database_api.reposatories.CustomerRepository;
 import com.flightbookingsystem.database_api.reposatories.FeedBackRepository;
 import com.flightbookingsystem.database_api.reposatories.FlightRepository;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -21,16 +23,33 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+// the archive job looks up departed flights by departure
+@Table(indexes = @Index(name = "idx_flight_departure", columnList = "departure"))
+@NamedEntityGraph(
+    name = "Flight.detail",
+    attributeNodes = {
+        @NamedAttributeNode("airline"),
+        @NamedAttributeNode("aircraft"),
+        @NamedAttributeNode("originAirport"),
+        @NamedAttributeNode("destinationAirport"),
+        @NamedAttributeNode(value = "seats", subgraph = "seat")
+    },
+    subgraphs = @NamedSubgraph(name = "seat", attributeNodes = {
+        @NamedAttributeNode("fare"),
+        @NamedAttributeNode("booking")
+    })
+)
 public class Flight {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private UUID flightId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "origin_airport_id")
     private Airport originAirport;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "destination_airport_id")
     private Airport destinationAirport;
 
@@ -40,23 +59,30 @@ public class Flight {
     private Double price;
     private String status;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "airline_id")
+    @JsonIgnoreProperties({"employees", "aircrafts", "flights"})
     private Airline airline;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "aircraft_id")
+    @JsonIgnoreProperties({"airline", "flights"})
     private Aircraft aircraft;
 
     @OneToMany(mappedBy = "flight", cascade = CascadeType.ALL)
+    @JsonIgnoreProperties({"flight"})
     private List<Seat> seats;
 
+    // bookings, feedbacks and waitlists have their own endpoints, they are not sent with the flight
+    @JsonIgnore
     @OneToMany(mappedBy = "flight", cascade = CascadeType.ALL)
     private List<Booking> bookings;
 
+    @JsonIgnore
     @OneToMany(mappedBy = "flight", cascade = CascadeType.ALL)
     private List<FeedBack> feedbacks;
 
+    @JsonIgnore
     @OneToMany(mappedBy = "flight", cascade = CascadeType.ALL)
     private List<WaitList> waitlists;
 }
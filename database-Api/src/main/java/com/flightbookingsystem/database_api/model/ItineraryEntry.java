@@ -0,0 +1,61 @@
+package com.flightbookingsystem.database_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/*
+ * read model of "my bookings", one row per booking with everything the page shows.
+ * written by ItineraryService whenever a booking, its payment, seat or flight changes,
+ * read by customer id in one indexed query.
+ */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "customer_itinerary",
+       indexes = @Index(name = "idx_itinerary_customer_departure", columnList = "customer_id, departure"))
+public class ItineraryEntry {
+    @Id
+    private UUID bookingId;
+
+    private UUID customerId;
+
+    private String pnrNumber;
+
+    @Enumerated(EnumType.STRING)
+    private BookingStatus bookingStatus;
+
+    private ZonedDateTime bookingTime;
+
+    // flight
+    private UUID flightId;
+    private ZonedDateTime departure;
+    private ZonedDateTime arrival;
+    private String flightStatus;
+    private String airlineName;
+    private String originAirportCode;
+    private String originCity;
+    private String destinationAirportCode;
+    private String destinationCity;
+
+    // seat
+    private UUID seatId;
+    private String seatNumber;
+
+    @Enumerated(EnumType.STRING)
+    private SeatClass seatClass;
+
+    // payment
+    private UUID paymentId;
+    private Double amount;
+    private String paymentMethod;
+
+    @Enumerated(EnumType.STRING)
+    private PaymentStatus paymentStatus;
+}
@@ -2,11 +2,13 @@ package com.flightbookingsystem.database_api.model;
 
 
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.UuidGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -18,9 +20,14 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_notification_sent_at", columnList = "sent_at"),
+    // the inbox, newest first per customer
+    @Index(name = "idx_notification_customer_sent", columnList = "customer_id, sent_at, notification_id")
+})
 public class Notification {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidGenerator(algorithm = TimeOrderedUuidGenerator.class)
     private UUID notificationId;
 
     private String type;
@@ -28,7 +35,10 @@ public class Notification {
     private ZonedDateTime sentAt;
     private String status;
 
-    @ManyToOne
+    // null while unread, set by the inbox mark-read endpoints
+    private ZonedDateTime readAt;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id")
     private Customer customer;
 
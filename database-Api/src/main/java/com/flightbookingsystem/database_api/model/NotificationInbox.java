@@ -0,0 +1,29 @@
+package com.flightbookingsystem.database_api.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/*
+ * the unread notification count of a customer, what the notification bell shows.
+ * kept by NotificationInboxService in the same transaction as every notification write,
+ * so the bell is one row read instead of counting notifications.
+ */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "notification_inbox")
+public class NotificationInbox {
+    @Id
+    private UUID customerId;
+
+    private long unreadCount;
+
+}
@@ -0,0 +1,53 @@
+package com.flightbookingsystem.database_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/*
+ * running rating totals of a flight, an airline or a route (origin airport -> destination airport).
+ * kept by RatingService in the same transaction as every feedback write, so "4.3 from 12k reviews"
+ * is one row instead of every feedback. starsN is how many feedbacks gave N stars.
+ */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "rating_aggregate")
+@IdClass(RatingAggregateId.class)
+public class RatingAggregate {
+    @Id
+    @Enumerated(EnumType.STRING)
+    private RatingScope scope;
+
+    // flight, airline or origin airport id
+    @Id
+    private UUID subjectId;
+
+    // destination airport id of a route, RatingAggregateId.NONE otherwise
+    @Id
+    private UUID otherId;
+
+    private long ratingCount;
+    private long ratingSum;
+
+    private long stars1;
+    private long stars2;
+    private long stars3;
+    private long stars4;
+    private long stars5;
+
+    public RatingAggregate(RatingAggregateId id) {
+        this.scope = id.getScope();
+        this.subjectId = id.getSubjectId();
+        this.otherId = id.getOtherId();
+    }
+
+    public double getAverage() {
+        return ratingCount == 0 ? 0 : (double) ratingSum / ratingCount;
+    }
+}
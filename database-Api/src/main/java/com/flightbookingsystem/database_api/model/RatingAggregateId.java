@@ -0,0 +1,22 @@
+package com.flightbookingsystem.database_api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingAggregateId implements Serializable {
+
+    // otherId of flights and airlines, a route has its destination airport there
+    public static final UUID NONE = new UUID(0, 0);
+
+    private RatingScope scope;
+    private UUID subjectId;
+    private UUID otherId;
+
+}
@@ -0,0 +1,7 @@
+package com.flightbookingsystem.database_api.model;
+
+public enum RatingScope {
+    FLIGHT,
+    AIRLINE,
+    ROUTE
+}
@@ -0,0 +1,52 @@
+package com.flightbookingsystem.database_api.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.UuidGenerator;
+import org.hibernate.type.SqlTypes;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/*
+ * one run of a seasonal schedule import (ScheduleImportService).
+ * the timetable is kept with the run, and importedFlights is moved forward in the same transaction
+ * as every chunk of flights, so a stopped import carries on from the first flight it did not write.
+ */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "schedule_import")
+public class ScheduleImport {
+    @Id
+    @UuidGenerator(algorithm = TimeOrderedUuidGenerator.class)
+    private UUID importId;
+
+    private UUID airlineId;
+
+    @Enumerated(EnumType.STRING)
+    private ScheduleImportStatus status;
+
+    // the schedule entries as sent, read again when the import is resumed
+    @JsonIgnore
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String timetable;
+
+    private int totalFlights;
+    private int importedFlights;
+    private long importedSeats;
+    private int chunks;
+
+    // why the import was rejected or stopped, one problem per line
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String error;
+
+    private ZonedDateTime createdAt;
+    private ZonedDateTime updatedAt;
+}
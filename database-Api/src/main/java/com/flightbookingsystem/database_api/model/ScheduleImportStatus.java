@@ -0,0 +1,8 @@
+package com.flightbookingsystem.database_api.model;
+
+public enum ScheduleImportStatus {
+    REJECTED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -3,7 +3,10 @@ package com.flightbookingsystem.database_api.model;
 
 import java.util.UUID;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.UuidGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,9 +15,24 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@NamedEntityGraph(
+    name = "Seat.detail",
+    attributeNodes = {
+        @NamedAttributeNode("fare"),
+        @NamedAttributeNode("booking"),
+        @NamedAttributeNode(value = "flight", subgraph = "flight")
+    },
+    subgraphs = @NamedSubgraph(name = "flight", attributeNodes = {
+        @NamedAttributeNode("airline"),
+        @NamedAttributeNode("aircraft"),
+        @NamedAttributeNode("originAirport"),
+        @NamedAttributeNode("destinationAirport")
+    })
+)
 public class Seat {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidGenerator(algorithm = TimeOrderedUuidGenerator.class)
     private UUID seatId;
 
     private String seatNumber;
@@ -24,17 +42,24 @@ public class Seat {
 
     private String seatType;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "fare_id")
     private Fare fare;
 
     @Enumerated(EnumType.STRING)
     private SeatStatus seatStatus;
 
-    @ManyToOne
+    // the customer holding the seat while it is RESERVED, only they can book it
+    @JsonIgnore
+    private UUID heldBy;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "flight_id")
+    @JsonIgnoreProperties({"seats"})
     private Flight flight;
 
+    // inverse side, hibernate loads it with the seat, fetch it in the same query (see Flight.detail)
+    @JsonIgnore
     @OneToOne(mappedBy = "seat", cascade = CascadeType.ALL)
     private Booking booking;
 
@@ -0,0 +1,42 @@
+package com.flightbookingsystem.database_api.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+ * the seat map of an aircraft, compiled once from Aircraft.configuration by SeatLayoutService.
+ * it never changes after it is built, so one instance is shared by every request for that configuration.
+ *
+ * columns are written per cabin with '-' for an aisle, e.g. "ABC-DEF", and positions has one letter per
+ * column in the same places, W window, M middle, A aisle, e.g. "WMA-AMW".
+ */
+
+@Value
+public class SeatLayout {
+
+    List<Cabin> cabins;
+    // every row that has seats, front to back
+    List<Integer> rows;
+    List<Integer> exitRows;
+    int seatCount;
+
+    // "12A" -> {index in rows, index in the row text}, so live seats are placed without parsing their numbers
+    @JsonIgnore
+    Map<String, int[]> seatIndex;
+
+    // one text per row with '.' for every seat and '-' for every aisle, copied and filled in for a seat map
+    @JsonIgnore
+    List<String> emptyRows;
+
+    @Value
+    public static class Cabin {
+        SeatClass seatClass;
+        int firstRow;
+        int lastRow;
+        String columns;
+        String positions;
+    }
+}
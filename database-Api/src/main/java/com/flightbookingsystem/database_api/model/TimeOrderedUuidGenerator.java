@@ -0,0 +1,62 @@
+package com.flightbookingsystem.database_api.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * this class makes time ordered (version 7) UUIDs for primary keys.
+ *
+ * random (version 4) keys land on a random page of the primary key index, so on busy booking days
+ * every insert touches a different page and the index splits and bloats. a version 7 key starts with
+ * the unix time in milliseconds, so new keys always go to the right edge of the index like a sequence
+ * would, while the last 62 bits stay random so ids can still not be guessed.
+ *
+ * the 12 bits after the version are a counter, so keys made in the same millisecond keep their order.
+ * when the counter runs over it borrows the next millisecond, the clock catches up a moment later.
+ *
+ * an entity opts in with @UuidGenerator(algorithm = TimeOrderedUuidGenerator.class) on its id,
+ * entities without it keep the random keys from GenerationType.AUTO.
+ */
+
+public class TimeOrderedUuidGenerator implements UuidValueGenerator {
+
+    static final long VERSION = 0x7000L;
+    static final long VARIANT = 0x8000000000000000L;
+    static final int COUNTER_BITS = 12;
+
+    static final SecureRandom RANDOM = new SecureRandom();
+
+    // unix millis << 12 | counter of the last key, shared so keys stay ordered across all entities
+    static final AtomicLong LAST = new AtomicLong();
+
+    @Override
+    public UUID generateUuid(SharedSessionContractImplementor session) {
+        return next();
+    }
+
+    public static UUID next() {
+        return next(System.currentTimeMillis());
+    }
+
+    static UUID next(long nowMillis) {
+        long now = nowMillis << COUNTER_BITS;
+        long stamp = LAST.updateAndGet(last -> Math.max(last + 1, now));
+        return build(stamp >>> COUNTER_BITS, stamp & ((1 << COUNTER_BITS) - 1), RANDOM.nextLong());
+    }
+
+    static UUID build(long millis, long counter, long random) {
+        long mostSigBits = (millis & 0xFFFFFFFFFFFFL) << 16 | VERSION | counter;
+        long leastSigBits = random >>> 2 | VARIANT;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    // the creation time written in a version 7 key, handy when looking at rows by hand
+    public static long timestampMillis(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+}
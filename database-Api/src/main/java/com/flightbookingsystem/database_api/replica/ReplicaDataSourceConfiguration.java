@@ -0,0 +1,75 @@
+package com.flightbookingsystem.database_api.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/*
+ * this class is responsible for the data sources when a read replica is configured (spring.datasource.replica.url).
+ * the primary keeps spring.datasource.* and spring.datasource.hikari.*, the replica gets its own pool from
+ * spring.datasource.replica.* and spring.datasource.replica.hikari.*, and everything that asks for a DataSource
+ * gets the routing one. without spring.datasource.replica.url spring boot makes the single data source as before.
+ */
+
+@Configuration
+@ConditionalOnProperty("spring.datasource.replica.url")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(Environment environment) {
+        // bound by hand, a second DataSourceProperties bean would confuse everything that injects the first
+        DataSourceProperties properties = Binder.get(environment).bind("spring.datasource.replica", DataSourceProperties.class).get();
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(ReplicaRoutingDataSource.REPLICA);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource();
+        dataSource.setTargetDataSources(Map.of(ReplicaRoutingDataSource.PRIMARY, primaryDataSource,
+            ReplicaRoutingDataSource.REPLICA, replicaDataSource));
+        dataSource.setDefaultTargetDataSource(primaryDataSource);
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+
+    // streamed answers (the finance export) are written on the async executor, they keep the route of their request
+    @Bean
+    public TaskDecorator replicaRouteTaskDecorator() {
+        return task -> {
+            String route = ReplicaRoutingDataSource.current();
+            return () -> {
+                ReplicaRoutingDataSource.use(route);
+                try {
+                    task.run();
+                } finally {
+                    ReplicaRoutingDataSource.clear();
+                }
+            };
+        };
+    }
+}
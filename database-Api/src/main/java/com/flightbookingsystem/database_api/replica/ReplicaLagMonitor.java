@@ -0,0 +1,141 @@
+package com.flightbookingsystem.database_api.replica;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * this class is responsible for knowing how far the read replica is behind the primary.
+ *
+ * positions are postgres wal lsns ("16/B374D848") read as one number. every poll-millis it reads the
+ * primary's current lsn and the lsn the replica has replayed. a read may go to the replica when the
+ * replica answered the last polls, is at most max-lag-bytes behind, and has replayed the session lsn of
+ * the client, the primary's lsn right after the client's last write. otherwise it goes to the primary.
+ */
+
+@Component
+@ConditionalOnProperty("spring.datasource.replica.url")
+public class ReplicaLagMonitor {
+
+    static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    JdbcTemplate primary;
+    JdbcTemplate replica;
+    EntityManagerFactory entityManagerFactory;
+    String primaryLsnSql;
+    String replicaLsnSql;
+    long maxLagBytes;
+    long staleAfterMillis;
+
+    volatile long primaryLsn;
+    volatile long replicaLsn = -1;
+    volatile long replicaSeenAt;
+
+    ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor();
+
+    @Autowired
+    public ReplicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                             @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                             EntityManagerFactory entityManagerFactory,
+                             MeterRegistry meterRegistry,
+                             @Value("${replica.primary-lsn-sql:select pg_current_wal_lsn()::text}") String primaryLsnSql,
+                             @Value("${replica.replica-lsn-sql:select pg_last_wal_replay_lsn()::text}") String replicaLsnSql,
+                             @Value("${replica.max-lag-bytes:16777216}") long maxLagBytes,
+                             @Value("${replica.poll-millis:100}") long pollMillis) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.entityManagerFactory = entityManagerFactory;
+        this.primaryLsnSql = primaryLsnSql;
+        this.replicaLsnSql = replicaLsnSql;
+        this.maxLagBytes = maxLagBytes;
+        // a replica that missed a few polls in a row is treated as down
+        this.staleAfterMillis = pollMillis * 5;
+
+        meterRegistry.gauge("datasource.replica.lag.bytes", this, monitor -> monitor.replicaLsn < 0 ? -1 : monitor.primaryLsn - monitor.replicaLsn);
+        poller.scheduleWithFixedDelay(this::poll, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This method is responsible for deciding if a read can be served by the replica
+     * @param sessionLsn the client's X-Session-Lsn, null when it has not written anything
+     * @return true when the replica is up, close enough and has the client's writes
+     */
+    public boolean canServe(Long sessionLsn) {
+        if (replicaLsn < 0 || System.currentTimeMillis() - replicaSeenAt > staleAfterMillis) {
+            return false;
+        }
+        if (primaryLsn - replicaLsn > maxLagBytes) {
+            return false;
+        }
+        return sessionLsn == null || replicaLsn >= sessionLsn;
+    }
+
+    /**
+     * This method is responsible for the primary's lsn now, read after a write has committed so it covers the write.
+     * while the request's EntityManager is open (open-in-view) it is read on the connection that EntityManager holds,
+     * taking a second one from the primary pool could wait for connections that are held the same way
+     * @return lsn like 16/B374D848
+     */
+    public String currentPrimaryLsn() {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(entityManagerFactory);
+        if (holder == null) {
+            return primary.queryForObject(primaryLsnSql, String.class);
+        }
+        return holder.getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement(); ResultSet row = statement.executeQuery(primaryLsnSql)) {
+                return row.next() ? row.getString(1) : null;
+            }
+        });
+    }
+
+    private void poll() {
+        try {
+            primaryLsn = parse(primary.queryForObject(primaryLsnSql, String.class));
+        } catch (DataAccessException | IllegalArgumentException e) {
+            log.debug("Could not read the primary lsn", e);
+        }
+        try {
+            String lsn = replica.queryForObject(replicaLsnSql, String.class);
+            // null when the database is not a replica
+            if (lsn != null) {
+                replicaLsn = parse(lsn);
+                replicaSeenAt = System.currentTimeMillis();
+            }
+        } catch (DataAccessException | IllegalArgumentException e) {
+            log.debug("Could not read the replica lsn", e);
+        }
+    }
+
+    // "16/B374D848" -> 0x16B374D848
+    public static long parse(String lsn) {
+        int slash = lsn.indexOf('/');
+        if (slash < 1) {
+            throw new IllegalArgumentException("Expected an lsn like 16/B374D848 but got " + lsn);
+        }
+        return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+
+    @PreDestroy
+    void stop() {
+        poller.shutdownNow();
+    }
+}
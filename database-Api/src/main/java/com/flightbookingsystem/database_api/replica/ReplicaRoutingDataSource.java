@@ -0,0 +1,38 @@
+package com.flightbookingsystem.database_api.replica;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/*
+ * this class is responsible for handing out connections of the primary or of the read replica.
+ * the choice is made per thread by ReplicaRoutingFilter before the request touches the database.
+ * threads it did not mark, workers, imports and scheduled jobs, always get the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    static final ThreadLocal<String> ROUTE = new ThreadLocal<>();
+
+    public static void use(String route) {
+        ROUTE.set(route);
+    }
+
+    public static String current() {
+        return ROUTE.get() == null ? PRIMARY : ROUTE.get();
+    }
+
+    // true while the thread reads from the replica
+    public static boolean onReplica() {
+        return REPLICA.equals(ROUTE.get());
+    }
+
+    public static void clear() {
+        ROUTE.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return current();
+    }
+}
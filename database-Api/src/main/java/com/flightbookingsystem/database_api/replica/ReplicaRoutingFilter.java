@@ -0,0 +1,122 @@
+package com.flightbookingsystem.database_api.replica;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.PersistenceException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/*
+ * this class is responsible for sending reads to the replica and keeping writes on the primary.
+ *
+ * GET and HEAD requests read from the replica when ReplicaLagMonitor says it is fresh enough for the
+ * client, everything else runs on the primary. a successful write answers with X-Session-Lsn, the
+ * primary's position after the write committed. a client that sends it back on its reads only reads
+ * from a replica that has replayed its writes, so it always sees what it wrote.
+ */
+
+@Component
+@ConditionalOnProperty("spring.datasource.replica.url")
+public class ReplicaRoutingFilter extends OncePerRequestFilter {
+
+    static final Logger log = LoggerFactory.getLogger(ReplicaRoutingFilter.class);
+    public static final String SESSION_LSN = "X-Session-Lsn";
+
+    ReplicaLagMonitor replicaLagMonitor;
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    public ReplicaRoutingFilter(ReplicaLagMonitor replicaLagMonitor, MeterRegistry meterRegistry) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            SessionLsnResponse write = new SessionLsnResponse(response);
+            try {
+                filterChain.doFilter(request, write);
+            } finally {
+                // answers without a body, 204 and the like
+                write.addSessionLsn();
+            }
+            return;
+        }
+
+        String route;
+        try {
+            String sessionLsn = request.getHeader(SESSION_LSN);
+            route = replicaLagMonitor.canServe(sessionLsn == null ? null : ReplicaLagMonitor.parse(sessionLsn))
+                ? ReplicaRoutingDataSource.REPLICA : ReplicaRoutingDataSource.PRIMARY;
+        } catch (IllegalArgumentException e) {
+            route = ReplicaRoutingDataSource.PRIMARY;
+        }
+        meterRegistry.counter("datasource.reads", "route", route).increment();
+        ReplicaRoutingDataSource.use(route);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.clear();
+        }
+    }
+
+    // adds X-Session-Lsn just before the first byte of the answer, the controller's transaction has committed by then
+    class SessionLsnResponse extends HttpServletResponseWrapper {
+
+        boolean added;
+
+        SessionLsnResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        void addSessionLsn() {
+            if (added || isCommitted() || getStatus() >= 300) {
+                return;
+            }
+            added = true;
+            try {
+                String lsn = replicaLagMonitor.currentPrimaryLsn();
+                if (lsn != null) {
+                    setHeader(SESSION_LSN, lsn);
+                }
+            } catch (DataAccessException | PersistenceException e) {
+                // the client reads from the primary until its next write
+                log.warn("Could not read the primary lsn", e);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            this.addSessionLsn();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            this.addSessionLsn();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            this.addSessionLsn();
+            super.flushBuffer();
+        }
+    }
+}
@@ -2,12 +2,27 @@ package com.flightbookingsystem.database_api.reposatories;
 
 import com.flightbookingsystem.database_api.model.Aircraft;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface AircraftRepository extends JpaRepository<Aircraft, UUID> {
 
+    // every aircraft with its airline and its flights (airline, airports) in one query, for the list endpoint,
+    // the seats of each flight are still read per flight
+    @Override
+    @EntityGraph(attributePaths = {"airline", "flights", "flights.airline", "flights.originAirport", "flights.destinationAirport"})
+    List<Aircraft> findAll();
+
+    // select for update, in aircraftId order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Aircraft> findLockedByAircraftIdInOrderByAircraftId(Collection<UUID> aircraftIds);
+
 }
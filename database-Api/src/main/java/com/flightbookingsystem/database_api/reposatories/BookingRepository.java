@@ -2,11 +2,47 @@ package com.flightbookingsystem.database_api.reposatories;
 
 import com.flightbookingsystem.database_api.model.Booking;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, UUID> {
+
+    // booking with customer, flight (airline, aircraft, airports), seat (fare) and payment in one query
+    @EntityGraph("Booking.detail")
+    Optional<Booking> findDetailByBookingId(UUID bookingId);
+
+    // served by the unique idx_booking_pnr
+    @EntityGraph("Booking.detail")
+    Optional<Booking> findDetailByPnrNumber(String pnrNumber);
+
+    // every booking of a customer in the same shape, earliest departure first
+    @EntityGraph("Booking.detail")
+    List<Booking> findDetailByCustomerCustomerIdOrderByFlightDepartureAsc(UUID customerId);
+
+    // the customer of a booking without loading the booking
+    @Query("select b.customer.customerId from Booking b where b.bookingId = :bookingId")
+    Optional<UUID> findCustomerIdByBookingId(UUID bookingId);
+
+    // select for update
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Booking> findLockedByBookingId(UUID bookingId);
+
+    // every booking in the same shape, for the list endpoint
+    @EntityGraph("Booking.detail")
+    List<Booking> findDetailBy();
+
+    // all bookings page by page in the same shape, used to rebuild read models
+    @EntityGraph("Booking.detail")
+    Slice<Booking> findDetailBy(Pageable pageable);
 }
@@ -2,12 +2,19 @@ package com.flightbookingsystem.database_api.reposatories;
 
 import com.flightbookingsystem.database_api.model.Customer;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, UUID> {
     public Customer findByEmail(String email);
+
+    // select for update, the wallet of the customer
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Customer> findLockedByCustomerId(UUID customerId);
 }
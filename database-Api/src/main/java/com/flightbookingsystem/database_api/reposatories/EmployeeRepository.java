@@ -2,14 +2,21 @@ package com.flightbookingsystem.database_api.reposatories;
 
 import com.flightbookingsystem.database_api.model.Employee;
 
+import java.util.List;
 import java.util.UUID;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface EmployeeRepository extends JpaRepository<Employee, UUID> {
 
+    // every row with its airline in one query, for the list endpoint
+    @Override
+    @EntityGraph(attributePaths = {"airline"})
+    List<Employee> findAll();
+
     
 
 }
@@ -1,12 +1,55 @@
 package com.flightbookingsystem.database_api.reposatories;
 
+import com.flightbookingsystem.database_api.dto.FlightSearchResultDto;
+import com.flightbookingsystem.database_api.model.Aircraft;
 import com.flightbookingsystem.database_api.model.Flight;
 
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface FlightRepository extends JpaRepository<Flight,UUID> {
+
+    // flight with airline, aircraft, airports and seats (fare, booking) in one query
+    @EntityGraph("Flight.detail")
+    Optional<Flight> findDetailByFlightId(UUID flightId);
+
+    // every flight in the same shape, for the list endpoint
+    @EntityGraph("Flight.detail")
+    List<Flight> findDetailBy();
+
+    // the aircraft of a flight without loading the flight, empty when either is missing
+    @Query("select f.aircraft from Flight f where f.flightId = :flightId")
+    Optional<Aircraft> findAircraftByFlightId(UUID flightId);
+
+    // flights of one aircraft that are in the air at some point between from and to
+    List<Flight> findByAircraftAircraftIdAndDepartureBeforeAndArrivalAfter(UUID aircraftId, ZonedDateTime to, ZonedDateTime from);
+
+    // flights between two airports departing in [from, to), each with the rating aggregates of the flight,
+    // its airline and its route joined by primary key, so the ratings cost no query and no feedback row
+    @Query("select new com.flightbookingsystem.database_api.dto.FlightSearchResultDto(f.flightId, f.departure, f.arrival, " +
+           "f.price, f.status, a.airlineId, a.name, o.airportCode, d.airportCode, " +
+           "fr.ratingCount, fr.ratingSum, ar.ratingCount, ar.ratingSum, rr.ratingCount, rr.ratingSum) " +
+           "from Flight f join f.originAirport o join f.destinationAirport d left join f.airline a " +
+           "left join RatingAggregate fr on fr.scope = com.flightbookingsystem.database_api.model.RatingScope.FLIGHT " +
+           "and fr.subjectId = f.flightId and fr.otherId = :none " +
+           "left join RatingAggregate ar on ar.scope = com.flightbookingsystem.database_api.model.RatingScope.AIRLINE " +
+           "and ar.subjectId = a.airlineId and ar.otherId = :none " +
+           "left join RatingAggregate rr on rr.scope = com.flightbookingsystem.database_api.model.RatingScope.ROUTE " +
+           "and rr.subjectId = o.airportId and rr.otherId = d.airportId " +
+           "where o.airportCode = :origin and d.airportCode = :destination " +
+           "and f.departure >= :from and f.departure < :to order by f.departure")
+    List<FlightSearchResultDto> search(@Param("origin") String origin,
+                                       @Param("destination") String destination,
+                                       @Param("from") ZonedDateTime from,
+                                       @Param("to") ZonedDateTime to,
+                                       @Param("none") UUID none);
 }
@@ -0,0 +1,66 @@
+package com.flightbookingsystem.database_api.reposatories;
+
+import com.flightbookingsystem.database_api.model.ItineraryEntry;
+import com.flightbookingsystem.database_api.model.PaymentStatus;
+import com.flightbookingsystem.database_api.model.SeatClass;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ItineraryEntryRepository extends JpaRepository<ItineraryEntry, UUID> {
+
+    // served by idx_itinerary_customer_departure
+    List<ItineraryEntry> findByCustomerIdOrderByDepartureAsc(UUID customerId);
+
+    // the updates below change every booking of one flight, seat or payment in a single statement
+
+    @Modifying
+    @Query("update ItineraryEntry e set e.departure = :departure, e.arrival = :arrival, e.flightStatus = :status, " +
+           "e.airlineName = :airlineName, e.originAirportCode = :originCode, e.originCity = :originCity, " +
+           "e.destinationAirportCode = :destinationCode, e.destinationCity = :destinationCity " +
+           "where e.flightId = :flightId")
+    int updateFlight(@Param("flightId") UUID flightId,
+                     @Param("departure") ZonedDateTime departure,
+                     @Param("arrival") ZonedDateTime arrival,
+                     @Param("status") String status,
+                     @Param("airlineName") String airlineName,
+                     @Param("originCode") String originCode,
+                     @Param("originCity") String originCity,
+                     @Param("destinationCode") String destinationCode,
+                     @Param("destinationCity") String destinationCity);
+
+    @Modifying
+    @Query("update ItineraryEntry e set e.seatNumber = :seatNumber, e.seatClass = :seatClass where e.seatId = :seatId")
+    int updateSeat(@Param("seatId") UUID seatId,
+                   @Param("seatNumber") String seatNumber,
+                   @Param("seatClass") SeatClass seatClass);
+
+    @Modifying
+    @Query("update ItineraryEntry e set e.amount = :amount, e.paymentMethod = :method, e.paymentStatus = :status " +
+           "where e.paymentId = :paymentId")
+    int updatePayment(@Param("paymentId") UUID paymentId,
+                      @Param("amount") Double amount,
+                      @Param("method") String method,
+                      @Param("status") PaymentStatus status);
+
+    @Modifying
+    @Query("update ItineraryEntry e set e.paymentId = null, e.amount = null, e.paymentMethod = null, e.paymentStatus = null " +
+           "where e.paymentId = :paymentId")
+    int clearPayment(@Param("paymentId") UUID paymentId);
+
+    @Modifying
+    @Query("delete from ItineraryEntry e where e.flightId = :flightId")
+    int deleteByFlight(@Param("flightId") UUID flightId);
+
+    @Modifying
+    @Query("delete from ItineraryEntry e where e.customerId = :customerId")
+    int deleteByCustomer(@Param("customerId") UUID customerId);
+}
@@ -0,0 +1,23 @@
+package com.flightbookingsystem.database_api.reposatories;
+
+import com.flightbookingsystem.database_api.model.NotificationInbox;
+
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NotificationInboxRepository extends JpaRepository<NotificationInbox, UUID> {
+
+    // in place, concurrent notifications and mark-reads of one customer never lose each other's counts.
+    // makes the row on the first notification of the customer
+    @Modifying
+    @Query(value = "insert into notification_inbox (customer_id, unread_count) values (:customerId, :delta) " +
+           "on conflict (customer_id) do update set unread_count = notification_inbox.unread_count + excluded.unread_count",
+           nativeQuery = true)
+    int addUnread(@Param("customerId") UUID customerId, @Param("delta") long delta);
+}
@@ -3,12 +3,63 @@ package com.flightbookingsystem.database_api.reposatories;
 
 import com.flightbookingsystem.database_api.model.Notification;
 
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification,UUID> {
 
+    // every row with the customer in one query, for the list endpoint
+    @Override
+    @EntityGraph(attributePaths = {"customer"})
+    List<Notification> findAll();
+
+    // select for update, a delete reads readAt from the row markRead has to wait for
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Notification> findLockedByNotificationId(UUID notificationId);
+
+    // the inbox pages below are served by idx_notification_customer_sent, newest first,
+    // a page starts after the (sentAt, notificationId) of the last one of the page before
+
+    @Query("select n from Notification n where n.customer.customerId = :customerId and n.sentAt is not null " +
+           "and (:unreadOnly = false or n.readAt is null) " +
+           "order by n.sentAt desc, n.notificationId desc")
+    List<Notification> findInbox(@Param("customerId") UUID customerId,
+                                 @Param("unreadOnly") boolean unreadOnly,
+                                 Pageable pageable);
+
+    @Query("select n from Notification n where n.customer.customerId = :customerId " +
+           "and n.sentAt <= :sentAt and (n.sentAt < :sentAt or n.notificationId < :notificationId) " +
+           "and (:unreadOnly = false or n.readAt is null) " +
+           "order by n.sentAt desc, n.notificationId desc")
+    List<Notification> findInboxAfter(@Param("customerId") UUID customerId,
+                                      @Param("sentAt") ZonedDateTime sentAt,
+                                      @Param("notificationId") UUID notificationId,
+                                      @Param("unreadOnly") boolean unreadOnly,
+                                      Pageable pageable);
+
+    // only rows still unread are changed, the count says by how much the unread counter goes down
+    @Modifying
+    @Query("update Notification n set n.readAt = :readAt " +
+           "where n.customer.customerId = :customerId and n.readAt is null and n.notificationId in :notificationIds")
+    int markRead(@Param("customerId") UUID customerId,
+                 @Param("notificationIds") Collection<UUID> notificationIds,
+                 @Param("readAt") ZonedDateTime readAt);
+
+    @Modifying
+    @Query("update Notification n set n.readAt = :readAt where n.customer.customerId = :customerId and n.readAt is null")
+    int markAllRead(@Param("customerId") UUID customerId, @Param("readAt") ZonedDateTime readAt);
 }
@@ -0,0 +1,39 @@
+package com.flightbookingsystem.database_api.reposatories;
+
+import com.flightbookingsystem.database_api.model.RatingAggregate;
+import com.flightbookingsystem.database_api.model.RatingAggregateId;
+
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RatingAggregateRepository extends JpaRepository<RatingAggregate, RatingAggregateId> {
+
+    // adds in place, concurrent feedbacks of one airline never lose each other's counts.
+    // the first feedback of a subject makes its row, a second first feedback adds to it instead of failing
+    @Modifying
+    @Query(value = "insert into rating_aggregate (scope, subject_id, other_id, rating_count, rating_sum, " +
+           "stars1, stars2, stars3, stars4, stars5) " +
+           "values (:scope, :subjectId, :otherId, :count, :sum, :stars1, :stars2, :stars3, :stars4, :stars5) " +
+           "on conflict (scope, subject_id, other_id) do update set " +
+           "rating_count = rating_aggregate.rating_count + excluded.rating_count, " +
+           "rating_sum = rating_aggregate.rating_sum + excluded.rating_sum, " +
+           "stars1 = rating_aggregate.stars1 + excluded.stars1, stars2 = rating_aggregate.stars2 + excluded.stars2, " +
+           "stars3 = rating_aggregate.stars3 + excluded.stars3, stars4 = rating_aggregate.stars4 + excluded.stars4, " +
+           "stars5 = rating_aggregate.stars5 + excluded.stars5", nativeQuery = true)
+    int add(@Param("scope") String scope,
+            @Param("subjectId") UUID subjectId,
+            @Param("otherId") UUID otherId,
+            @Param("count") long count,
+            @Param("sum") long sum,
+            @Param("stars1") long stars1,
+            @Param("stars2") long stars2,
+            @Param("stars3") long stars3,
+            @Param("stars4") long stars4,
+            @Param("stars5") long stars5);
+}
@@ -0,0 +1,32 @@
+package com.flightbookingsystem.database_api.reposatories;
+
+import com.flightbookingsystem.database_api.model.ScheduleImport;
+import com.flightbookingsystem.database_api.model.ScheduleImportStatus;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ScheduleImportRepository extends JpaRepository<ScheduleImport, UUID> {
+
+    List<ScheduleImport> findByStatus(ScheduleImportStatus status);
+
+    // moves the progress on only if nobody else did since it was read, 0 means another runner owns the import
+    @Modifying
+    @Query("update ScheduleImport i set i.importedFlights = :importedFlights, i.importedSeats = i.importedSeats + :seats, " +
+           "i.chunks = i.chunks + 1, i.updatedAt = :updatedAt " +
+           "where i.importId = :importId and i.importedFlights = :expectedFlights and i.status = :status")
+    int advance(@Param("importId") UUID importId,
+                @Param("expectedFlights") int expectedFlights,
+                @Param("importedFlights") int importedFlights,
+                @Param("seats") long seats,
+                @Param("updatedAt") ZonedDateTime updatedAt,
+                @Param("status") ScheduleImportStatus status);
+}
@@ -1,12 +1,48 @@
 package com.flightbookingsystem.database_api.reposatories;
 
 import com.flightbookingsystem.database_api.model.Seat;
+import com.flightbookingsystem.database_api.model.SeatStatus;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface SeatRepository extends JpaRepository<Seat,UUID> {
+
+    // only the three columns a seat map needs, no seat entities are built
+    List<SeatStatusView> findByFlightFlightId(UUID flightId);
+
+    // status and holder of every seat of a flight, what the booking sequencer checks changes against
+    List<SeatHoldView> findSeatHoldsByFlightFlightId(UUID flightId);
+
+    // every seat with fare, booking and flight (airline, aircraft, airports) in one query
+    @EntityGraph("Seat.detail")
+    List<Seat> findDetailBy();
+
+    @Query("select s.flight.flightId from Seat s where s.seatId = :seatId")
+    Optional<UUID> findFlightIdBySeatId(UUID seatId);
+
+    // select for update, callers locking several seats take them in seatId order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Seat> findLockedBySeatId(UUID seatId);
+
+    interface SeatStatusView {
+        UUID getSeatId();
+        String getSeatNumber();
+        SeatStatus getSeatStatus();
+    }
+
+    interface SeatHoldView {
+        UUID getSeatId();
+        SeatStatus getSeatStatus();
+        UUID getHeldBy();
+    }
 }
@@ -2,11 +2,18 @@ package com.flightbookingsystem.database_api.reposatories;
 
 import com.flightbookingsystem.database_api.model.WaitList;
 
+import java.util.List;
 import java.util.UUID;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface WaitListRepository extends JpaRepository<WaitList,UUID> {
+
+    // every row with customer and flight in one query, for the list endpoint
+    @Override
+    @EntityGraph(attributePaths = {"customer", "flight", "flight.airline", "flight.aircraft", "flight.originAirport", "flight.destinationAirport"})
+    List<WaitList> findAll();
 }
@@ -0,0 +1,362 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.dto.ArchiveResultDto;
+import com.flightbookingsystem.database_api.dto.ArchivedBookingDto;
+import com.flightbookingsystem.database_api.dto.ArchivedFeedbackDto;
+import com.flightbookingsystem.database_api.dto.ArchivedNotificationDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * this class is responsible for moving cold rows out of the tables the application works on.
+ *
+ * bookings of flights that departed more than booking-after-days ago go to booking_archive together with
+ * their payment, seat number and flight, one flat row each, and their itinerary rows are dropped.
+ * notifications and feedback older than notification-after-days and feedback-after-days go to
+ * notification_archive and feedback_archive. rows are moved batch-size at a time, each batch in its own
+ * transaction, so the live tables only keep the current period and a run can stop and start anywhere.
+ *
+ * on postgres the archive tables are partitioned by month of departure, sent_at and created_at, and the
+ * month partitions are created before rows go into them, so reads of a date range only open those months
+ * and a whole old month can be detached and dumped. on other databases they are plain tables.
+ */
+
+@Service
+public class ArchiveService {
+
+    static final Logger log = LoggerFactory.getLogger(ArchiveService.class);
+    static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    static final String BOOKING_COLUMNS = "booking_id, pnr_number, booking_time, booking_status, customer_id, " +
+        "flight_id, departure, airline_id, airline_name, origin_airport_code, destination_airport_code, " +
+        "seat_id, seat_number, payment_id, amount, method, payment_status, txn_reference, archived_at";
+
+    static final String[] CREATE_TABLES = {
+        "create table if not exists booking_archive (booking_id uuid not null, pnr_number varchar(16), " +
+            "booking_time timestamp with time zone, booking_status varchar(32), customer_id uuid, flight_id uuid, " +
+            "departure timestamp with time zone not null, airline_id uuid, airline_name varchar(255), " +
+            "origin_airport_code varchar(16), destination_airport_code varchar(16), seat_id uuid, seat_number varchar(16), " +
+            "payment_id uuid, amount double precision, method varchar(255), payment_status varchar(32), " +
+            "txn_reference varchar(255), archived_at timestamp with time zone not null)",
+        "create table if not exists notification_archive (notification_id uuid not null, customer_id uuid, " +
+            "type varchar(255), message varchar(255), status varchar(255), sent_at timestamp with time zone not null, " +
+            "read_at timestamp with time zone, archived_at timestamp with time zone not null)",
+        "create table if not exists feedback_archive (feedback_id uuid not null, customer_id uuid, flight_id uuid, " +
+            "rating integer, comments varchar(255), created_at timestamp with time zone not null, " +
+            "archived_at timestamp with time zone not null)"
+    };
+    static final String[] PARTITION_KEYS = {"departure", "sent_at", "created_at"};
+    static final String[] CREATE_INDEXES = {
+        "create index if not exists idx_booking_archive_customer on booking_archive (customer_id, departure)",
+        "create index if not exists idx_booking_archive_id on booking_archive (booking_id)",
+        "create index if not exists idx_booking_archive_time on booking_archive (booking_time)",
+        "create index if not exists idx_notification_archive_customer on notification_archive (customer_id, sent_at)",
+        "create index if not exists idx_feedback_archive_flight on feedback_archive (flight_id, created_at)"
+    };
+
+    JdbcTemplate jdbcTemplate;
+    NamedParameterJdbcTemplate namedJdbcTemplate;
+    TransactionTemplate transactionTemplate;
+    PnrService pnrService;
+    MeterRegistry meterRegistry;
+
+    boolean enabled;
+    int bookingAfterDays;
+    int notificationAfterDays;
+    int feedbackAfterDays;
+    int batchSize;
+    long intervalHours;
+
+    boolean partitioned;
+    volatile boolean ready;
+    ReentrantLock running = new ReentrantLock();
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @Autowired
+    public ArchiveService(DataSource dataSource,
+                          TransactionTemplate transactionTemplate,
+                          PnrService pnrService,
+                          MeterRegistry meterRegistry,
+                          @Value("${archive.enabled:false}") boolean enabled,
+                          @Value("${archive.booking-after-days:90}") int bookingAfterDays,
+                          @Value("${archive.notification-after-days:180}") int notificationAfterDays,
+                          @Value("${archive.feedback-after-days:730}") int feedbackAfterDays,
+                          @Value("${archive.batch-size:1000}") int batchSize,
+                          @Value("${archive.interval-hours:24}") long intervalHours) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.pnrService = pnrService;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.bookingAfterDays = bookingAfterDays;
+        this.notificationAfterDays = notificationAfterDays;
+        this.feedbackAfterDays = feedbackAfterDays;
+        this.batchSize = batchSize;
+        this.intervalHours = intervalHours;
+    }
+
+    // after hibernate has made the live tables, before RatingService reads feedback_archive
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void createTables() {
+        partitioned = "PostgreSQL".equals(jdbcTemplate.execute(
+            (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+        for (int i = 0; i < CREATE_TABLES.length; i++) {
+            jdbcTemplate.execute(CREATE_TABLES[i] + (partitioned ? " partition by range (" + PARTITION_KEYS[i] + ")" : ""));
+        }
+        for (String index : CREATE_INDEXES) {
+            jdbcTemplate.execute(index);
+        }
+        ready = true;
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::runQuietly, intervalHours, intervalHours, TimeUnit.HOURS);
+        }
+    }
+
+    /**
+     * This method is responsible for one archive run, it moves batches until nothing is old enough
+     * @return how many rows were moved, or null when a run is already going
+     */
+    public ArchiveResultDto run() {
+        if (!ready || !running.tryLock()) {
+            return null;
+        }
+        try {
+            OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+            long bookings = this.moveAll(this::moveBookings, now.minusDays(bookingAfterDays), now);
+            long notifications = this.moveAll(this::moveNotifications, now.minusDays(notificationAfterDays), now);
+            long feedbacks = this.moveAll(this::moveFeedbacks, now.minusDays(feedbackAfterDays), now);
+            meterRegistry.counter("archive.rows", "table", "booking").increment(bookings);
+            meterRegistry.counter("archive.rows", "table", "notification").increment(notifications);
+            meterRegistry.counter("archive.rows", "table", "feedback").increment(feedbacks);
+            log.info("Archived {} bookings, {} notifications, {} feedbacks", bookings, notifications, feedbacks);
+            return new ArchiveResultDto(bookings, notifications, feedbacks);
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            this.run();
+        } catch (RuntimeException e) {
+            log.warn("Archive run failed, the next run continues where it stopped", e);
+        }
+    }
+
+    interface Batch {
+        int move(OffsetDateTime before, OffsetDateTime now);
+    }
+
+    private long moveAll(Batch batch, OffsetDateTime before, OffsetDateTime now) {
+        long moved = 0;
+        int count;
+        do {
+            count = transactionTemplate.execute(status -> batch.move(before, now));
+            moved += count;
+        } while (count == batchSize);
+        return moved;
+    }
+
+    private int moveBookings(OffsetDateTime departedBefore, OffsetDateTime now) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+            "select b.booking_id, b.pnr_number, b.payment_id, f.departure from booking b " +
+            "join flight f on f.flight_id = b.flight_id where f.departure < ? fetch first " + batchSize + " rows only",
+            departedBefore);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        this.createPartitions("booking_archive", rows.stream().map(row -> at(row.get("departure"))).toList());
+
+        MapSqlParameterSource ids = new MapSqlParameterSource()
+            .addValue("ids", rows.stream().map(row -> row.get("booking_id")).toList())
+            .addValue("payments", rows.stream().map(row -> row.get("payment_id")).filter(id -> id != null).toList())
+            .addValue("now", now);
+        namedJdbcTemplate.update("insert into booking_archive (" + BOOKING_COLUMNS + ") " +
+            "select b.booking_id, b.pnr_number, b.booking_time, b.booking_status, b.customer_id, " +
+            "f.flight_id, f.departure, a.airline_id, a.name, o.airport_code, d.airport_code, " +
+            "s.seat_id, s.seat_number, p.payment_id, p.amount, p.method, p.payment_status, p.txn_reference, :now " +
+            "from booking b join flight f on f.flight_id = b.flight_id " +
+            "left join airline a on a.airline_id = f.airline_id " +
+            "left join airport o on o.airport_id = f.origin_airport_id " +
+            "left join airport d on d.airport_id = f.destination_airport_id " +
+            "left join seat s on s.seat_id = b.seat_id " +
+            "left join payment p on p.payment_id = b.payment_id " +
+            "where b.booking_id in (:ids)", ids);
+        namedJdbcTemplate.update("delete from customer_itinerary where booking_id in (:ids)", ids);
+        namedJdbcTemplate.update("delete from booking where booking_id in (:ids)", ids);
+        if (!((List<?>) ids.getValue("payments")).isEmpty()) {
+            namedJdbcTemplate.update("delete from payment where payment_id in (:payments)", ids);
+        }
+        rows.forEach(row -> pnrService.evict((String) row.get("pnr_number")));
+        return rows.size();
+    }
+
+    private int moveNotifications(OffsetDateTime sentBefore, OffsetDateTime now) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+            "select notification_id, sent_at from notification where sent_at < ? fetch first " + batchSize + " rows only",
+            sentBefore);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        this.createPartitions("notification_archive", rows.stream().map(row -> at(row.get("sent_at"))).toList());
+
+        MapSqlParameterSource ids = new MapSqlParameterSource()
+            .addValue("ids", rows.stream().map(row -> row.get("notification_id")).toList())
+            .addValue("now", now);
+        namedJdbcTemplate.update("insert into notification_archive " +
+            "select notification_id, customer_id, type, message, status, sent_at, read_at, :now from notification " +
+            "where notification_id in (:ids)", ids);
+        // archived unread notifications leave the bell
+        namedJdbcTemplate.update("update notification_inbox set unread_count = unread_count - " +
+            "(select count(*) from notification n where n.customer_id = notification_inbox.customer_id " +
+            "and n.read_at is null and n.notification_id in (:ids)) " +
+            "where customer_id in (select customer_id from notification where read_at is null and notification_id in (:ids))", ids);
+        namedJdbcTemplate.update("delete from notification where notification_id in (:ids)", ids);
+        return rows.size();
+    }
+
+    private int moveFeedbacks(OffsetDateTime createdBefore, OffsetDateTime now) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+            "select feedback_id, created_at from feed_back where created_at < ? fetch first " + batchSize + " rows only",
+            createdBefore);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        this.createPartitions("feedback_archive", rows.stream().map(row -> at(row.get("created_at"))).toList());
+
+        MapSqlParameterSource ids = new MapSqlParameterSource()
+            .addValue("ids", rows.stream().map(row -> row.get("feedback_id")).toList())
+            .addValue("now", now);
+        namedJdbcTemplate.update("insert into feedback_archive " +
+            "select feedback_id, customer_id, flight_id, rating, comments, created_at, :now from feed_back " +
+            "where feedback_id in (:ids)", ids);
+        namedJdbcTemplate.update("delete from feed_back where feedback_id in (:ids)", ids);
+        return rows.size();
+    }
+
+    // one partition per utc month, made in the batch's transaction before its rows go in
+    private void createPartitions(String table, List<ZonedDateTime> times) {
+        if (!partitioned) {
+            return;
+        }
+        TreeSet<YearMonth> months = new TreeSet<>();
+        times.forEach(time -> months.add(YearMonth.from(time.withZoneSameInstant(ZoneOffset.UTC))));
+        for (YearMonth month : months) {
+            jdbcTemplate.execute("create table if not exists " + table + "_" + month.format(MONTH) + " partition of " + table +
+                " for values from ('" + month.atDay(1) + " 00:00:00+00') to ('" + month.plusMonths(1).atDay(1) + " 00:00:00+00')");
+        }
+    }
+
+    // ---------- reads ----------
+
+    /**
+     * This method is responsible for an archived booking
+     * @param bookingId
+     * @return ArchivedBookingDto or null
+     */
+    public ArchivedBookingDto findBooking(UUID bookingId) {
+        List<ArchivedBookingDto> bookings = jdbcTemplate.query("select " + BOOKING_COLUMNS +
+            " from booking_archive where booking_id = ?", ArchiveService::booking, bookingId);
+        return bookings.isEmpty() ? null : bookings.get(0);
+    }
+
+    /**
+     * This method is responsible for the archived bookings of a customer with departure in [from, to),
+     * on postgres only the partitions of those months are read
+     * @param customerId
+     * @param from
+     * @param to
+     * @return bookings, latest departure first
+     */
+    public List<ArchivedBookingDto> findBookingsOfCustomer(UUID customerId, ZonedDateTime from, ZonedDateTime to) {
+        return jdbcTemplate.query("select " + BOOKING_COLUMNS + " from booking_archive " +
+            "where customer_id = ? and departure >= ? and departure < ? order by departure desc",
+            ArchiveService::booking, customerId, from.toOffsetDateTime(), to.toOffsetDateTime());
+    }
+
+    public List<ArchivedNotificationDto> findNotificationsOfCustomer(UUID customerId, ZonedDateTime from, ZonedDateTime to) {
+        return jdbcTemplate.query("select notification_id, customer_id, type, message, status, sent_at, read_at from notification_archive " +
+            "where customer_id = ? and sent_at >= ? and sent_at < ? order by sent_at desc",
+            (row, i) -> new ArchivedNotificationDto(row.getObject(1, UUID.class), row.getObject(2, UUID.class),
+                row.getString(3), row.getString(4), row.getString(5), zoned(row, 6), zoned(row, 7)),
+            customerId, from.toOffsetDateTime(), to.toOffsetDateTime());
+    }
+
+    public List<ArchivedFeedbackDto> findFeedbacksOfFlight(UUID flightId) {
+        return jdbcTemplate.query("select feedback_id, customer_id, flight_id, rating, comments, created_at from feedback_archive " +
+            "where flight_id = ? order by created_at desc",
+            (row, i) -> new ArchivedFeedbackDto(row.getObject(1, UUID.class), row.getObject(2, UUID.class),
+                row.getObject(3, UUID.class), (Integer) row.getObject(4), row.getString(5), zoned(row, 6)),
+            flightId);
+    }
+
+    static ArchivedBookingDto booking(ResultSet row, int rowNumber) throws SQLException {
+        return new ArchivedBookingDto(row.getObject("booking_id", UUID.class), row.getString("pnr_number"),
+            zoned(row, "booking_time"), row.getString("booking_status"), row.getObject("customer_id", UUID.class),
+            row.getObject("flight_id", UUID.class), zoned(row, "departure"), row.getObject("airline_id", UUID.class),
+            row.getString("airline_name"), row.getString("origin_airport_code"), row.getString("destination_airport_code"),
+            row.getObject("seat_id", UUID.class), row.getString("seat_number"), row.getObject("payment_id", UUID.class),
+            (Double) row.getObject("amount"), row.getString("method"), row.getString("payment_status"),
+            row.getString("txn_reference"), zoned(row, "archived_at"));
+    }
+
+    static ZonedDateTime zoned(ResultSet row, String column) throws SQLException {
+        OffsetDateTime time = row.getObject(column, OffsetDateTime.class);
+        return time == null ? null : time.toZonedDateTime();
+    }
+
+    static ZonedDateTime zoned(ResultSet row, int column) throws SQLException {
+        OffsetDateTime time = row.getObject(column, OffsetDateTime.class);
+        return time == null ? null : time.toZonedDateTime();
+    }
+
+    // queryForList gives timestamps as the driver likes them
+    static ZonedDateTime at(Object value) {
+        if (value instanceof OffsetDateTime time) {
+            return time.toZonedDateTime();
+        }
+        if (value instanceof Timestamp time) {
+            return time.toInstant().atZone(ZoneOffset.UTC);
+        }
+        return ZonedDateTime.parse(value.toString());
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,381 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.model.Seat;
+import com.flightbookingsystem.database_api.model.SeatStatus;
+import com.flightbookingsystem.database_api.reposatories.SeatRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * this class is responsible for the sequenced booking mode (booking.sequencer.enabled=true).
+ *
+ * every seat hold, release and booking of a flight goes into the queue of that flight instead of racing
+ * the other requests on the seat rows. a flight's queue is drained by one worker at a time, so the flight
+ * has a single writer: it checks every change against the seat statuses it keeps in memory, in arrival
+ * order, turns the losers away with 409 without touching the database, and writes the winners of one
+ * drain in a single transaction, one commit for up to batch-size changes. the caller waits for the commit.
+ * a held seat can only be booked by the customer holding it. a caller that stops waiting before its change
+ * was taken from the queue gets 504 and the change is dropped, once taken it waits for the commit.
+ *
+ * the seat statuses of a flight are read once, on its first change, and dropped when a batch fails or the
+ * flight is idle for inventory-idle-seconds. seats made later are picked up when they are first changed.
+ * while the mode is on, seat statuses must only change through here.
+ */
+
+@Service
+public class BookingSequencer {
+
+    static final Logger log = LoggerFactory.getLogger(BookingSequencer.class);
+
+    SeatRepository seatRepository;
+    TransactionTemplate transactionTemplate;
+    MeterRegistry meterRegistry;
+
+    boolean enabled;
+    int queueSize;
+    int batchSize;
+    long timeoutMillis;
+    long inventoryIdleMillis;
+
+    Map<UUID, Lane> lanes = new ConcurrentHashMap<>();
+    // a seat never moves to another flight, so its flight is looked up once
+    Map<UUID, UUID> seatFlights = new ConcurrentHashMap<>();
+    ExecutorService workers;
+
+    @Autowired
+    public BookingSequencer(SeatRepository seatRepository,
+                            TransactionTemplate transactionTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${booking.sequencer.enabled:false}") boolean enabled,
+                            @Value("${booking.sequencer.threads:8}") int threads,
+                            @Value("${booking.sequencer.queue-size:1000}") int queueSize,
+                            @Value("${booking.sequencer.batch-size:100}") int batchSize,
+                            @Value("${booking.sequencer.timeout-millis:5000}") long timeoutMillis,
+                            @Value("${booking.sequencer.inventory-idle-seconds:600}") long inventoryIdleSeconds) {
+        this.seatRepository = seatRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.queueSize = queueSize;
+        this.batchSize = batchSize;
+        this.timeoutMillis = timeoutMillis;
+        this.inventoryIdleMillis = TimeUnit.SECONDS.toMillis(inventoryIdleSeconds);
+        this.workers = Executors.newFixedThreadPool(threads);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * This method is responsible for running one seat change of a flight in sequence
+     * @param flightId
+     * @param seatId the seat the change claims
+     * @param seatStatus the status the seat moves to
+     * @param holder the customer holding or booking the seat, null when the caller did not say
+     * @param write runs in the batch transaction of the flight, the seat only counts as moved when it answers 2xx
+     * @return what write answered, 409 when the seat can not move to seatStatus, 503 when the flight's queue is full,
+     * 504 when it waited in the queue for longer than timeout-millis, it is not written then
+     */
+    public <T> ResponseEntity<T> execute(UUID flightId, UUID seatId, SeatStatus seatStatus, UUID holder, Supplier<ResponseEntity<T>> write) {
+        Lane lane = lanes.computeIfAbsent(flightId, Lane::new);
+        Command<T> command = new Command<>(seatId, seatStatus, holder, write);
+        if (!lane.queue.offer(command)) {
+            meterRegistry.counter("booking.sequencer.rejected", "reason", "queue-full").increment();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+        }
+        lane.schedule();
+        try {
+            try {
+                return command.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (command.abandon()) {
+                    // still queued, the worker skips it
+                    meterRegistry.counter("booking.sequencer.rejected", "reason", "timeout").increment();
+                    return new ResponseEntity<>(HttpStatus.GATEWAY_TIMEOUT);
+                }
+                // the worker took it already, its batch is being written
+                return command.result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            command.abandon();
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * This method is responsible for the flight of a seat, read on a worker so the request thread
+     * holds no connection
+     * @param seatId
+     * @return flightId or null when there is no such seat
+     */
+    public UUID flightOf(UUID seatId) {
+        UUID flightId = seatFlights.get(seatId);
+        if (flightId != null) {
+            return flightId;
+        }
+        try {
+            flightId = CompletableFuture.supplyAsync(() -> seatRepository.findFlightIdBySeatId(seatId).orElse(null), workers)
+                .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Could not find the flight of seat " + seatId, e);
+        }
+        if (flightId != null) {
+            seatFlights.put(seatId, flightId);
+        }
+        return flightId;
+    }
+
+    /**
+     * This method is responsible for making the flight read its seat statuses again before its next change,
+     * for writes that change its seats outside its queue, like a reschedule releasing the old seat
+     * @param flightId
+     */
+    public void invalidate(UUID flightId) {
+        Lane lane = lanes.get(flightId);
+        if (lane != null) {
+            lane.stale = true;
+        }
+    }
+
+    // why a seat in status current, held by heldBy, can not move to seatStatus for holder, null when it can
+    public static String conflict(SeatStatus current, UUID heldBy, SeatStatus seatStatus, UUID holder) {
+        boolean available = current == null || current == SeatStatus.AVAILABLE;
+        switch (seatStatus) {
+            case RESERVED: return available ? null : "Seat is " + current;
+            case BOOKED:
+                if (current == SeatStatus.RESERVED) {
+                    return Objects.equals(heldBy, holder) ? null : "Seat is held by another customer";
+                }
+                return available ? null : "Seat is " + current;
+            default: return null;
+        }
+    }
+
+    // the same for a seat row, the callers outside the sequencer hold its lock
+    public static String conflict(Seat seat, SeatStatus seatStatus, UUID holder) {
+        return conflict(seat.getSeatStatus(), seat.getHeldBy(), seatStatus, holder);
+    }
+
+    // who holds a seat once it moved to seatStatus
+    public static UUID heldBy(SeatStatus seatStatus, UUID holder) {
+        return seatStatus == SeatStatus.RESERVED ? holder : null;
+    }
+
+    private void run(Lane lane, List<Command<?>> batch) {
+        if (lane.inventory == null) {
+            this.load(lane);
+        }
+
+        // 1. check the batch in order against the statuses it leaves behind, losers are answered now
+        Map<UUID, SeatState> moved = new HashMap<>();
+        List<Command<?>> accepted = new ArrayList<>(batch.size());
+        for (Command<?> command : batch) {
+            if (!command.start()) {
+                // the caller stopped waiting, it was answered 504
+                continue;
+            }
+            if (!lane.inventory.containsKey(command.seatId) && !lane.reloaded) {
+                // a seat made after the load
+                this.load(lane);
+                lane.reloaded = true;
+            }
+            String conflict = !lane.inventory.containsKey(command.seatId)
+                ? "Seat is not on flight " + lane.flightId
+                : moved.getOrDefault(command.seatId, lane.inventory.get(command.seatId)).conflict(command);
+            if (conflict != null) {
+                meterRegistry.counter("booking.sequencer.rejected", "reason", "conflict").increment();
+                command.answer(new ResponseEntity<>(HttpStatus.CONFLICT));
+                continue;
+            }
+            moved.put(command.seatId, new SeatState(command.seatStatus, heldBy(command.seatStatus, command.holder)));
+            accepted.add(command);
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        // 2. write the winners together, one commit
+        List<ResponseEntity<?>> answers = new ArrayList<>(accepted.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Command<?> command : accepted) {
+                    answers.add(command.write.get());
+                }
+            });
+        } catch (RuntimeException e) {
+            // start again from the database, and find the one that failed by writing them one by one
+            lane.inventory = null;
+            if (accepted.size() == 1) {
+                log.warn("Sequenced write of seat {} on flight {} failed", accepted.get(0).seatId, lane.flightId, e);
+                accepted.get(0).fail(e);
+                return;
+            }
+            for (Command<?> command : accepted) {
+                this.run(lane, List.of(command));
+            }
+            return;
+        }
+        meterRegistry.summary("booking.sequencer.batch.size").record(accepted.size());
+
+        for (int i = 0; i < accepted.size(); i++) {
+            Command<?> command = accepted.get(i);
+            if (answers.get(i).getStatusCode().is2xxSuccessful()) {
+                lane.inventory.put(command.seatId, new SeatState(command.seatStatus, heldBy(command.seatStatus, command.holder)));
+            }
+            command.answer(answers.get(i));
+        }
+    }
+
+    private void load(Lane lane) {
+        Map<UUID, SeatState> inventory = new HashMap<>();
+        for (SeatRepository.SeatHoldView seat : seatRepository.findSeatHoldsByFlightFlightId(lane.flightId)) {
+            inventory.put(seat.getSeatId(), new SeatState(seat.getSeatStatus() == null ? SeatStatus.AVAILABLE : seat.getSeatStatus(), seat.getHeldBy()));
+            seatFlights.put(seat.getSeatId(), lane.flightId);
+        }
+        lane.inventory = inventory;
+    }
+
+    @PreDestroy
+    void stop() {
+        workers.shutdown();
+    }
+
+    class Lane {
+        final UUID flightId;
+        final ArrayBlockingQueue<Command<?>> queue = new ArrayBlockingQueue<>(queueSize);
+        final AtomicBoolean draining = new AtomicBoolean();
+        // only touched by the worker draining the lane
+        Map<UUID, SeatState> inventory;
+        long lastUsed;
+        boolean reloaded;
+        // set by invalidate, from any thread
+        volatile boolean stale;
+
+        Lane(UUID flightId) {
+            this.flightId = flightId;
+        }
+
+        void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                workers.execute(this::drain);
+            }
+        }
+
+        void drain() {
+            try {
+                // idle since the last drain or changed outside the queue, its statuses may be old by now
+                if (System.currentTimeMillis() - lastUsed > inventoryIdleMillis || stale) {
+                    stale = false;
+                    inventory = null;
+                }
+                lastUsed = System.currentTimeMillis();
+                reloaded = false;
+                List<Command<?>> batch = new ArrayList<>(batchSize);
+                while (queue.drainTo(batch, batchSize) > 0) {
+                    try {
+                        run(this, batch);
+                    } catch (RuntimeException e) {
+                        // the seats could not be read, nothing was written
+                        log.warn("Could not run the queue of flight {}", flightId, e);
+                        inventory = null;
+                        batch.forEach(command -> command.fail(e));
+                    }
+                    batch.clear();
+                    reloaded = false;
+                }
+            } finally {
+                draining.set(false);
+            }
+            // a change may have come in after the last drainTo but before draining was cleared
+            if (!queue.isEmpty()) {
+                this.schedule();
+            }
+        }
+    }
+
+    static class SeatState {
+        final SeatStatus seatStatus;
+        final UUID heldBy;
+
+        SeatState(SeatStatus seatStatus, UUID heldBy) {
+            this.seatStatus = seatStatus;
+            this.heldBy = heldBy;
+        }
+
+        String conflict(Command<?> command) {
+            return BookingSequencer.conflict(seatStatus, heldBy, command.seatStatus, command.holder);
+        }
+    }
+
+    static class Command<T> {
+        static final int QUEUED = 0;
+        static final int STARTED = 1;
+        static final int ABANDONED = 2;
+
+        final UUID seatId;
+        final SeatStatus seatStatus;
+        final UUID holder;
+        final Supplier<ResponseEntity<T>> write;
+        final CompletableFuture<ResponseEntity<T>> result = new CompletableFuture<>();
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        Command(UUID seatId, SeatStatus seatStatus, UUID holder, Supplier<ResponseEntity<T>> write) {
+            this.seatId = seatId;
+            this.seatStatus = seatStatus;
+            this.holder = holder;
+            this.write = write;
+        }
+
+        // the worker takes it, false when the caller gave up before
+        boolean start() {
+            return state.compareAndSet(QUEUED, STARTED) || state.get() == STARTED;
+        }
+
+        // the caller gives up, false when the worker took it already
+        boolean abandon() {
+            return state.compareAndSet(QUEUED, ABANDONED);
+        }
+
+        @SuppressWarnings("unchecked")
+        void answer(ResponseEntity<?> answer) {
+            result.complete((ResponseEntity<T>) answer);
+        }
+
+        void fail(Throwable error) {
+            result.completeExceptionally(error);
+        }
+    }
+}
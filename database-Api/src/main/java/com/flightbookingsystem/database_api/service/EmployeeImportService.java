@@ -0,0 +1,234 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flightbookingsystem.database_api.dto.EmployeeImportResultDto;
+import com.flightbookingsystem.database_api.model.Airline;
+import com.flightbookingsystem.database_api.model.Employee;
+import com.flightbookingsystem.database_api.model.EmployeeRole;
+import com.flightbookingsystem.database_api.reposatories.EmployeeRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * this class is responsible for importing many employees of one airline.
+ * the request body is read as a stream and saved in batches, every batch is its own
+ * transaction, so memory stays flat no matter how many employees are sent.
+ *
+ * the import stops at the first row that can not be saved. the batches before it stay
+ * committed, the result says how many rows that was (imported) and where it stopped
+ * (failedLine, error), so the rest of the file can be sent again from that line.
+ */
+
+@Service
+public class EmployeeImportService {
+
+    static final int BATCH_SIZE = 500;
+    static final String[] CSV_HEADER = {"name", "email", "phone", "address", "employeeRole", "status"};
+
+    EmployeeRepository employeeRepository;
+    TransactionTemplate transactionTemplate;
+    EntityManager entityManager;
+    ObjectMapper objectMapper;
+
+    @Autowired
+    public EmployeeImportService(EmployeeRepository employeeRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 EntityManager entityManager,
+                                 ObjectMapper objectMapper) {
+        this.employeeRepository = employeeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * This method is responsible for importing a json array of employees
+     * [{"name": "...", "email": "...", "employeeRole": "CREW"}, ...]
+     * @param airline
+     * @param body
+     * @return EmployeeImportResultDto
+     */
+    public EmployeeImportResultDto importJson(Airline airline, InputStream body) throws IOException {
+        EmployeeImportResultDto result = new EmployeeImportResultDto(airline.getAirlineId(), 0, 0, null, null);
+        Batch batch = new Batch();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return failed(result, 1, "Expected a json array of employees");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                int line = parser.currentLocation().getLineNr();
+                try {
+                    batch.add(line, this.validate(objectMapper.readValue(parser, Employee.class)));
+                } catch (IllegalArgumentException e) {
+                    return failed(result, line, e.getMessage());
+                }
+                if (batch.isFull() && !this.saveBatch(airline, batch, result)) {
+                    return result;
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                return failed(result, parser.currentLocation().getLineNr(), "Expected an employee object");
+            }
+        } catch (JsonProcessingException e) {
+            // malformed json or a value of the wrong type
+            return failed(result, e.getLocation() == null ? 0 : e.getLocation().getLineNr(), e.getOriginalMessage());
+        }
+        this.saveBatch(airline, batch, result);
+        return result;
+    }
+
+    /**
+     * This method is responsible for importing csv rows of employees,
+     * the first line must be the header name,email,phone,address,employeeRole,status
+     * @param airline
+     * @param body
+     * @return EmployeeImportResultDto
+     */
+    public EmployeeImportResultDto importCsv(Airline airline, InputStream body) throws IOException {
+        EmployeeImportResultDto result = new EmployeeImportResultDto(airline.getAirlineId(), 0, 0, null, null);
+        Batch batch = new Batch();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null || !String.join(",", CSV_HEADER).equalsIgnoreCase(header.trim())) {
+                return failed(result, 1, "Expected csv header " + String.join(",", CSV_HEADER));
+            }
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(lineNumber, this.validate(this.mapCsvRow(this.splitCsvLine(line))));
+                } catch (IllegalArgumentException e) {
+                    return failed(result, lineNumber, e.getMessage());
+                }
+                if (batch.isFull() && !this.saveBatch(airline, batch, result)) {
+                    return result;
+                }
+            }
+        }
+        this.saveBatch(airline, batch, result);
+        return result;
+    }
+
+    // false when the database rejected the batch, it is rolled back and result says where it started
+    private boolean saveBatch(Airline airline, Batch batch, EmployeeImportResultDto result) {
+        if (batch.employees.isEmpty()) {
+            return true;
+        }
+        for (Employee employee : batch.employees) {
+            employee.setEmployeeId(null);
+            employee.setAirline(airline);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                employeeRepository.saveAll(batch.employees);
+                // write the batch and forget it, the persistence context must not grow with the file
+                entityManager.flush();
+                entityManager.clear();
+            });
+        } catch (PersistenceException | DataAccessException e) {
+            // the flush inside the transaction throws jpa's exceptions, they are not translated there
+            entityManager.clear();
+            failed(result, batch.firstLine, "The batch starting at this line was rejected by the database");
+            return false;
+        }
+        result.setImported(result.getImported() + batch.employees.size());
+        result.setBatches(result.getBatches() + 1);
+        batch.employees.clear();
+        return true;
+    }
+
+    private Employee validate(Employee employee) {
+        if (employee.getEmployeeRole() == null) {
+            throw new IllegalArgumentException("employeeRole is required for " + employee.getEmail());
+        }
+        if (employee.getStatus() == null) {
+            employee.setStatus("ACTIVE");
+        }
+        return employee;
+    }
+
+    private static EmployeeImportResultDto failed(EmployeeImportResultDto result, int line, String error) {
+        result.setFailedLine(line);
+        result.setError(error);
+        return result;
+    }
+
+    private Employee mapCsvRow(List<String> columns) {
+        if (columns.size() != CSV_HEADER.length) {
+            throw new IllegalArgumentException("Expected " + CSV_HEADER.length + " columns but got " + columns.size());
+        }
+        Employee employee = new Employee();
+        employee.setName(columns.get(0));
+        employee.setEmail(columns.get(1));
+        employee.setPhone(columns.get(2));
+        employee.setAddress(columns.get(3));
+        try {
+            employee.setEmployeeRole(EmployeeRole.valueOf(columns.get(4).trim().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown employeeRole " + columns.get(4));
+        }
+        employee.setStatus(columns.get(5).isBlank() ? null : columns.get(5));
+        return employee;
+    }
+
+    // splits one csv line, values may be wrapped in double quotes to carry commas ("Sector 5, Delhi")
+    private List<String> splitCsvLine(String line) {
+        List<String> columns = new ArrayList<>(CSV_HEADER.length);
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                columns.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        columns.add(value.toString());
+        return columns;
+    }
+
+    // the rows waiting to be saved and the line the first of them came from
+    static class Batch {
+        List<Employee> employees = new ArrayList<>(BATCH_SIZE);
+        int firstLine;
+
+        void add(int line, Employee employee) {
+            if (employees.isEmpty()) {
+                firstLine = line;
+            }
+            employees.add(employee);
+        }
+
+        boolean isFull() {
+            return employees.size() == BATCH_SIZE;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.dto.FeedbackSearchDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/*
+ * this class is responsible for full-text search over feedback comments.
+ *
+ * on postgres feed_back gets a generated tsvector column, comments_tsv, with a gin index on it. the
+ * database fills it on every insert and update of a feedback, so the index is always current, and a
+ * search is an index lookup ranked with ts_rank. queries use websearch syntax: words, "a phrase",
+ * -excluded, or. on other databases (h2 in development) every word has to appear in the comment,
+ * found with like, and all matches rank the same.
+ */
+
+@Service
+public class FeedbackSearchService {
+
+    static final String FROM = "from feed_back fb " +
+        "join flight fl on fl.flight_id = fb.flight_id " +
+        "left join airline a on a.airline_id = fl.airline_id " +
+        "left join airport o on o.airport_id = fl.origin_airport_id " +
+        "left join airport d on d.airport_id = fl.destination_airport_id ";
+
+    JdbcTemplate jdbcTemplate;
+    NamedParameterJdbcTemplate namedJdbcTemplate;
+    String language;
+
+    boolean postgres;
+
+    @Autowired
+    public FeedbackSearchService(DataSource dataSource,
+                                 @Value("${feedback.search.language:english}") String language) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.language = language;
+    }
+
+    // after hibernate has made feed_back, adding the column rewrites the table once
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndex() {
+        postgres = "PostgreSQL".equals(jdbcTemplate.execute(
+            (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+        if (!postgres) {
+            return;
+        }
+        jdbcTemplate.execute("alter table feed_back add column if not exists comments_tsv tsvector " +
+            "generated always as (to_tsvector('" + language + "', coalesce(comments, ''))) stored");
+        jdbcTemplate.execute("create index if not exists idx_feedback_comments_tsv on feed_back using gin (comments_tsv)");
+    }
+
+    /**
+     * This method is responsible for one page of feedbacks whose comments match the query, best match first
+     * @param query words to look for
+     * @param airlineId only feedbacks of this airline, or null
+     * @param originId with destinationId, only feedbacks of this route, or null
+     * @param destinationId
+     * @param rating only feedbacks with this rating, or null
+     * @param page from 0
+     * @param size
+     * @return FeedbackSearchDto, null when the query has no word to look for
+     */
+    public FeedbackSearchDto search(String query, UUID airlineId, UUID originId, UUID destinationId,
+                                    Integer rating, int page, int size) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("airlineId", airlineId)
+            .addValue("originId", originId)
+            .addValue("destinationId", destinationId)
+            .addValue("rating", rating)
+            .addValue("limit", size)
+            .addValue("offset", (long) page * size);
+        String match = this.match(query, parameters);
+        if (match == null) {
+            return null;
+        }
+        String rank = postgres ? "ts_rank(fb.comments_tsv, websearch_to_tsquery('" + language + "', :query))" : "0";
+
+        String filtered = FROM + "where " + match + this.filters(airlineId, originId, rating);
+        Long total = namedJdbcTemplate.queryForObject("select count(*) " + filtered, parameters, Long.class);
+
+        List<FeedbackSearchDto.Hit> hits = namedJdbcTemplate.query("select fb.feedback_id, fb.rating, fb.comments, " +
+            "fb.created_at, fb.customer_id, fl.flight_id, a.airline_id, a.name, o.airport_code, d.airport_code, " + rank + " as score " +
+            filtered + " order by score desc, fb.created_at desc, fb.feedback_id limit :limit offset :offset", parameters,
+            (row, i) -> {
+                OffsetDateTime createdAt = row.getObject(4, OffsetDateTime.class);
+                return new FeedbackSearchDto.Hit(row.getObject(1, UUID.class), (Integer) row.getObject(2), row.getString(3),
+                    createdAt == null ? null : createdAt.toZonedDateTime(), row.getObject(5, UUID.class),
+                    row.getObject(6, UUID.class), row.getObject(7, UUID.class), row.getString(8), row.getString(9),
+                    row.getString(10), row.getDouble(11));
+            });
+
+        // each facet ignores its own filter
+        List<FeedbackSearchDto.AirlineCount> airlines = namedJdbcTemplate.query("select a.airline_id, a.name, count(*) " +
+            FROM + "where " + match + this.filters(null, originId, rating) +
+            " and a.airline_id is not null group by a.airline_id, a.name order by count(*) desc", parameters,
+            (row, i) -> new FeedbackSearchDto.AirlineCount(row.getObject(1, UUID.class), row.getString(2), row.getLong(3)));
+        List<FeedbackSearchDto.RatingCount> ratings = namedJdbcTemplate.query("select fb.rating, count(*) " +
+            FROM + "where " + match + this.filters(airlineId, originId, null) +
+            " and fb.rating is not null group by fb.rating order by fb.rating desc", parameters,
+            (row, i) -> new FeedbackSearchDto.RatingCount(row.getInt(1), row.getLong(2)));
+
+        return new FeedbackSearchDto(query, total == null ? 0 : total, page, size, hits, airlines, ratings);
+    }
+
+    // the where clause that finds the comments, null when there is nothing to find
+    private String match(String query, MapSqlParameterSource parameters) {
+        if (query == null || query.isBlank()) {
+            return null;
+        }
+        if (postgres) {
+            parameters.addValue("query", query);
+            return "fb.comments_tsv @@ websearch_to_tsquery('" + language + "', :query)";
+        }
+        List<String> words = words(query);
+        if (words.isEmpty()) {
+            return null;
+        }
+        List<String> likes = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            parameters.addValue("word" + i, "%" + words.get(i) + "%");
+            likes.add("lower(fb.comments) like :word" + i);
+        }
+        return "(" + String.join(" and ", likes) + ")";
+    }
+
+    private String filters(UUID airlineId, UUID originId, Integer rating) {
+        StringBuilder filters = new StringBuilder();
+        if (airlineId != null) {
+            filters.append(" and fl.airline_id = :airlineId");
+        }
+        if (originId != null) {
+            filters.append(" and fl.origin_airport_id = :originId and fl.destination_airport_id = :destinationId");
+        }
+        if (rating != null) {
+            filters.append(" and fb.rating = :rating");
+        }
+        return filters.toString();
+    }
+
+    // letters and digits only, so nothing in a word means anything to like
+    static List<String> words(String query) {
+        List<String> words = new ArrayList<>();
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
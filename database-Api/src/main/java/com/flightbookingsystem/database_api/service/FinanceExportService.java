@@ -0,0 +1,206 @@
+package com.flightbookingsystem.database_api.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * this class is responsible for the finance export, bookings joined with their payments as csv.
+ *
+ * the rows are read with a database cursor, fetch-size rows at a time, and every row is written to
+ * the response as soon as it is read. nothing is mapped to entities and nothing is collected, so a
+ * day of bookings costs the same heap as a single booking. postgres only keeps a cursor open inside
+ * a transaction, so the read runs in a read only one.
+ *
+ * with the archive the live and the archived bookings are read by two cursors, each in booking_time
+ * order from its own index, and merged row by row. a union under one order by would sort the whole
+ * range in the database before the first row came back.
+ */
+
+@Service
+public class FinanceExportService {
+
+    static final String[] CSV_HEADER = {"bookingId", "pnrNumber", "bookingTime", "bookingStatus", "airline",
+        "flightId", "departure", "customerId", "paymentId", "amount", "method", "paymentStatus", "txnReference"};
+
+    static final String SQL =
+        "select b.booking_id, b.pnr_number, b.booking_time, b.booking_status, a.name, " +
+        "f.flight_id, f.departure, b.customer_id, p.payment_id, p.amount, p.method, p.payment_status, p.txn_reference " +
+        "from booking b " +
+        "join flight f on f.flight_id = b.flight_id " +
+        "join airline a on a.airline_id = f.airline_id " +
+        "left join payment p on p.payment_id = b.payment_id " +
+        "where b.booking_time >= ? and b.booking_time < ?";
+
+    // bookings of departed flights moved by ArchiveService, a booking is made before its flight
+    // departs, so departure >= from only opens the archive partitions that can hold the range
+    static final String ARCHIVE_SQL =
+        "select booking_id, pnr_number, booking_time, booking_status, airline_name, " +
+        "flight_id, departure, customer_id, payment_id, amount, method, payment_status, txn_reference " +
+        "from booking_archive " +
+        "where booking_time >= ? and booking_time < ? and departure >= ?";
+
+    // its own template, the fetch size must not change the other queries
+    JdbcTemplate cursorTemplate;
+    TransactionTemplate readOnlyTransaction;
+    int fetchSize;
+
+    @Autowired
+    public FinanceExportService(DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${export.fetch-size:1000}") int fetchSize) {
+        this.cursorTemplate = new JdbcTemplate(dataSource);
+        this.cursorTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * This method is responsible for writing the bookings made in [from, to) with their payments,
+     * of one airline or of all when airlineId is null, the first line is the header
+     * @param from
+     * @param to
+     * @param airlineId
+     * @param archived also the archived bookings of departed flights
+     * @param out
+     * @return number of bookings written
+     */
+    public long writeBookingsCsv(ZonedDateTime from, ZonedDateTime to, UUID airlineId, boolean archived, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(String.join(",", CSV_HEADER));
+        writer.write('\n');
+
+        List<Object> parameters = new ArrayList<>(List.of(from.toOffsetDateTime(), to.toOffsetDateTime()));
+        String sql = SQL;
+        if (airlineId != null) {
+            sql += " and f.airline_id = ?";
+            parameters.add(airlineId);
+        }
+        String query = sql + " order by b.booking_time";
+
+        if (!archived) {
+            long[] rows = {0};
+            try {
+                readOnlyTransaction.executeWithoutResult(status ->
+                    cursorTemplate.query(query, (ResultSet row) -> {
+                        this.write(writer, row);
+                        rows[0]++;
+                    }, parameters.toArray()));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+            return rows[0];
+        }
+
+        List<Object> archiveParameters = new ArrayList<>(List.of(from.toOffsetDateTime(), to.toOffsetDateTime(), from.toOffsetDateTime()));
+        String archiveSql = ARCHIVE_SQL;
+        if (airlineId != null) {
+            archiveSql += " and airline_id = ?";
+            archiveParameters.add(airlineId);
+        }
+        String archiveQuery = archiveSql + " order by booking_time";
+
+        Long rows;
+        try {
+            rows = readOnlyTransaction.execute(status -> cursorTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try (PreparedStatement live = this.prepare(connection, query, parameters);
+                     PreparedStatement archive = this.prepare(connection, archiveQuery, archiveParameters);
+                     ResultSet liveRows = live.executeQuery();
+                     ResultSet archiveRows = archive.executeQuery()) {
+                    return this.merge(writer, liveRows, archiveRows);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return rows == null ? 0 : rows;
+    }
+
+    // writes both cursors in booking_time order, each is already sorted, so only their current rows are compared
+    private long merge(Writer writer, ResultSet live, ResultSet archive) throws SQLException {
+        long rows = 0;
+        boolean hasLive = live.next();
+        boolean hasArchive = archive.next();
+        while (hasLive || hasArchive) {
+            boolean takeLive = hasLive && (!hasArchive
+                || !bookingTime(live).isAfter(bookingTime(archive)));
+            if (takeLive) {
+                this.write(writer, live);
+                hasLive = live.next();
+            } else {
+                this.write(writer, archive);
+                hasArchive = archive.next();
+            }
+            rows++;
+        }
+        return rows;
+    }
+
+    private PreparedStatement prepare(Connection connection, String sql, List<Object> parameters) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statement.setFetchSize(fetchSize);
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
+        }
+        return statement;
+    }
+
+    private void write(Writer writer, ResultSet row) throws SQLException {
+        try {
+            this.writeRow(writer, row);
+        } catch (IOException e) {
+            // the client went away, stop reading
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static OffsetDateTime bookingTime(ResultSet row) throws SQLException {
+        return row.getObject("booking_time", OffsetDateTime.class);
+    }
+
+    private void writeRow(Writer writer, ResultSet row) throws SQLException, IOException {
+        for (int column = 1; column <= CSV_HEADER.length; column++) {
+            if (column > 1) {
+                writer.write(',');
+            }
+            Object value = (column == 3 || column == 7) ? row.getObject(column, OffsetDateTime.class) : row.getObject(column);
+            if (value != null) {
+                writer.write(escape(value.toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    // wraps values with commas, quotes or line breaks in double quotes, like the employee csv import reads them
+    static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,189 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.model.Booking;
+import com.flightbookingsystem.database_api.model.Flight;
+import com.flightbookingsystem.database_api.model.ItineraryEntry;
+import com.flightbookingsystem.database_api.model.Payment;
+import com.flightbookingsystem.database_api.model.Seat;
+import com.flightbookingsystem.database_api.reposatories.BookingRepository;
+import com.flightbookingsystem.database_api.reposatories.ItineraryEntryRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * this class is responsible for keeping the customer itinerary read model (ItineraryEntry) in step
+ * with bookings, payments, seats and flights. every method joins the transaction of the write that
+ * caused it, so the booking and its itinerary row change together.
+ */
+
+@Service
+public class ItineraryService {
+
+    static final Logger log = LoggerFactory.getLogger(ItineraryService.class);
+    static final int REBUILD_PAGE_SIZE = 500;
+
+    ItineraryEntryRepository itineraryEntryRepository;
+    BookingRepository bookingRepository;
+    TransactionTemplate transactionTemplate;
+    EntityManager entityManager;
+
+    @Autowired
+    public ItineraryService(ItineraryEntryRepository itineraryEntryRepository,
+                            BookingRepository bookingRepository,
+                            TransactionTemplate transactionTemplate,
+                            EntityManager entityManager) {
+        this.itineraryEntryRepository = itineraryEntryRepository;
+        this.bookingRepository = bookingRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+    }
+
+    // a booking was created or changed, write its whole row again.
+    // a booking without a customer is in no itinerary, and must not fail the save that caused it
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookingSaved(Booking booking) {
+        if (booking.getCustomer() == null) {
+            if (booking.getBookingId() != null) {
+                itineraryEntryRepository.deleteById(booking.getBookingId());
+            }
+            return;
+        }
+        itineraryEntryRepository.save(this.toEntry(booking));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookingDeleted(UUID bookingId) {
+        itineraryEntryRepository.deleteById(bookingId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void paymentSaved(Payment payment) {
+        itineraryEntryRepository.updatePayment(payment.getPaymentId(), payment.getAmount(),
+            payment.getMethod(), payment.getPaymentStatus());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void paymentDeleted(UUID paymentId) {
+        itineraryEntryRepository.clearPayment(paymentId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void seatSaved(Seat seat) {
+        itineraryEntryRepository.updateSeat(seat.getSeatId(), seat.getSeatNumber(), seat.getSeatClass());
+    }
+
+    // schedule, status or route of a flight changed, every booking on it is updated in one statement
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void flightSaved(Flight flight) {
+        itineraryEntryRepository.updateFlight(flight.getFlightId(),
+            flight.getDeparture(),
+            flight.getArrival(),
+            flight.getStatus(),
+            flight.getAirline() != null ? flight.getAirline().getName() : null,
+            flight.getOriginAirport() != null ? flight.getOriginAirport().getAirportCode() : null,
+            flight.getOriginAirport() != null ? flight.getOriginAirport().getCity() : null,
+            flight.getDestinationAirport() != null ? flight.getDestinationAirport().getAirportCode() : null,
+            flight.getDestinationAirport() != null ? flight.getDestinationAirport().getCity() : null);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void flightDeleted(UUID flightId) {
+        itineraryEntryRepository.deleteByFlight(flightId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void customerDeleted(UUID customerId) {
+        itineraryEntryRepository.deleteByCustomer(customerId);
+    }
+
+    /*
+     * fills the read model from the bookings table when it is empty, e.g. on the first start
+     * after the table was added. pages of REBUILD_PAGE_SIZE bookings, one transaction each.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (itineraryEntryRepository.count() > 0 || bookingRepository.count() == 0) {
+            return;
+        }
+        int rebuilt = 0;
+        PageRequest page = PageRequest.of(0, REBUILD_PAGE_SIZE, Sort.by("bookingId"));
+        while (page != null) {
+            PageRequest current = page;
+            Slice<Booking> bookings = transactionTemplate.execute(status -> {
+                Slice<Booking> slice = bookingRepository.findDetailBy(current);
+                List<ItineraryEntry> entries = new ArrayList<>(slice.getNumberOfElements());
+                for (Booking booking : slice) {
+                    if (booking.getCustomer() != null) {
+                        entries.add(this.toEntry(booking));
+                    }
+                }
+                itineraryEntryRepository.saveAll(entries);
+                entityManager.flush();
+                entityManager.clear();
+                return slice;
+            });
+            rebuilt += bookings.getNumberOfElements();
+            page = bookings.hasNext() ? current.next() : null;
+        }
+        log.info("customer itinerary rebuilt from {} bookings", rebuilt);
+    }
+
+    private ItineraryEntry toEntry(Booking booking) {
+        ItineraryEntry entry = new ItineraryEntry();
+        entry.setBookingId(booking.getBookingId());
+        entry.setCustomerId(booking.getCustomer().getCustomerId());
+        entry.setPnrNumber(booking.getPnrNumber());
+        entry.setBookingStatus(booking.getBookingStatus());
+        entry.setBookingTime(booking.getBookingTime());
+
+        Flight flight = booking.getFlight();
+        if (flight != null) {
+            entry.setFlightId(flight.getFlightId());
+            entry.setDeparture(flight.getDeparture());
+            entry.setArrival(flight.getArrival());
+            entry.setFlightStatus(flight.getStatus());
+            if (flight.getAirline() != null) {
+                entry.setAirlineName(flight.getAirline().getName());
+            }
+            if (flight.getOriginAirport() != null) {
+                entry.setOriginAirportCode(flight.getOriginAirport().getAirportCode());
+                entry.setOriginCity(flight.getOriginAirport().getCity());
+            }
+            if (flight.getDestinationAirport() != null) {
+                entry.setDestinationAirportCode(flight.getDestinationAirport().getAirportCode());
+                entry.setDestinationCity(flight.getDestinationAirport().getCity());
+            }
+        }
+
+        Seat seat = booking.getSeat();
+        if (seat != null) {
+            entry.setSeatId(seat.getSeatId());
+            entry.setSeatNumber(seat.getSeatNumber());
+            entry.setSeatClass(seat.getSeatClass());
+        }
+
+        Payment payment = booking.getPayment();
+        if (payment != null) {
+            entry.setPaymentId(payment.getPaymentId());
+            entry.setAmount(payment.getAmount());
+            entry.setPaymentMethod(payment.getMethod());
+            entry.setPaymentStatus(payment.getPaymentStatus());
+        }
+        return entry;
+    }
+}
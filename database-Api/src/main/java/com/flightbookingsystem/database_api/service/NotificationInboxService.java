@@ -0,0 +1,95 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.model.NotificationInbox;
+import com.flightbookingsystem.database_api.reposatories.NotificationInboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+/*
+ * this class is responsible for the unread counters of the notification inboxes (NotificationInbox).
+ * a counter moves by exactly the number of notifications a write made unread or read and commits with
+ * that write, so it stays right when notifications arrive while the customer marks others read.
+ */
+
+@Service
+public class NotificationInboxService {
+
+    static final Logger log = LoggerFactory.getLogger(NotificationInboxService.class);
+
+    NotificationInboxRepository notificationInboxRepository;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public NotificationInboxService(NotificationInboxRepository notificationInboxRepository,
+                                    DataSource dataSource,
+                                    TransactionTemplate transactionTemplate) {
+        this.notificationInboxRepository = notificationInboxRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * This method is responsible for the unread count of a customer, one row read
+     * @param customerId
+     * @return long
+     */
+    public long unreadCount(UUID customerId) {
+        return notificationInboxRepository.findById(customerId).map(NotificationInbox::getUnreadCount).orElse(0L);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void notificationCreated(UUID customerId) {
+        notificationInboxRepository.addUnread(customerId, 1);
+    }
+
+    // read is how many notifications a mark-read turned from unread to read
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void notificationsRead(UUID customerId, int read) {
+        if (read > 0) {
+            notificationInboxRepository.addUnread(customerId, -read);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void notificationDeleted(UUID customerId, boolean unread) {
+        if (unread) {
+            notificationInboxRepository.addUnread(customerId, -1);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void customerDeleted(UUID customerId) {
+        notificationInboxRepository.deleteById(customerId);
+    }
+
+    /*
+     * fills the counters from the notifications when there are none yet, e.g. on the first start
+     * after the table was added. notifications from before then have no readAt and count as unread.
+     * a node starting at the same time on the empty table skips the customers the other one wrote.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (notificationInboxRepository.count() > 0) {
+            return;
+        }
+        int rows = transactionTemplate.execute(status -> jdbcTemplate.update(
+            "insert into notification_inbox (customer_id, unread_count) " +
+            "select customer_id, count(*) from notification where read_at is null and customer_id is not null group by customer_id " +
+            "on conflict do nothing"));
+        if (rows > 0) {
+            log.info("notification inboxes rebuilt for {} customers", rows);
+        }
+    }
+}
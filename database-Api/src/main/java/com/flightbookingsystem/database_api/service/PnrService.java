@@ -0,0 +1,147 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.dto.PnrBookingDto;
+import com.flightbookingsystem.database_api.reposatories.BookingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/*
+ * this class is responsible for giving every booking its PNR and for looking bookings up by it.
+ *
+ * a PNR is a number from the booking_pnr_seq database sequence written in 6 base-32 characters.
+ * the sequence moves in steps of BLOCK_SIZE, so one nextval reserves a block of numbers for this
+ * node and the next BLOCK_SIZE PNRs are made in memory. numbers are never handed out twice, so
+ * codes can not collide and nothing has to be checked or retried. the number is scrambled with a
+ * reversible mix before it is written, so consecutive bookings do not get guessable neighbours.
+ *
+ * lookups by PNR are cached as immutable PnrBookingDto copies. a change of a booking evicts its entry
+ * only once the change is committed, before that a concurrent read would put the old row back.
+ * with a read replica only lookups that read from the primary fill the cache, a lagging replica could
+ * put a booking back as it was before a write whose client reads with X-Session-Lsn.
+ */
+
+@Service
+public class PnrService {
+
+    public static final String CACHE = "bookingByPnr";
+
+    static final String SEQUENCE = "booking_pnr_seq";
+    static final int BLOCK_SIZE = 64;
+    static final int LENGTH = 6;
+
+    // crockford base 32, no I, L, O or U so codes read back without mistakes
+    static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    static final int BITS = 5 * LENGTH;
+    static final long MASK = (1L << BITS) - 1;
+
+    JdbcTemplate jdbcTemplate;
+    EntityManagerFactory entityManagerFactory;
+    BookingRepository bookingRepository;
+    ApplicationEventPublisher eventPublisher;
+    CacheManager cacheManager;
+
+    String nextValueSql;
+    long next;
+    long blockEnd;
+
+    @Autowired
+    public PnrService(JdbcTemplate jdbcTemplate,
+                      EntityManagerFactory entityManagerFactory,
+                      BookingRepository bookingRepository,
+                      ApplicationEventPublisher eventPublisher,
+                      CacheManager cacheManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.bookingRepository = bookingRepository;
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
+    }
+
+    @PostConstruct
+    void createSequence() {
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        jdbcTemplate.execute("create sequence if not exists " + SEQUENCE + " start with 1 increment by " + BLOCK_SIZE);
+        this.nextValueSql = dialect.getSequenceSupport().getSequenceNextValString(SEQUENCE);
+    }
+
+    /**
+     * This method is responsible for making the next PNR
+     * @return String like 7KQ2XM
+     */
+    public synchronized String generate() {
+        if (next == blockEnd) {
+            long blockStart = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+            next = blockStart;
+            blockEnd = blockStart + BLOCK_SIZE;
+        }
+        return encode(next++);
+    }
+
+    /**
+     * This method is responsible for finding a booking by PNR, with the booking detail graph.
+     * answers are cached for spring.cache.caffeine.spec, updates and deletes of the booking evict them.
+     * answers read from the replica are not cached.
+     * @param pnr
+     * @return PnrBookingDto or null
+     */
+    @Cacheable(cacheNames = CACHE, unless = "#result == null || T(com.flightbookingsystem.database_api.replica.ReplicaRoutingDataSource).onReplica()")
+    public PnrBookingDto findByPnr(String pnr) {
+        return bookingRepository.findDetailByPnrNumber(pnr).map(PnrBookingDto::of).orElse(null);
+    }
+
+    // the booking with this PNR changed, its cache entry goes once the change is committed
+    public void evict(String pnr) {
+        if (pnr != null) {
+            eventPublisher.publishEvent(new PnrChanged(pnr));
+        }
+    }
+
+    // after commit, or right away when there is no transaction
+    @TransactionalEventListener(fallbackExecution = true)
+    public void evictAfterCommit(PnrChanged changed) {
+        Cache cache = cacheManager.getCache(CACHE);
+        if (cache != null) {
+            cache.evict(changed.getPnr());
+        }
+    }
+
+    // number -> 6 characters, one to one for every number below 2^30, longer codes after that
+    static String encode(long number) {
+        long value = (number & ~MASK) | scramble(number & MASK);
+        int length = LENGTH;
+        while (length < 13 && (value >>> (5 * length)) != 0) {
+            length++;
+        }
+        char[] code = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            code[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(code);
+    }
+
+    // a bijection on 30 bits: odd multipliers and xor-shifts can all be undone, so no two inputs meet
+    static long scramble(long x) {
+        x = (x * 0x2C1B3C6DL) & MASK;
+        x ^= x >>> 15;
+        x = (x * 0x297A2D39L) & MASK;
+        x ^= x >>> 13;
+        return x ^ 0x15A4E35L;
+    }
+
+    @Value
+    public static class PnrChanged {
+        String pnr;
+    }
+}
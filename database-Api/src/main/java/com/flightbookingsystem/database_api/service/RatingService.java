@@ -0,0 +1,185 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.model.Airline;
+import com.flightbookingsystem.database_api.model.Airport;
+import com.flightbookingsystem.database_api.model.Flight;
+import com.flightbookingsystem.database_api.model.RatingAggregate;
+import com.flightbookingsystem.database_api.model.RatingAggregateId;
+import com.flightbookingsystem.database_api.model.RatingScope;
+import com.flightbookingsystem.database_api.reposatories.RatingAggregateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+/*
+ * this class is responsible for keeping the rating aggregates (RatingAggregate) of flights, airlines
+ * and routes in step with the feedbacks. a feedback or flight write changes each aggregate it touches
+ * with one upsert before it commits, so reading a rating is one row whatever the number of feedbacks.
+ *
+ * archiving a feedback (ArchiveService) does not take it out of the aggregates, they count every
+ * feedback ever given.
+ */
+
+@Service
+public class RatingService {
+
+    static final Logger log = LoggerFactory.getLogger(RatingService.class);
+
+    RatingAggregateRepository ratingAggregateRepository;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public RatingService(RatingAggregateRepository ratingAggregateRepository,
+                         DataSource dataSource,
+                         TransactionTemplate transactionTemplate) {
+        this.ratingAggregateRepository = ratingAggregateRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public static boolean isValid(Integer rating) {
+        return rating != null && rating >= 1 && rating <= 5;
+    }
+
+    /**
+     * This method is responsible for the aggregates of one subject, all zero when it has no feedback yet
+     * @param scope
+     * @param subjectId flight, airline or origin airport id
+     * @param otherId destination airport id of a route, null otherwise
+     * @return RatingAggregate
+     */
+    public RatingAggregate find(RatingScope scope, UUID subjectId, UUID otherId) {
+        RatingAggregateId id = new RatingAggregateId(scope, subjectId, otherId == null ? RatingAggregateId.NONE : otherId);
+        return ratingAggregateRepository.findById(id).orElseGet(() -> new RatingAggregate(id));
+    }
+
+    // a feedback with this rating was given for the flight
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ratingAdded(Flight flight, int rating) {
+        this.addToFlight(flight, Delta.of(rating, 1));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ratingRemoved(Flight flight, int rating) {
+        this.addToFlight(flight, Delta.of(rating, -1));
+    }
+
+    // the airline or the route of a flight changed, its feedbacks move along with it
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void flightMoved(Airline oldAirline, Airport oldOrigin, Airport oldDestination, Flight flight) {
+        if (same(oldAirline == null ? null : oldAirline.getAirlineId(), flight.getAirline() == null ? null : flight.getAirline().getAirlineId())
+                && same(oldOrigin == null ? null : oldOrigin.getAirportId(), flight.getOriginAirport() == null ? null : flight.getOriginAirport().getAirportId())
+                && same(oldDestination == null ? null : oldDestination.getAirportId(), flight.getDestinationAirport() == null ? null : flight.getDestinationAirport().getAirportId())) {
+            return;
+        }
+        RatingAggregate aggregate = ratingAggregateRepository.findById(
+            new RatingAggregateId(RatingScope.FLIGHT, flight.getFlightId(), RatingAggregateId.NONE)).orElse(null);
+        if (aggregate == null || aggregate.getRatingCount() == 0) {
+            return;
+        }
+        this.addToAirlineAndRoute(oldAirline, oldOrigin, oldDestination, Delta.of(aggregate, -1));
+        this.addToAirlineAndRoute(flight.getAirline(), flight.getOriginAirport(), flight.getDestinationAirport(), Delta.of(aggregate, 1));
+    }
+
+    // the flight is deleted with its feedbacks, they leave its airline and route
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void flightDeleted(Flight flight) {
+        RatingAggregateId id = new RatingAggregateId(RatingScope.FLIGHT, flight.getFlightId(), RatingAggregateId.NONE);
+        RatingAggregate aggregate = ratingAggregateRepository.findById(id).orElse(null);
+        if (aggregate == null) {
+            return;
+        }
+        this.addToAirlineAndRoute(flight.getAirline(), flight.getOriginAirport(), flight.getDestinationAirport(), Delta.of(aggregate, -1));
+        ratingAggregateRepository.delete(aggregate);
+    }
+
+    private void addToFlight(Flight flight, Delta delta) {
+        this.add(new RatingAggregateId(RatingScope.FLIGHT, flight.getFlightId(), RatingAggregateId.NONE), delta);
+        this.addToAirlineAndRoute(flight.getAirline(), flight.getOriginAirport(), flight.getDestinationAirport(), delta);
+    }
+
+    private void addToAirlineAndRoute(Airline airline, Airport origin, Airport destination, Delta delta) {
+        if (airline != null) {
+            this.add(new RatingAggregateId(RatingScope.AIRLINE, airline.getAirlineId(), RatingAggregateId.NONE), delta);
+        }
+        if (origin != null && destination != null) {
+            this.add(new RatingAggregateId(RatingScope.ROUTE, origin.getAirportId(), destination.getAirportId()), delta);
+        }
+    }
+
+    private void add(RatingAggregateId id, Delta delta) {
+        ratingAggregateRepository.add(id.getScope().name(), id.getSubjectId(), id.getOtherId(), delta.count, delta.sum,
+            delta.stars[0], delta.stars[1], delta.stars[2], delta.stars[3], delta.stars[4]);
+    }
+
+    private static boolean same(UUID a, UUID b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /*
+     * fills the aggregates from the feedbacks, archived ones included, when there are none yet,
+     * e.g. on the first start after the table was added. one statement per scope. when two nodes
+     * start on the empty table, the rows of the one that commits first are kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (ratingAggregateRepository.count() > 0) {
+            return;
+        }
+        String feedbacks = "(select flight_id, rating from feed_back union all select flight_id, rating from feedback_archive) fb " +
+            "join flight fl on fl.flight_id = fb.flight_id where fb.rating between 1 and 5";
+        String totals = "count(*), sum(fb.rating), " +
+            "sum(case when fb.rating = 1 then 1 else 0 end), sum(case when fb.rating = 2 then 1 else 0 end), " +
+            "sum(case when fb.rating = 3 then 1 else 0 end), sum(case when fb.rating = 4 then 1 else 0 end), " +
+            "sum(case when fb.rating = 5 then 1 else 0 end)";
+        String insert = "insert into rating_aggregate (scope, subject_id, other_id, rating_count, rating_sum, " +
+            "stars1, stars2, stars3, stars4, stars5) ";
+        String keepFirst = " on conflict do nothing";
+        int rows = transactionTemplate.execute(status ->
+            jdbcTemplate.update(insert + "select '" + RatingScope.FLIGHT + "', fl.flight_id, ?, " + totals +
+                " from " + feedbacks + " group by fl.flight_id" + keepFirst, RatingAggregateId.NONE)
+            + jdbcTemplate.update(insert + "select '" + RatingScope.AIRLINE + "', fl.airline_id, ?, " + totals +
+                " from " + feedbacks + " and fl.airline_id is not null group by fl.airline_id" + keepFirst, RatingAggregateId.NONE)
+            + jdbcTemplate.update(insert + "select '" + RatingScope.ROUTE + "', fl.origin_airport_id, fl.destination_airport_id, " + totals +
+                " from " + feedbacks + " and fl.origin_airport_id is not null and fl.destination_airport_id is not null " +
+                "group by fl.origin_airport_id, fl.destination_airport_id" + keepFirst));
+        if (rows > 0) {
+            log.info("rating aggregates rebuilt, {} flights, airlines and routes", rows);
+        }
+    }
+
+    // what one write adds to an aggregate, negative when feedbacks go away
+    static class Delta {
+        long count;
+        long sum;
+        long[] stars = new long[5];
+
+        static Delta of(int rating, int sign) {
+            Delta delta = new Delta();
+            delta.count = sign;
+            delta.sum = (long) sign * rating;
+            delta.stars[rating - 1] = sign;
+            return delta;
+        }
+
+        static Delta of(RatingAggregate aggregate, int sign) {
+            Delta delta = new Delta();
+            delta.count = sign * aggregate.getRatingCount();
+            delta.sum = sign * aggregate.getRatingSum();
+            delta.stars = new long[] {sign * aggregate.getStars1(), sign * aggregate.getStars2(), sign * aggregate.getStars3(),
+                sign * aggregate.getStars4(), sign * aggregate.getStars5()};
+            return delta;
+        }
+    }
+}
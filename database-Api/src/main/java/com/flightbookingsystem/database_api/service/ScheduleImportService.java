@@ -0,0 +1,514 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flightbookingsystem.database_api.dto.ScheduleEntryDto;
+import com.flightbookingsystem.database_api.dto.SeatTemplateDto;
+import com.flightbookingsystem.database_api.model.Aircraft;
+import com.flightbookingsystem.database_api.model.Airline;
+import com.flightbookingsystem.database_api.model.Airport;
+import com.flightbookingsystem.database_api.model.Fare;
+import com.flightbookingsystem.database_api.model.Flight;
+import com.flightbookingsystem.database_api.model.ScheduleImport;
+import com.flightbookingsystem.database_api.model.ScheduleImportStatus;
+import com.flightbookingsystem.database_api.model.Seat;
+import com.flightbookingsystem.database_api.model.SeatStatus;
+import com.flightbookingsystem.database_api.reposatories.AircraftRepository;
+import com.flightbookingsystem.database_api.reposatories.AirportRepository;
+import com.flightbookingsystem.database_api.reposatories.FareRepository;
+import com.flightbookingsystem.database_api.reposatories.FlightRepository;
+import com.flightbookingsystem.database_api.reposatories.ScheduleImportRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+ * this class is responsible for importing a season's timetable of one airline.
+ *
+ * every schedule entry (DEL -> HYD daily 06:00 on aircraft X from A to B) is expanded into one flight
+ * per matching day, and optionally the same seats on every flight. the whole timetable is checked
+ * before anything is written: airports, aircraft and fares must exist, the aircraft must belong to
+ * the airline, and no aircraft may fly two legs at once or turn around faster than min-turnaround.
+ *
+ * a valid timetable is written in the background in chunks of about rows-per-chunk rows, every chunk
+ * is its own transaction. the expansion always gives the same flights in the same order, so the
+ * import only has to remember how many flights it wrote (ScheduleImport.importedFlights) to carry on
+ * after a failure or a restart.
+ *
+ * another import or node can schedule the same aircraft between the check and the write, so every
+ * chunk locks the rows of its aircraft and checks its flights against the scheduled ones again. a
+ * chunk that conflicts is not written and the import stops FAILED with the conflicts in error.
+ */
+
+@Service
+public class ScheduleImportService {
+
+    static final Logger log = LoggerFactory.getLogger(ScheduleImportService.class);
+    static final int MAX_PROBLEMS = 100;
+    static final TypeReference<List<ScheduleEntryDto>> ENTRIES = new TypeReference<>() {};
+
+    ScheduleImportRepository scheduleImportRepository;
+    FlightRepository flightRepository;
+    AirportRepository airportRepository;
+    AircraftRepository aircraftRepository;
+    FareRepository fareRepository;
+    TransactionTemplate transactionTemplate;
+    EntityManager entityManager;
+    ObjectMapper objectMapper;
+
+    Duration minTurnaround;
+    int rowsPerChunk;
+    int maxFlights;
+
+    // one import at a time, the imports share the database with live bookings
+    ExecutorService runner = Executors.newSingleThreadExecutor();
+
+    @Autowired
+    public ScheduleImportService(ScheduleImportRepository scheduleImportRepository,
+                                 FlightRepository flightRepository,
+                                 AirportRepository airportRepository,
+                                 AircraftRepository aircraftRepository,
+                                 FareRepository fareRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 EntityManager entityManager,
+                                 ObjectMapper objectMapper,
+                                 @Value("${schedule.import.min-turnaround-minutes:30}") long minTurnaroundMinutes,
+                                 @Value("${schedule.import.rows-per-chunk:5000}") int rowsPerChunk,
+                                 @Value("${schedule.import.max-flights:200000}") int maxFlights) {
+        this.scheduleImportRepository = scheduleImportRepository;
+        this.flightRepository = flightRepository;
+        this.airportRepository = airportRepository;
+        this.aircraftRepository = aircraftRepository;
+        this.fareRepository = fareRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.minTurnaround = Duration.ofMinutes(minTurnaroundMinutes);
+        this.rowsPerChunk = rowsPerChunk;
+        this.maxFlights = maxFlights;
+    }
+
+    /**
+     * This method is responsible for checking a timetable and starting its import,
+     * a timetable with problems is not saved and comes back REJECTED with the problems in error
+     * @param airline
+     * @param entries
+     * @return ScheduleImport
+     */
+    public ScheduleImport start(Airline airline, List<ScheduleEntryDto> entries) throws JsonProcessingException {
+        ScheduleImport scheduleImport = new ScheduleImport();
+        scheduleImport.setAirlineId(airline.getAirlineId());
+        scheduleImport.setCreatedAt(ZonedDateTime.now());
+        scheduleImport.setUpdatedAt(scheduleImport.getCreatedAt());
+
+        List<String> problems = new ArrayList<>();
+        List<PlannedFlight> planned = this.check(airline, entries, problems);
+        if (!problems.isEmpty()) {
+            scheduleImport.setStatus(ScheduleImportStatus.REJECTED);
+            scheduleImport.setError(String.join("\n", problems));
+            return scheduleImport;
+        }
+
+        scheduleImport.setStatus(ScheduleImportStatus.RUNNING);
+        scheduleImport.setTimetable(objectMapper.writeValueAsString(entries));
+        scheduleImport.setTotalFlights(planned.size());
+        ScheduleImport saved = scheduleImportRepository.save(scheduleImport);
+        runner.execute(() -> this.run(saved.getImportId()));
+        return saved;
+    }
+
+    // carries on with a FAILED import from the first flight it did not write
+    public ScheduleImport resume(ScheduleImport scheduleImport) {
+        scheduleImport.setStatus(ScheduleImportStatus.RUNNING);
+        scheduleImport.setError(null);
+        scheduleImport.setUpdatedAt(ZonedDateTime.now());
+        ScheduleImport saved = scheduleImportRepository.save(scheduleImport);
+        runner.execute(() -> this.run(saved.getImportId()));
+        return saved;
+    }
+
+    // imports that were still running when the service stopped carry on by themselves
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        for (ScheduleImport scheduleImport : scheduleImportRepository.findByStatus(ScheduleImportStatus.RUNNING)) {
+            log.info("Resuming schedule import {} at flight {} of {}", scheduleImport.getImportId(),
+                scheduleImport.getImportedFlights(), scheduleImport.getTotalFlights());
+            runner.execute(() -> this.run(scheduleImport.getImportId()));
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        // the import stays RUNNING and is resumed at the next start
+        runner.shutdownNow();
+    }
+
+    void run(UUID importId) {
+        ScheduleImport scheduleImport = scheduleImportRepository.findById(importId).orElse(null);
+        if (scheduleImport == null || scheduleImport.getStatus() != ScheduleImportStatus.RUNNING) {
+            return;
+        }
+        try {
+            List<ScheduleEntryDto> entries = objectMapper.readValue(scheduleImport.getTimetable(), ENTRIES);
+            List<PlannedFlight> planned = expand(entries);
+            int imported = scheduleImport.getImportedFlights();
+
+            List<PlannedFlight> chunk = new ArrayList<>();
+            int rows = 0;
+            for (int i = imported; i < planned.size(); i++) {
+                PlannedFlight flight = planned.get(i);
+                chunk.add(flight);
+                rows += 1 + seatCount(entries.get(flight.entry));
+                if (rows >= rowsPerChunk || i == planned.size() - 1) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    if (!this.saveChunk(scheduleImport, entries, chunk, imported)) {
+                        log.info("Schedule import {} was taken over by another runner", importId);
+                        return;
+                    }
+                    imported += chunk.size();
+                    log.debug("Schedule import {}: {} of {} flights", importId, imported, planned.size());
+                    chunk.clear();
+                    rows = 0;
+                }
+            }
+            this.finish(importId, ScheduleImportStatus.COMPLETED, null);
+        } catch (Exception e) {
+            if (runner.isShutdown()) {
+                return;
+            }
+            log.warn("Schedule import {} failed, resume it once the cause is fixed", importId, e);
+            this.finish(importId, ScheduleImportStatus.FAILED, String.valueOf(e.getMessage()));
+        }
+    }
+
+    // writes one chunk of flights with their seats and moves the progress on in the same transaction
+    private boolean saveChunk(ScheduleImport scheduleImport, List<ScheduleEntryDto> entries,
+                              List<PlannedFlight> chunk, int imported) {
+        Boolean saved = transactionTemplate.execute(status -> {
+            this.recheckAircraftAvailability(entries, chunk);
+            Airline airline = entityManager.getReference(Airline.class, scheduleImport.getAirlineId());
+            long seats = 0;
+            for (PlannedFlight planned : chunk) {
+                Flight flight = this.toFlight(airline, entries.get(planned.entry), planned);
+                entityManager.persist(flight);
+                seats += flight.getSeats().size();
+            }
+            int moved = scheduleImportRepository.advance(scheduleImport.getImportId(), imported,
+                imported + chunk.size(), seats, ZonedDateTime.now(), ScheduleImportStatus.RUNNING);
+            if (moved == 0) {
+                status.setRollbackOnly();
+                return false;
+            }
+            // write the chunk and forget it, the persistence context must not grow with the season
+            entityManager.flush();
+            entityManager.clear();
+            return true;
+        });
+        return Boolean.TRUE.equals(saved);
+    }
+
+    private void finish(UUID importId, ScheduleImportStatus status, String error) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            ScheduleImport scheduleImport = scheduleImportRepository.findById(importId).orElse(null);
+            if (scheduleImport == null || scheduleImport.getStatus() != ScheduleImportStatus.RUNNING) {
+                return;
+            }
+            scheduleImport.setStatus(status);
+            scheduleImport.setError(error);
+            scheduleImport.setUpdatedAt(ZonedDateTime.now());
+        });
+    }
+
+    private Flight toFlight(Airline airline, ScheduleEntryDto entry, PlannedFlight planned) {
+        Flight flight = new Flight();
+        flight.setOriginAirport(entityManager.getReference(Airport.class, entry.getOriginId()));
+        flight.setDestinationAirport(entityManager.getReference(Airport.class, entry.getDestinationId()));
+        flight.setAirline(airline);
+        flight.setAircraft(entityManager.getReference(Aircraft.class, entry.getAircraftId()));
+        flight.setDeparture(planned.departure);
+        flight.setArrival(planned.arrival);
+        flight.setPrice(entry.getPrice());
+        flight.setStatus(entry.getStatus() == null ? "SCHEDULED" : entry.getStatus());
+
+        List<Seat> seats = new ArrayList<>(seatCount(entry));
+        if (entry.getSeats() != null) {
+            for (SeatTemplateDto template : entry.getSeats()) {
+                Seat seat = new Seat();
+                seat.setSeatNumber(template.getSeatNumber());
+                seat.setSeatClass(template.getSeatClass());
+                seat.setSeatType(template.getSeatType());
+                seat.setFare(template.getFareId() == null ? null : entityManager.getReference(Fare.class, template.getFareId()));
+                seat.setSeatStatus(SeatStatus.AVAILABLE);
+                seat.setFlight(flight);
+                seats.add(seat);
+            }
+        }
+        flight.setSeats(seats);
+        return flight;
+    }
+
+    // checks the timetable and returns its flights, problems are added to the list
+    private List<PlannedFlight> check(Airline airline, List<ScheduleEntryDto> entries, List<String> problems) {
+        if (entries == null || entries.isEmpty()) {
+            problems.add("The timetable has no entries");
+            return List.of();
+        }
+
+        // 1. load everything the entries point at in one query per kind
+        Set<UUID> airportIds = new HashSet<>();
+        Set<UUID> aircraftIds = new HashSet<>();
+        Set<UUID> fareIds = new HashSet<>();
+        for (ScheduleEntryDto entry : entries) {
+            airportIds.add(entry.getOriginId());
+            airportIds.add(entry.getDestinationId());
+            aircraftIds.add(entry.getAircraftId());
+            if (entry.getSeats() != null) {
+                entry.getSeats().forEach(seat -> fareIds.add(seat.getFareId()));
+            }
+        }
+        Map<UUID, Airport> airports = this.byId(airportRepository.findAllById(this.withoutNull(airportIds)), Airport::getAirportId);
+        Map<UUID, Aircraft> aircrafts = this.byId(aircraftRepository.findAllById(this.withoutNull(aircraftIds)), Aircraft::getAircraftId);
+        Map<UUID, Fare> fares = this.byId(fareRepository.findAllById(this.withoutNull(fareIds)), Fare::getFareId);
+
+        // 2. every entry on its own
+        for (int i = 0; i < entries.size(); i++) {
+            this.checkEntry("entry " + (i + 1), entries.get(i), airline, airports, aircrafts, fares, problems);
+        }
+        if (!problems.isEmpty()) {
+            return List.of();
+        }
+
+        List<PlannedFlight> planned = expand(entries);
+        if (planned.isEmpty()) {
+            problems.add("The timetable does not give any flight");
+        } else if (planned.size() > maxFlights) {
+            problems.add("The timetable gives " + planned.size() + " flights, at most " + maxFlights + " can be imported at once");
+        } else {
+            // 3. aircraft availability against each other and the flights already scheduled
+            this.checkAircraftAvailability(entries, planned, aircrafts, problems);
+        }
+        return planned;
+    }
+
+    private void checkEntry(String name, ScheduleEntryDto entry, Airline airline, Map<UUID, Airport> airports,
+                            Map<UUID, Aircraft> aircrafts, Map<UUID, Fare> fares, List<String> problems) {
+        if (entry.getStartDate() == null || entry.getEndDate() == null || entry.getDepartureTime() == null
+                || entry.getDurationMinutes() == null) {
+            problems.add(name + ": startDate, endDate, departureTime and durationMinutes are required");
+        } else if (entry.getEndDate().isBefore(entry.getStartDate())) {
+            problems.add(name + ": endDate is before startDate");
+        } else if (entry.getDurationMinutes() <= 0) {
+            problems.add(name + ": durationMinutes must be positive");
+        }
+        if (entry.getTimeZone() != null) {
+            try {
+                ZoneId.of(entry.getTimeZone());
+            } catch (DateTimeException e) {
+                problems.add(name + ": unknown timeZone " + entry.getTimeZone());
+            }
+        }
+
+        if (!airports.containsKey(entry.getOriginId())) {
+            problems.add(name + ": origin airport " + entry.getOriginId() + " not found");
+        }
+        if (!airports.containsKey(entry.getDestinationId())) {
+            problems.add(name + ": destination airport " + entry.getDestinationId() + " not found");
+        }
+        if (entry.getOriginId() != null && entry.getOriginId().equals(entry.getDestinationId())) {
+            problems.add(name + ": origin and destination are the same airport");
+        }
+
+        Aircraft aircraft = aircrafts.get(entry.getAircraftId());
+        if (aircraft == null) {
+            problems.add(name + ": aircraft " + entry.getAircraftId() + " not found");
+        } else if (aircraft.getAirline() == null || !airline.getAirlineId().equals(aircraft.getAirline().getAirlineId())) {
+            problems.add(name + ": aircraft " + aircraft.getAircraftNumber() + " does not belong to " + airline.getName());
+        } else if (aircraft.getCapacity() != null && seatCount(entry) > aircraft.getCapacity()) {
+            problems.add(name + ": " + seatCount(entry) + " seats do not fit aircraft " + aircraft.getAircraftNumber()
+                + " with capacity " + aircraft.getCapacity());
+        }
+
+        if (entry.getSeats() != null) {
+            Set<String> seatNumbers = new HashSet<>();
+            for (SeatTemplateDto seat : entry.getSeats()) {
+                if (seat.getSeatNumber() == null || !seatNumbers.add(seat.getSeatNumber())) {
+                    problems.add(name + ": seat numbers must be given and unique, " + seat.getSeatNumber());
+                }
+                if (seat.getFareId() == null) {
+                    continue;
+                }
+                Fare fare = fares.get(seat.getFareId());
+                if (fare == null) {
+                    problems.add(name + ": fare " + seat.getFareId() + " of seat " + seat.getSeatNumber() + " not found");
+                } else if (fare.getSeatClass() != null && seat.getSeatClass() != null && fare.getSeatClass() != seat.getSeatClass()) {
+                    problems.add(name + ": seat " + seat.getSeatNumber() + " is " + seat.getSeatClass()
+                        + " but its fare is " + fare.getSeatClass());
+                }
+            }
+        }
+        this.trim(problems);
+    }
+
+    private void checkAircraftAvailability(List<ScheduleEntryDto> entries, List<PlannedFlight> planned,
+                                           Map<UUID, Aircraft> aircrafts, List<String> problems) {
+        this.checkLegs(this.legsByAircraft(entries, planned), aircrafts, problems);
+    }
+
+    // the check again for one chunk, inside its transaction and with its aircraft locked until the commit
+    private void recheckAircraftAvailability(List<ScheduleEntryDto> entries, List<PlannedFlight> chunk) {
+        Map<UUID, List<Leg>> legsByAircraft = this.legsByAircraft(entries, chunk);
+        // in id order, so two imports of the same aircraft can not lock each other out
+        Map<UUID, Aircraft> aircrafts = this.byId(aircraftRepository.findLockedByAircraftIdInOrderByAircraftId(legsByAircraft.keySet()),
+            Aircraft::getAircraftId);
+        List<String> problems = new ArrayList<>();
+        for (UUID aircraftId : legsByAircraft.keySet()) {
+            if (!aircrafts.containsKey(aircraftId)) {
+                throw new IllegalStateException("aircraft " + aircraftId + " not found");
+            }
+        }
+        this.checkLegs(legsByAircraft, aircrafts, problems);
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException(String.join("\n", problems));
+        }
+    }
+
+    private Map<UUID, List<Leg>> legsByAircraft(List<ScheduleEntryDto> entries, List<PlannedFlight> planned) {
+        Map<UUID, List<Leg>> legsByAircraft = new LinkedHashMap<>();
+        for (PlannedFlight flight : planned) {
+            ScheduleEntryDto entry = entries.get(flight.entry);
+            legsByAircraft.computeIfAbsent(entry.getAircraftId(), id -> new ArrayList<>())
+                .add(new Leg(flight.departure, flight.arrival, "entry " + (flight.entry + 1) + " on " + flight.departure.toLocalDate()));
+        }
+        return legsByAircraft;
+    }
+
+    // every aircraft's legs against each other and the flights already scheduled
+    private void checkLegs(Map<UUID, List<Leg>> legsByAircraft, Map<UUID, Aircraft> aircrafts, List<String> problems) {
+        for (Map.Entry<UUID, List<Leg>> aircraftLegs : legsByAircraft.entrySet()) {
+            List<Leg> legs = aircraftLegs.getValue();
+            ZonedDateTime from = legs.stream().map(leg -> leg.departure).min(Comparator.naturalOrder()).get().minus(minTurnaround);
+            ZonedDateTime to = legs.stream().map(leg -> leg.arrival).max(Comparator.naturalOrder()).get().plus(minTurnaround);
+            for (Flight existing : flightRepository.findByAircraftAircraftIdAndDepartureBeforeAndArrivalAfter(aircraftLegs.getKey(), to, from)) {
+                legs.add(new Leg(existing.getDeparture(), existing.getArrival(), "flight " + existing.getFlightId()));
+            }
+            legs.sort(Comparator.comparing((Leg leg) -> leg.departure.toInstant()));
+
+            // the aircraft is free again minTurnaround after the latest arrival so far
+            Leg latest = legs.get(0);
+            for (Leg leg : legs.subList(1, legs.size())) {
+                if (leg.departure.isBefore(latest.arrival.plus(minTurnaround))) {
+                    problems.add("aircraft " + aircrafts.get(aircraftLegs.getKey()).getAircraftNumber() + ": "
+                        + leg.name + " departs before " + latest.name + " has landed and turned around");
+                    if (this.trim(problems)) {
+                        return;
+                    }
+                }
+                if (leg.arrival.isAfter(latest.arrival)) {
+                    latest = leg;
+                }
+            }
+        }
+    }
+
+    /**
+     * This method is responsible for expanding a timetable into its flights,
+     * entries in the order given and every entry day by day, the order never changes for the same timetable
+     * @param entries
+     * @return List<PlannedFlight>
+     */
+    static List<PlannedFlight> expand(List<ScheduleEntryDto> entries) {
+        List<PlannedFlight> planned = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            ScheduleEntryDto entry = entries.get(i);
+            ZoneId zone = entry.getTimeZone() == null ? ZoneOffset.UTC : ZoneId.of(entry.getTimeZone());
+            Set<DayOfWeek> days = entry.getDaysOfWeek() == null || entry.getDaysOfWeek().isEmpty()
+                ? EnumSet.allOf(DayOfWeek.class) : EnumSet.copyOf(entry.getDaysOfWeek());
+            for (LocalDate date = entry.getStartDate(); !date.isAfter(entry.getEndDate()); date = date.plusDays(1)) {
+                if (days.contains(date.getDayOfWeek())) {
+                    ZonedDateTime departure = ZonedDateTime.of(date, entry.getDepartureTime(), zone);
+                    planned.add(new PlannedFlight(i, departure, departure.plusMinutes(entry.getDurationMinutes())));
+                }
+            }
+        }
+        return planned;
+    }
+
+    static int seatCount(ScheduleEntryDto entry) {
+        return entry.getSeats() == null ? 0 : entry.getSeats().size();
+    }
+
+    // keeps the answer readable when a whole season conflicts, true once the list is full
+    private boolean trim(List<String> problems) {
+        if (problems.size() < MAX_PROBLEMS) {
+            return false;
+        }
+        problems.subList(MAX_PROBLEMS, problems.size()).clear();
+        problems.set(MAX_PROBLEMS - 1, "... more problems were found");
+        return true;
+    }
+
+    private Set<UUID> withoutNull(Set<UUID> ids) {
+        ids.remove(null);
+        return ids;
+    }
+
+    private <T> Map<UUID, T> byId(List<T> rows, Function<T, UUID> id) {
+        return rows.stream().collect(Collectors.toMap(id, row -> row, (a, b) -> a, HashMap::new));
+    }
+
+    static class PlannedFlight {
+        final int entry;
+        final ZonedDateTime departure;
+        final ZonedDateTime arrival;
+
+        PlannedFlight(int entry, ZonedDateTime departure, ZonedDateTime arrival) {
+            this.entry = entry;
+            this.departure = departure;
+            this.arrival = arrival;
+        }
+    }
+
+    static class Leg {
+        final ZonedDateTime departure;
+        final ZonedDateTime arrival;
+        final String name;
+
+        Leg(ZonedDateTime departure, ZonedDateTime arrival, String name) {
+            this.departure = departure;
+            this.arrival = arrival;
+            this.name = name;
+        }
+    }
+}
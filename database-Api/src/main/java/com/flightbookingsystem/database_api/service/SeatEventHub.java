@@ -0,0 +1,308 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flightbookingsystem.database_api.dto.SeatStatusDeltaDto;
+import com.flightbookingsystem.database_api.model.SeatStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * this class is responsible for pushing seat status changes to open seat maps as server-sent events.
+ *
+ * a change is turned into one text/event-stream frame once, and the same bytes are queued for every
+ * subscriber of the flight. a small pool of sender threads writes the queues out, tomcat holds the
+ * idle connections without a thread. every subscriber has a bounded queue. when a client reads so
+ * slowly that its queue fills up, the queue is dropped, the client gets a resync event and the stream
+ * is closed, so it reloads the seat map and subscribes again instead of holding memory for old changes.
+ * a client that stops reading altogether blocks the write of its sender thread. a send that has not
+ * returned in send-timeout-millis drops the client the same way, and the pool gets a thread in place
+ * of the stuck one, so a few stalled clients can not stop the changes of every other flight.
+ *
+ * changes are published after the seat update commits. subscribers only hear about changes made on the
+ * node they are connected to.
+ */
+
+@Service
+public class SeatEventHub {
+
+    static final Logger log = LoggerFactory.getLogger(SeatEventHub.class);
+    static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+    static final byte[] RESYNC = "event: resync\ndata: {}\n\n".getBytes(StandardCharsets.UTF_8);
+    // Subscriber.sendingSince of a send the watchdog gave up on, with or without a thread started in its place
+    static final long REPLACED = -1;
+    static final long STALLED = -2;
+
+    ObjectMapper objectMapper;
+    MeterRegistry meterRegistry;
+
+    long timeoutMillis;
+    long sendTimeoutMillis;
+    int queueSize;
+    int maxSubscribers;
+    int senderThreads;
+
+    Map<UUID, Channel> channels = new ConcurrentHashMap<>();
+    AtomicInteger subscribers = new AtomicInteger();
+
+    ThreadPoolExecutor senders;
+    ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor();
+
+    @Autowired
+    public SeatEventHub(ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry,
+                        @Value("${seat.events.timeout-millis:1800000}") long timeoutMillis,
+                        @Value("${seat.events.send-timeout-millis:10000}") long sendTimeoutMillis,
+                        @Value("${seat.events.queue-size:256}") int queueSize,
+                        @Value("${seat.events.max-subscribers:20000}") int maxSubscribers,
+                        @Value("${seat.events.sender-threads:16}") int senderThreads,
+                        @Value("${seat.events.heartbeat-seconds:20}") long heartbeatSeconds) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.timeoutMillis = timeoutMillis;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.queueSize = queueSize;
+        this.maxSubscribers = maxSubscribers;
+        this.senderThreads = senderThreads;
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+
+        meterRegistry.gauge("seat.events.subscribers", subscribers);
+        // keeps proxies from closing quiet streams and finds clients that went away
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        long checkMillis = Math.max(sendTimeoutMillis / 2, 1);
+        heartbeat.scheduleAtFixedRate(this::dropStalled, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This method is responsible for opening a stream of seat changes of one flight
+     * @param flightId
+     * @return ResponseBodyEmitter or null when the node already serves max-subscribers streams
+     */
+    public ResponseBodyEmitter subscribe(UUID flightId) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            return null;
+        }
+        ResponseBodyEmitter emitter = this.newEmitter();
+        Subscriber subscriber = new Subscriber(emitter, queueSize);
+        // joins under the map's lock of the flight, so remove can not drop the channel in between
+        channels.compute(flightId, (id, channel) -> {
+            Channel joined = channel == null ? new Channel() : channel;
+            joined.subscribers.add(subscriber);
+            return joined;
+        });
+
+        Runnable remove = () -> this.remove(flightId, subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+
+        // sent first so the client knows it is subscribed and can load the seat map
+        subscriber.offer(HEARTBEAT);
+        return emitter;
+    }
+
+    // runs once the seat update is committed, so a rolled back change is never pushed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void seatChanged(SeatStatusDeltaDto delta) {
+        Channel channel = channels.get(delta.getFlightId());
+        if (channel == null || channel.subscribers.isEmpty()) {
+            return;
+        }
+        byte[] frame;
+        try {
+            frame = ("id: " + channel.sequence.incrementAndGet() + "\nevent: seat\ndata: "
+                + objectMapper.writeValueAsString(delta) + "\n\n").getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not write seat change of {}", delta.getSeatId(), e);
+            return;
+        }
+        for (Subscriber subscriber : channel.subscribers) {
+            subscriber.offer(frame);
+        }
+        meterRegistry.counter("seat.events.published").increment();
+    }
+
+    // what a seat moving to this status means for someone looking at the seat map
+    public static String change(SeatStatus status) {
+        if (status == null || status == SeatStatus.AVAILABLE) {
+            return "released";
+        }
+        switch (status) {
+            case RESERVED: return "held";
+            case BOOKED: return "booked";
+            default: return "blocked";
+        }
+    }
+
+    private void sendHeartbeat() {
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    // drops a client whose send has not returned in send-timeout-millis, it gets resync if the write ever goes through
+    private void dropStalled() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<UUID, Channel> entry : channels.entrySet()) {
+            for (Subscriber subscriber : entry.getValue().subscribers) {
+                long since = subscriber.sendingSince.get();
+                if (since <= 0 || now - since < sendTimeoutMillis) {
+                    continue;
+                }
+                boolean replaced = this.addSender();
+                if (!subscriber.sendingSince.compareAndSet(since, replaced ? REPLACED : STALLED)) {
+                    // the send returned in the meantime
+                    if (replaced) {
+                        this.removeSender();
+                    }
+                    continue;
+                }
+                subscriber.resync();
+                this.remove(entry.getKey(), subscriber);
+                meterRegistry.counter("seat.events.stalled").increment();
+            }
+        }
+    }
+
+    // stands in for a sender stuck on a stalled client, at most sender-threads of them at a time
+    private synchronized boolean addSender() {
+        int size = senders.getCorePoolSize();
+        if (size >= 2 * senderThreads) {
+            return false;
+        }
+        senders.setMaximumPoolSize(size + 1);
+        senders.setCorePoolSize(size + 1);
+        return true;
+    }
+
+    // the stuck send returned, the extra thread ends once it is idle
+    private synchronized void removeSender() {
+        int size = senders.getCorePoolSize() - 1;
+        senders.setCorePoolSize(size);
+        senders.setMaximumPoolSize(size);
+    }
+
+    // the last subscriber takes the channel with it, checked and removed under the same lock as subscribe joins
+    private void remove(UUID flightId, Subscriber subscriber) {
+        channels.computeIfPresent(flightId, (id, channel) -> {
+            if (channel.subscribers.remove(subscriber)) {
+                subscribers.decrementAndGet();
+            }
+            return channel.subscribers.isEmpty() ? null : channel;
+        });
+    }
+
+    ResponseBodyEmitter newEmitter() {
+        return new ResponseBodyEmitter(timeoutMillis);
+    }
+
+    @PreDestroy
+    void stop() {
+        heartbeat.shutdownNow();
+        senders.shutdownNow();
+        for (Channel channel : channels.values()) {
+            channel.subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        }
+    }
+
+    static class Channel {
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        final AtomicLong sequence = new AtomicLong();
+    }
+
+    class Subscriber {
+        final ResponseBodyEmitter emitter;
+        final ArrayBlockingQueue<byte[]> queue;
+        final AtomicBoolean draining = new AtomicBoolean();
+        // when the running send started, 0 while none runs
+        final AtomicLong sendingSince = new AtomicLong();
+        volatile boolean closing;
+
+        Subscriber(ResponseBodyEmitter emitter, int queueSize) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        void offer(byte[] frame) {
+            if (closing) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                // too slow to keep up, tell it to reload instead of buffering more
+                this.resync();
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        void resync() {
+            closing = true;
+            queue.clear();
+            queue.offer(RESYNC);
+            meterRegistry.counter("seat.events.resyncs").increment();
+        }
+
+        void drain() {
+            try {
+                byte[] frame;
+                while ((frame = queue.poll()) != null) {
+                    this.send(frame);
+                }
+                if (closing) {
+                    emitter.complete();
+                    return;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client went away, onError / onCompletion removes it
+                closing = true;
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // a frame may have come in after the last poll but before draining was cleared
+            if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        void send(byte[] frame) throws IOException {
+            sendingSince.set(System.currentTimeMillis());
+            try {
+                emitter.send(frame, MediaType.TEXT_EVENT_STREAM);
+            } finally {
+                if (sendingSince.getAndSet(0) == REPLACED) {
+                    removeSender();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.dto.SeatMapDto;
+import com.flightbookingsystem.database_api.model.Aircraft;
+import com.flightbookingsystem.database_api.model.SeatClass;
+import com.flightbookingsystem.database_api.model.SeatLayout;
+import com.flightbookingsystem.database_api.model.SeatStatus;
+import com.flightbookingsystem.database_api.reposatories.SeatRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * this class is responsible for seat maps.
+ *
+ * Aircraft.configuration is compiled once into a SeatLayout and kept by its text, so a seat map
+ * request only reads the seat numbers and statuses of the flight and drops them into a copy of the
+ * prepared rows. a configuration is one cabin per part, parts split by ';':
+ *
+ *   BUSINESS 1-4 AC-DF; ECONOMY 5-30 ABC-DEF; EXIT 12,13; SKIP 13
+ *
+ * a cabin is its seat class, its rows and its columns with '-' for every aisle. EXIT marks exit rows,
+ * SKIP leaves rows out (no row 13). the short form "3-3" or "2-4-2" is one economy cabin with that many
+ * seats between the aisles and as many rows as the capacity needs.
+ */
+
+@Service
+public class SeatLayoutService {
+
+    static final int MAX_ROWS = 150;
+    static final int MAX_COLUMNS = 12;
+    static final int MAX_CACHED_LAYOUTS = 1000;
+    // no I, it reads like 1 on a boarding pass
+    static final String LETTERS = "ABCDEFGHJKLMNOPQRSTUVWXYZ";
+
+    SeatRepository seatRepository;
+
+    // configurations are few and never change under the same text, so the text is the key
+    Map<String, SeatLayout> layouts = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SeatLayoutService(SeatRepository seatRepository) {
+        this.seatRepository = seatRepository;
+    }
+
+    /**
+     * This method is responsible for the compiled layout of an aircraft
+     * @param aircraft
+     * @return SeatLayout
+     * @throws IllegalArgumentException when the configuration can not be compiled
+     */
+    public SeatLayout layout(Aircraft aircraft) {
+        String key = aircraft.getCapacity() + "|" + aircraft.getConfiguration();
+        SeatLayout layout = layouts.get(key);
+        if (layout == null) {
+            layout = compile(aircraft.getConfiguration(), aircraft.getCapacity());
+            if (layouts.size() >= MAX_CACHED_LAYOUTS) {
+                layouts.clear();
+            }
+            layouts.put(key, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * This method is responsible for the seat map of a flight, its aircraft layout with the live seat status
+     * @param flightId
+     * @param aircraft
+     * @return SeatMapDto
+     */
+    public SeatMapDto seatMap(UUID flightId, Aircraft aircraft) {
+        SeatLayout layout = this.layout(aircraft);
+        char[][] rows = new char[layout.getEmptyRows().size()][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = layout.getEmptyRows().get(i).toCharArray();
+        }
+
+        Map<String, UUID> available = new LinkedHashMap<>();
+        int unplaced = 0;
+        for (SeatRepository.SeatStatusView seat : seatRepository.findByFlightFlightId(flightId)) {
+            int[] at = seat.getSeatNumber() == null ? null : layout.getSeatIndex().get(seat.getSeatNumber());
+            if (at == null && seat.getSeatNumber() != null) {
+                // typed by hand as "12a" or " 12A"
+                at = layout.getSeatIndex().get(seat.getSeatNumber().trim().toUpperCase());
+            }
+            if (at == null) {
+                unplaced++;
+                continue;
+            }
+            rows[at[0]][at[1]] = code(seat.getSeatStatus());
+            if (seat.getSeatStatus() == null || seat.getSeatStatus() == SeatStatus.AVAILABLE) {
+                available.put(seat.getSeatNumber(), seat.getSeatId());
+            }
+        }
+
+        List<String> seatRows = new ArrayList<>(rows.length);
+        for (char[] row : rows) {
+            seatRows.add(new String(row));
+        }
+        return new SeatMapDto(flightId, aircraft.getAircraftNumber(), layout, seatRows, available, unplaced);
+    }
+
+    static char code(SeatStatus status) {
+        if (status == null) {
+            return 'A';
+        }
+        switch (status) {
+            case BOOKED: return 'B';
+            case RESERVED: return 'R';
+            case BLOCKED: return 'X';
+            default: return 'A';
+        }
+    }
+
+    /**
+     * This method is responsible for compiling a configuration into a layout
+     * @param configuration
+     * @param capacity only used by the short form
+     * @return SeatLayout
+     * @throws IllegalArgumentException with what is wrong in the configuration
+     */
+    public static SeatLayout compile(String configuration, Integer capacity) {
+        if (configuration == null || configuration.isBlank()) {
+            throw new IllegalArgumentException("The aircraft has no configuration");
+        }
+        String text = configuration.trim().toUpperCase();
+
+        List<SeatLayout.Cabin> cabins = new ArrayList<>();
+        TreeSet<Integer> exitRows = new TreeSet<>();
+        TreeSet<Integer> skippedRows = new TreeSet<>();
+        if (text.matches("\\d+(\\s*-\\s*\\d+)*")) {
+            cabins.add(shortForm(text, capacity));
+        } else {
+            for (String part : text.split(";")) {
+                String[] tokens = part.trim().split("\\s+");
+                if (tokens[0].isEmpty()) {
+                    continue;
+                }
+                if (tokens[0].equals("EXIT") || tokens[0].equals("SKIP")) {
+                    if (tokens.length != 2) {
+                        throw new IllegalArgumentException("Expected " + tokens[0] + " <row>,<row> but got " + part.trim());
+                    }
+                    for (String row : tokens[1].split(",")) {
+                        (tokens[0].equals("EXIT") ? exitRows : skippedRows).add(parseRow(row));
+                    }
+                } else {
+                    cabins.add(cabin(tokens, part.trim()));
+                }
+            }
+        }
+        if (cabins.isEmpty()) {
+            throw new IllegalArgumentException("The configuration has no cabin");
+        }
+        return build(cabins, exitRows, skippedRows);
+    }
+
+    // "3-3" with capacity 180 is ECONOMY 1-30 ABC-DEF
+    private static SeatLayout.Cabin shortForm(String text, Integer capacity) {
+        if (capacity == null || capacity <= 0) {
+            throw new IllegalArgumentException("The short configuration " + text + " needs the aircraft capacity");
+        }
+        StringBuilder columns = new StringBuilder();
+        int letter = 0;
+        for (String group : text.split("-")) {
+            int seats = Integer.parseInt(group.trim());
+            if (seats <= 0 || letter + seats > MAX_COLUMNS) {
+                throw new IllegalArgumentException("The configuration " + text + " does not give 1 to " + MAX_COLUMNS + " seats a row");
+            }
+            if (columns.length() > 0) {
+                columns.append('-');
+            }
+            columns.append(LETTERS, letter, letter + seats);
+            letter += seats;
+        }
+        int rows = (capacity + letter - 1) / letter;
+        return newCabin(SeatClass.ECONOMY, 1, rows, columns.toString());
+    }
+
+    // BUSINESS 1-4 AC-DF
+    private static SeatLayout.Cabin cabin(String[] tokens, String part) {
+        if (tokens.length != 3) {
+            throw new IllegalArgumentException("Expected <class> <first row>-<last row> <columns> but got " + part);
+        }
+        SeatClass seatClass;
+        try {
+            seatClass = SeatClass.valueOf(tokens[0]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown seat class " + tokens[0] + " in " + part);
+        }
+        String[] range = tokens[1].split("-");
+        if (range.length != 2) {
+            throw new IllegalArgumentException("Expected rows as <first>-<last> in " + part);
+        }
+        int firstRow = parseRow(range[0]);
+        int lastRow = parseRow(range[1]);
+        if (lastRow < firstRow) {
+            throw new IllegalArgumentException("Last row is before first row in " + part);
+        }
+        String columns = tokens[2];
+        if (!columns.matches("[A-Z]+(-[A-Z]+)*") || columns.replace("-", "").length() > MAX_COLUMNS
+                || columns.replace("-", "").chars().distinct().count() != columns.replace("-", "").length()) {
+            throw new IllegalArgumentException("Expected up to " + MAX_COLUMNS + " different column letters with '-' for aisles in " + part);
+        }
+        return newCabin(seatClass, firstRow, lastRow, columns);
+    }
+
+    private static int parseRow(String row) {
+        try {
+            int number = Integer.parseInt(row.trim());
+            if (number >= 1 && number <= MAX_ROWS) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Expected a row from 1 to " + MAX_ROWS + " but got " + row);
+    }
+
+    private static SeatLayout.Cabin newCabin(SeatClass seatClass, int firstRow, int lastRow, String columns) {
+        if (lastRow > MAX_ROWS) {
+            throw new IllegalArgumentException("An aircraft has at most " + MAX_ROWS + " rows");
+        }
+        return new SeatLayout.Cabin(seatClass, firstRow, lastRow, columns, positions(columns));
+    }
+
+    // "ABC-DEF" -> "WMA-AMW", the outer seats are windows and the seats next to a '-' are aisles
+    static String positions(String columns) {
+        char[] positions = new char[columns.length()];
+        for (int i = 0; i < columns.length(); i++) {
+            if (columns.charAt(i) == '-') {
+                positions[i] = '-';
+            } else if (i == 0 || i == columns.length() - 1) {
+                positions[i] = 'W';
+            } else if (columns.charAt(i - 1) == '-' || columns.charAt(i + 1) == '-') {
+                positions[i] = 'A';
+            } else {
+                positions[i] = 'M';
+            }
+        }
+        return new String(positions);
+    }
+
+    private static SeatLayout build(List<SeatLayout.Cabin> cabins, TreeSet<Integer> exitRows, TreeSet<Integer> skippedRows) {
+        // cabins front to back, one cabin per row
+        TreeMap<Integer, SeatLayout.Cabin> cabinByRow = new TreeMap<>();
+        for (SeatLayout.Cabin cabin : cabins) {
+            for (int row = cabin.getFirstRow(); row <= cabin.getLastRow(); row++) {
+                if (cabinByRow.put(row, cabin) != null) {
+                    throw new IllegalArgumentException("Row " + row + " is in more than one cabin");
+                }
+            }
+        }
+        for (Integer exitRow : exitRows) {
+            if (!cabinByRow.containsKey(exitRow) || skippedRows.contains(exitRow)) {
+                throw new IllegalArgumentException("Exit row " + exitRow + " has no seats");
+            }
+        }
+
+        List<Integer> rows = new ArrayList<>();
+        List<String> emptyRows = new ArrayList<>();
+        Map<String, int[]> seatIndex = new HashMap<>();
+        for (Map.Entry<Integer, SeatLayout.Cabin> entry : cabinByRow.entrySet()) {
+            if (skippedRows.contains(entry.getKey())) {
+                continue;
+            }
+            String columns = entry.getValue().getColumns();
+            for (int i = 0; i < columns.length(); i++) {
+                if (columns.charAt(i) != '-') {
+                    seatIndex.put(entry.getKey() + String.valueOf(columns.charAt(i)), new int[] {rows.size(), i});
+                }
+            }
+            char[] empty = columns.toCharArray();
+            for (int i = 0; i < empty.length; i++) {
+                empty[i] = empty[i] == '-' ? '-' : '.';
+            }
+            rows.add(entry.getKey());
+            emptyRows.add(new String(empty));
+        }
+        cabins.sort((a, b) -> Integer.compare(a.getFirstRow(), b.getFirstRow()));
+        return new SeatLayout(List.copyOf(cabins), List.copyOf(rows), List.copyOf(exitRows), seatIndex.size(),
+            Map.copyOf(seatIndex), List.copyOf(emptyRows));
+    }
+}
@@ -0,0 +1,48 @@
+package com.flightbookingsystem.database_api.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/*
+ * this class is responsible for wrapping every spring data repository call in an observation.
+ * with tracing on it becomes a child span of the request span, named like BookingRepository.findById,
+ * so the time spent in jpa is visible per hop. it is also timed as db.repository in metrics.
+ */
+
+@Aspect
+@Component
+public class RepositoryObservationAspect {
+
+    ObservationRegistry observationRegistry;
+
+    @Autowired
+    public RepositoryObservationAspect(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Around("this(org.springframework.data.repository.Repository)")
+    public Object observe(ProceedingJoinPoint joinPoint) throws Throwable {
+        String repository = this.repositoryName(joinPoint);
+        String method = joinPoint.getSignature().getName();
+        return Observation.createNotStarted("db.repository", observationRegistry)
+            .contextualName(repository + "." + method)
+            .lowCardinalityKeyValue("repository", repository)
+            .lowCardinalityKeyValue("method", method)
+            .observeChecked(() -> joinPoint.proceed());
+    }
+
+    // the proxy class is generated, the repository interface is the one declared in reposatories
+    private String repositoryName(ProceedingJoinPoint joinPoint) {
+        for (Class<?> type : joinPoint.getThis().getClass().getInterfaces()) {
+            if (type.getPackageName().endsWith(".reposatories")) {
+                return type.getSimpleName();
+            }
+        }
+        return joinPoint.getSignature().getDeclaringType().getSimpleName();
+    }
+}
@@ -0,0 +1,86 @@
+package com.flightbookingsystem.database_api.admission;
+
+import com.flightbookingsystem.database_api.dto.QueueTicketDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AdmissionServiceTests {
+
+	AdmissionService admissionService = new AdmissionService(new SimpleMeterRegistry(), "", 300, 2, 2, 1);
+
+	@AfterEach
+	void stop() {
+		admissionService.stop();
+	}
+
+	@Test
+	void tokensAreCheckedForSignatureAndExpiry() {
+		UUID flightId = UUID.randomUUID();
+		UUID customerId = UUID.randomUUID();
+		long now = System.currentTimeMillis() / 1000;
+
+		String token = admissionService.sign(new AdmissionToken(flightId, customerId, 7, now + 60));
+		assertEquals(new AdmissionToken(flightId, customerId, 7, now + 60), admissionService.verify(token));
+
+		String forged = token.substring(0, token.indexOf('.')) + "." + token.substring(token.indexOf('.') + 2);
+		assertEquals(HttpStatus.FORBIDDEN, assertThrows(AdmissionRejectedException.class, () -> admissionService.verify(forged)).getStatus());
+		String expired = admissionService.sign(new AdmissionToken(flightId, customerId, 7, now - 1));
+		assertThrows(AdmissionRejectedException.class, () -> admissionService.verify(expired));
+		assertThrows(AdmissionRejectedException.class, () -> admissionService.verify("not a token"));
+	}
+
+	@Test
+	void queuePositionMovesAsTheRoomAdmits() throws InterruptedException {
+		UUID flightId = UUID.randomUUID();
+		admissionService.open(flightId, 10);
+		UUID first = UUID.randomUUID();
+		QueueTicketDto ticket = admissionService.join(flightId, first);
+		for (int i = 0; i < 29; i++) {
+			admissionService.join(flightId, UUID.randomUUID());
+		}
+		QueueTicketDto last = admissionService.position(flightId, admissionService.join(flightId, UUID.randomUUID()).getCustomerId());
+
+		// joining again keeps the place
+		assertEquals(ticket.getTicket(), admissionService.join(flightId, first).getTicket());
+		assertEquals(31, last.getTicket());
+		assertNull(last.getAdmissionToken());
+
+		Thread.sleep(300);
+		QueueTicketDto admitted = admissionService.position(flightId, first);
+		assertEquals(0, admitted.getPosition());
+		assertNotNull(admitted.getAdmissionToken());
+		assertEquals(flightId, admissionService.verify(admitted.getAdmissionToken()).getFlightId());
+	}
+
+	@Test
+	void customersAndFlightsAreLimited() {
+		UUID flightId = UUID.randomUUID();
+		UUID customerId = UUID.randomUUID();
+
+		AdmissionService.Permit permit = admissionService.acquire(flightId, customerId);
+		// one at a time on this flight
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+			assertThrows(AdmissionRejectedException.class, () -> admissionService.acquire(flightId, UUID.randomUUID())).getStatus());
+		permit.close();
+		permit.close();
+		admissionService.acquire(flightId, customerId).close();
+
+		// a burst of 2, then 429
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+			assertThrows(AdmissionRejectedException.class, () -> admissionService.acquire(flightId, customerId)).getStatus());
+
+		admissionService.open(flightId, 1);
+		assertEquals(HttpStatus.FORBIDDEN,
+			assertThrows(AdmissionRejectedException.class, () -> admissionService.acquireWithoutToken(flightId, null)).getStatus());
+	}
+
+}
@@ -0,0 +1,169 @@
+package com.flightbookingsystem.database_api.controller;
+
+import com.flightbookingsystem.database_api.admission.AdmissionService;
+import com.flightbookingsystem.database_api.dto.RescheduleDto;
+import com.flightbookingsystem.database_api.dto.RescheduleResultDto;
+import com.flightbookingsystem.database_api.model.Booking;
+import com.flightbookingsystem.database_api.model.BookingStatus;
+import com.flightbookingsystem.database_api.model.Customer;
+import com.flightbookingsystem.database_api.model.Fare;
+import com.flightbookingsystem.database_api.model.Flight;
+import com.flightbookingsystem.database_api.model.Payment;
+import com.flightbookingsystem.database_api.model.Seat;
+import com.flightbookingsystem.database_api.model.SeatStatus;
+import com.flightbookingsystem.database_api.reposatories.BookingRepository;
+import com.flightbookingsystem.database_api.reposatories.CustomerRepository;
+import com.flightbookingsystem.database_api.reposatories.FlightRepository;
+import com.flightbookingsystem.database_api.reposatories.PaymentRepository;
+import com.flightbookingsystem.database_api.reposatories.SeatRepository;
+import com.flightbookingsystem.database_api.service.BookingSequencer;
+import com.flightbookingsystem.database_api.service.ItineraryService;
+import com.flightbookingsystem.database_api.service.PnrService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingControllerTests {
+
+	// the new seat sorts before the old one, so it is locked first
+	UUID newSeatId = new UUID(0, 1);
+	UUID oldSeatId = new UUID(0, 2);
+	UUID bookingId = UUID.randomUUID();
+	UUID flightId = UUID.randomUUID();
+
+	BookingRepository bookingRepository = mock(BookingRepository.class);
+	CustomerRepository customerRepository = mock(CustomerRepository.class);
+	SeatRepository seatRepository = mock(SeatRepository.class);
+	TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+	BookingController bookingController = new BookingController(bookingRepository, customerRepository,
+		mock(FlightRepository.class), seatRepository, mock(PaymentRepository.class), new SimpleMeterRegistry(),
+		mock(ItineraryService.class), mock(PnrService.class), mock(AdmissionService.class), mock(BookingSequencer.class),
+		transactionTemplate, mock(ApplicationEventPublisher.class));
+
+	Customer customer = new Customer();
+	Flight flight = new Flight();
+	Seat oldSeat = this.seat(oldSeatId, SeatStatus.BOOKED, 100.0);
+	Seat newSeat = this.seat(newSeatId, SeatStatus.AVAILABLE, 150.0);
+	Booking booking = new Booking();
+
+	@SuppressWarnings("unchecked")
+	BookingControllerTests() {
+		flight.setFlightId(flightId);
+		customer.setCustomerId(UUID.randomUUID());
+		customer.setWalletBalance(80.0);
+		Payment payment = new Payment();
+		payment.setAmount(100.0);
+		booking.setBookingId(bookingId);
+		booking.setBookingStatus(BookingStatus.CONFIRMED);
+		booking.setCustomer(customer);
+		booking.setFlight(flight);
+		booking.setSeat(oldSeat);
+		booking.setPayment(payment);
+
+		when(transactionTemplate.execute(any())).thenAnswer(call -> ((TransactionCallback<?>) call.getArgument(0)).doInTransaction(null));
+		when(seatRepository.findFlightIdBySeatId(newSeatId)).thenReturn(Optional.of(flightId));
+		when(bookingRepository.findCustomerIdByBookingId(bookingId)).thenReturn(Optional.of(customer.getCustomerId()));
+		when(bookingRepository.findLockedByBookingId(bookingId)).thenReturn(Optional.of(booking));
+		when(seatRepository.findLockedBySeatId(oldSeatId)).thenReturn(Optional.of(oldSeat));
+		when(seatRepository.findLockedBySeatId(newSeatId)).thenReturn(Optional.of(newSeat));
+		when(customerRepository.findLockedByCustomerId(customer.getCustomerId())).thenReturn(Optional.of(customer));
+		when(bookingRepository.save(booking)).thenReturn(booking);
+	}
+
+	@Test
+	void rowsAreLockedBookingSeatsBySeatIdThenCustomer() {
+		assertEquals(HttpStatus.OK, this.reschedule().getStatusCode());
+
+		InOrder locks = inOrder(bookingRepository, seatRepository, customerRepository);
+		locks.verify(bookingRepository).findLockedByBookingId(bookingId);
+		locks.verify(seatRepository).findLockedBySeatId(newSeatId);
+		locks.verify(seatRepository).findLockedBySeatId(oldSeatId);
+		locks.verify(customerRepository).findLockedByCustomerId(customer.getCustomerId());
+	}
+
+	@Test
+	void fareDifferenceIsTakenFromTheWallet() {
+		ResponseEntity<RescheduleResultDto> moved = this.reschedule();
+
+		assertEquals(HttpStatus.OK, moved.getStatusCode());
+		assertEquals(50.0, moved.getBody().getFareDifference());
+		assertEquals(30.0, moved.getBody().getWalletBalance());
+		assertEquals(150.0, booking.getPayment().getAmount());
+		assertSame(newSeat, booking.getSeat());
+		assertEquals(SeatStatus.BOOKED, newSeat.getSeatStatus());
+		assertEquals(SeatStatus.AVAILABLE, oldSeat.getSeatStatus());
+	}
+
+	@Test
+	void walletShortOfTheFareDifferenceChangesNothing() {
+		customer.setWalletBalance(20.0);
+
+		assertEquals(HttpStatus.PAYMENT_REQUIRED, this.reschedule().getStatusCode());
+		this.assertNothingMoved();
+		assertEquals(20.0, customer.getWalletBalance());
+	}
+
+	@Test
+	void heldOrBookedSeatIsNotTaken() {
+		// held by the customer of the booking, still not free
+		newSeat.setSeatStatus(SeatStatus.RESERVED);
+		newSeat.setHeldBy(customer.getCustomerId());
+		assertEquals(HttpStatus.CONFLICT, this.reschedule().getStatusCode());
+
+		newSeat.setSeatStatus(SeatStatus.BOOKED);
+		newSeat.setHeldBy(null);
+		assertEquals(HttpStatus.CONFLICT, this.reschedule().getStatusCode());
+
+		this.assertNothingMoved();
+		verify(customerRepository, never()).findLockedByCustomerId(any());
+	}
+
+	@Test
+	void cancelledBookingIsNotMoved() {
+		booking.setBookingStatus(BookingStatus.CANCELLED);
+
+		assertEquals(HttpStatus.CONFLICT, this.reschedule().getStatusCode());
+		verify(seatRepository, never()).findLockedBySeatId(any());
+		this.assertNothingMoved();
+	}
+
+	private ResponseEntity<RescheduleResultDto> reschedule() {
+		return bookingController.rescheduleBooking(bookingId, new RescheduleDto(newSeatId), null);
+	}
+
+	private void assertNothingMoved() {
+		verify(bookingRepository, never()).save(any());
+		assertSame(oldSeat, booking.getSeat());
+		assertEquals(SeatStatus.BOOKED, oldSeat.getSeatStatus());
+		assertEquals(100.0, booking.getPayment().getAmount());
+	}
+
+	private Seat seat(UUID seatId, SeatStatus status, double basePrice) {
+		Fare fare = new Fare();
+		fare.setBasePrice(basePrice);
+		Seat seat = new Seat();
+		seat.setSeatId(seatId);
+		seat.setSeatStatus(status);
+		seat.setFare(fare);
+		seat.setFlight(flight);
+		return seat;
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.flightbookingsystem.database_api.controller;
+
+import com.flightbookingsystem.database_api.model.FeedBack;
+import com.flightbookingsystem.database_api.model.Flight;
+import com.flightbookingsystem.database_api.reposatories.CustomerRepository;
+import com.flightbookingsystem.database_api.reposatories.FeedBackRepository;
+import com.flightbookingsystem.database_api.reposatories.FlightRepository;
+import com.flightbookingsystem.database_api.service.FeedbackSearchService;
+import com.flightbookingsystem.database_api.service.RatingService;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FeedbackControllerTests {
+
+	UUID feedbackId = UUID.randomUUID();
+
+	FeedBackRepository feedBackRepository = mock(FeedBackRepository.class);
+	FlightRepository flightRepository = mock(FlightRepository.class);
+	RatingService ratingService = mock(RatingService.class);
+	FeedbackController feedbackController = new FeedbackController(feedBackRepository, mock(CustomerRepository.class),
+		flightRepository, ratingService, mock(FeedbackSearchService.class));
+
+	Flight flight = this.flight();
+	Flight otherFlight = this.flight();
+	FeedBack feedback = new FeedBack();
+
+	FeedbackControllerTests() {
+		feedback.setFeedbackId(feedbackId);
+		feedback.setRating(4);
+		feedback.setComments("on time");
+		feedback.setFlight(flight);
+
+		when(feedBackRepository.findById(feedbackId)).thenReturn(Optional.of(feedback));
+		when(feedBackRepository.save(feedback)).thenReturn(feedback);
+		when(flightRepository.findById(otherFlight.getFlightId())).thenReturn(Optional.of(otherFlight));
+	}
+
+	@Test
+	void changedRatingIsTakenOutBeforeTheNewOneIsCounted() {
+		assertEquals(HttpStatus.OK, this.update(2, null).getStatusCode());
+
+		InOrder rating = inOrder(ratingService);
+		rating.verify(ratingService).ratingRemoved(flight, 4);
+		rating.verify(ratingService).ratingAdded(flight, 2);
+	}
+
+	@Test
+	void feedbackMovedToAnotherFlightMovesItsRating() {
+		Flight moved = new Flight();
+		moved.setFlightId(otherFlight.getFlightId());
+
+		assertEquals(HttpStatus.OK, this.update(4, moved).getStatusCode());
+
+		InOrder rating = inOrder(ratingService);
+		rating.verify(ratingService).ratingRemoved(flight, 4);
+		rating.verify(ratingService).ratingAdded(otherFlight, 4);
+	}
+
+	@Test
+	void commentOnlyChangeLeavesTheRatingsAlone() {
+		assertEquals(HttpStatus.OK, this.update(4, null).getStatusCode());
+
+		verify(ratingService, never()).ratingRemoved(any(), anyInt());
+		verify(ratingService, never()).ratingAdded(any(), anyInt());
+	}
+
+	@Test
+	void invalidRatingChangesNothing() {
+		assertEquals(HttpStatus.BAD_REQUEST, this.update(6, null).getStatusCode());
+
+		verify(feedBackRepository, never()).save(any());
+		verify(ratingService, never()).ratingRemoved(any(), anyInt());
+	}
+
+	private ResponseEntity<FeedBack> update(int rating, Flight flight) {
+		FeedBack updatedFeedback = new FeedBack();
+		updatedFeedback.setRating(rating);
+		updatedFeedback.setComments("late by an hour");
+		updatedFeedback.setFlight(flight);
+		return feedbackController.updateFeedback(feedbackId, updatedFeedback);
+	}
+
+	private Flight flight() {
+		Flight flight = new Flight();
+		flight.setFlightId(UUID.randomUUID());
+		return flight;
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.flightbookingsystem.database_api.controller;
+
+import com.flightbookingsystem.database_api.admission.AdmissionService;
+import com.flightbookingsystem.database_api.model.Flight;
+import com.flightbookingsystem.database_api.model.Seat;
+import com.flightbookingsystem.database_api.model.SeatStatus;
+import com.flightbookingsystem.database_api.reposatories.FareRepository;
+import com.flightbookingsystem.database_api.reposatories.FlightRepository;
+import com.flightbookingsystem.database_api.reposatories.SeatRepository;
+import com.flightbookingsystem.database_api.service.BookingSequencer;
+import com.flightbookingsystem.database_api.service.ItineraryService;
+import com.flightbookingsystem.database_api.service.SeatEventHub;
+import com.flightbookingsystem.database_api.service.SeatLayoutService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeatControllerTests {
+
+	UUID seatId = UUID.randomUUID();
+	UUID customerId = UUID.randomUUID();
+
+	SeatRepository seatRepository = mock(SeatRepository.class);
+	BookingSequencer bookingSequencer = mock(BookingSequencer.class);
+	ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+	TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+	SeatController seatController = new SeatController(seatRepository, mock(FlightRepository.class),
+		mock(FareRepository.class), new SimpleMeterRegistry(), mock(ItineraryService.class), mock(SeatLayoutService.class),
+		mock(SeatEventHub.class), eventPublisher, mock(AdmissionService.class), bookingSequencer, transactionTemplate);
+
+	Seat seat = new Seat();
+
+	@SuppressWarnings("unchecked")
+	SeatControllerTests() {
+		Flight flight = new Flight();
+		flight.setFlightId(UUID.randomUUID());
+		seat.setSeatId(seatId);
+		seat.setSeatNumber("12A");
+		seat.setFlight(flight);
+
+		when(transactionTemplate.execute(any())).thenAnswer(call -> ((TransactionCallback<?>) call.getArgument(0)).doInTransaction(null));
+		when(seatRepository.findLockedBySeatId(seatId)).thenReturn(Optional.of(seat));
+		when(seatRepository.save(seat)).thenReturn(seat);
+	}
+
+	@Test
+	void seatNumberChangeKeepsABookedSeatBooked() {
+		seat.setSeatStatus(SeatStatus.BOOKED);
+
+		assertEquals(HttpStatus.OK, this.renumber().getStatusCode());
+		assertEquals("12B", seat.getSeatNumber());
+		assertEquals(SeatStatus.BOOKED, seat.getSeatStatus());
+		// nothing changed for the seat map
+		verify(eventPublisher, never()).publishEvent(any());
+	}
+
+	@Test
+	void seatNumberChangeKeepsTheHoldAndItsHolder() {
+		when(bookingSequencer.isEnabled()).thenReturn(true);
+		seat.setSeatStatus(SeatStatus.RESERVED);
+		seat.setHeldBy(customerId);
+
+		assertEquals(HttpStatus.OK, this.renumber().getStatusCode());
+		assertEquals(SeatStatus.RESERVED, seat.getSeatStatus());
+		assertEquals(customerId, seat.getHeldBy());
+		verify(bookingSequencer, never()).execute(any(), any(), any(), any(), any());
+	}
+
+	private ResponseEntity<Seat> renumber() {
+		Seat updatedSeat = new Seat();
+		updatedSeat.setSeatNumber("12B");
+		return seatController.updateSeat(seatId, updatedSeat, null, null);
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.flightbookingsystem.database_api.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryCountInspectorTests {
+
+	static final String LOAD_FLIGHTS = "select f1_0.flight_id from flight f1_0 where f1_0.airline_id=?";
+
+	QueryCountInspector inspector = new QueryCountInspector(new AssociationResolver(null) {
+		@Override
+		public String resolve(String sql) {
+			return LOAD_FLIGHTS.equals(sql) ? "Airline.flights" : null;
+		}
+	});
+
+	@Test
+	void assertAtMostPassesWithinBudget() {
+		QueryStats stats = inspector.assertAtMost(2, () -> {
+			inspector.inspect("select a1_0.airline_id from airline a1_0");
+			inspector.inspect(LOAD_FLIGHTS);
+		});
+
+		assertEquals(2, stats.getTotal());
+		assertFalse(inspector.isCounting());
+	}
+
+	@Test
+	void assertAtMostNamesTheRepeatedAssociation() {
+		AssertionError error = assertThrows(AssertionError.class, () -> inspector.assertAtMost(2, () -> {
+			inspector.inspect("select a1_0.airline_id from airline a1_0");
+			for (int i = 0; i < 3; i++) {
+				inspector.inspect(LOAD_FLIGHTS);
+			}
+		}));
+
+		assertTrue(error.getMessage().startsWith("4 sql statements, budget 2."), error.getMessage());
+		assertTrue(error.getMessage().contains("Airline.flights x3"), error.getMessage());
+	}
+
+	@Test
+	void failOnBudgetStopsAtTheFirstStatementOverBudget() {
+		inspector.start(1, true);
+		try {
+			inspector.inspect(LOAD_FLIGHTS);
+			assertThrows(SqlBudgetExceededException.class, () -> inspector.inspect(LOAD_FLIGHTS));
+		} finally {
+			inspector.stop();
+		}
+	}
+
+	@Test
+	void statementsOutsideACountAreNotRecorded() {
+		inspector.inspect(LOAD_FLIGHTS);
+
+		assertFalse(inspector.isCounting());
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.flightbookingsystem.database_api.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedUuidGeneratorTests {
+
+	@Test
+	void keysAreVersionSevenWithTheRfcVariant() {
+		UUID uuid = TimeOrderedUuidGenerator.next();
+
+		assertEquals(7, uuid.version());
+		assertEquals(2, uuid.variant());
+	}
+
+	@Test
+	void keysCarryTheirCreationTime() {
+		long before = System.currentTimeMillis();
+		UUID uuid = TimeOrderedUuidGenerator.next();
+		long after = System.currentTimeMillis();
+
+		long millis = TimeOrderedUuidGenerator.timestampMillis(uuid);
+		// the counter may borrow a millisecond when many keys are made at once
+		assertTrue(millis >= before && millis <= after + 1, before + " <= " + millis + " <= " + after);
+	}
+
+	@Test
+	void keysSortInCreationOrderAsUnsignedBytes() {
+		UUID previous = TimeOrderedUuidGenerator.next();
+		for (int i = 0; i < 100_000; i++) {
+			UUID uuid = TimeOrderedUuidGenerator.next();
+			// postgres compares uuid columns byte by byte, the leading half decides the order
+			assertTrue(Long.compareUnsigned(previous.getMostSignificantBits(), uuid.getMostSignificantBits()) < 0,
+				previous + " before " + uuid);
+			previous = uuid;
+		}
+	}
+
+	@Test
+	void counterOverflowBorrowsTheNextMillisecond() {
+		long now = System.currentTimeMillis() + 60_000;
+		UUID last = null;
+		try {
+			for (int i = 0; i < 4097; i++) {
+				last = TimeOrderedUuidGenerator.next(now);
+			}
+		} finally {
+			// do not leave the shared clock a minute ahead for the other tests
+			TimeOrderedUuidGenerator.LAST.set(0);
+		}
+
+		assertEquals(now + 1, TimeOrderedUuidGenerator.timestampMillis(last));
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.flightbookingsystem.database_api.model;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.UUID;
+
+/*
+ * Insert benchmark for random (version 4) against time ordered (version 7) primary keys.
+ * It is not a unit test, point it at a scratch postgres database and run
+ * mvn -q test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ *     "-Dexec.args=-cp %classpath com.flightbookingsystem.database_api.model.UuidInsertBenchmark
+ *      jdbc:postgresql://localhost:5432/FlightBookingSystem postgres secret 2000000"
+ * arguments are jdbc url, user, password and rows per table.
+ *
+ * each key type gets its own table shaped like a booking row, rows go in with batched inserts
+ * and one commit per batch like a busy booking day. it prints rows per second for the first and
+ * the last tenth of the run, where random keys slow down once the index no longer fits in
+ * shared_buffers, and the size and leaf density of the primary key index at the end.
+ */
+
+public class UuidInsertBenchmark {
+
+    static final int BATCH_SIZE = 1000;
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/FlightBookingSystem";
+        String user = args.length > 1 ? args[1] : "postgres";
+        String password = args.length > 2 ? args[2] : "";
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : 1_000_000;
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            connection.setAutoCommit(false);
+            run(connection, "uuid_bench_random", rows, false);
+            run(connection, "uuid_bench_time_ordered", rows, true);
+        }
+    }
+
+    static void run(Connection connection, String table, int rows, boolean timeOrdered) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists " + table);
+            statement.execute("create table " + table + " (id uuid primary key, customer_id uuid, "
+                + "pnr_number varchar(8), booking_time timestamp with time zone, booking_status varchar(16))");
+        }
+        connection.commit();
+
+        // 1. insert in batches, timing the first and the last tenth on their own
+        int tenth = Math.max(rows / 10, BATCH_SIZE);
+        long startedAt = System.nanoTime();
+        long firstTenthNanos = 0;
+        long lastTenthStartedAt = 0;
+        try (PreparedStatement insert = connection.prepareStatement("insert into " + table + " values (?, ?, ?, now(), 'CONFIRMED')")) {
+            for (int row = 1; row <= rows; row++) {
+                insert.setObject(1, timeOrdered ? TimeOrderedUuidGenerator.next() : UUID.randomUUID());
+                insert.setObject(2, UUID.randomUUID());
+                insert.setString(3, Integer.toString(row, 36));
+                insert.addBatch();
+                if (row % BATCH_SIZE == 0 || row == rows) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+                if (row == tenth) {
+                    firstTenthNanos = System.nanoTime() - startedAt;
+                }
+                if (row == rows - tenth) {
+                    lastTenthStartedAt = System.nanoTime();
+                }
+            }
+        }
+        long totalNanos = System.nanoTime() - startedAt;
+        long lastTenthNanos = System.nanoTime() - lastTenthStartedAt;
+
+        // 2. vacuum so the size numbers are not skewed by dead tuples, then read the index size
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("vacuum analyze " + table);
+        }
+        connection.setAutoCommit(false);
+
+        System.out.printf("%-24s rows=%d total=%.0f rows/s first-10%%=%.0f rows/s last-10%%=%.0f rows/s%n",
+            table, rows, perSecond(rows, totalNanos), perSecond(tenth, firstTenthNanos), perSecond(tenth, lastTenthNanos));
+        System.out.printf("%-24s table=%s pkey=%s leaf-density=%s%n",
+            table, query(connection, "select pg_size_pretty(pg_relation_size('" + table + "'))"),
+            query(connection, "select pg_size_pretty(pg_relation_size('" + table + "_pkey'))"),
+            leafDensity(connection, table + "_pkey"));
+    }
+
+    // needs the pgstattuple extension, without it the density is skipped
+    static String leafDensity(Connection connection, String index) {
+        try {
+            return query(connection, "select avg_leaf_density || '%' from pgstatindex('" + index + "')");
+        } catch (Exception e) {
+            try {
+                connection.rollback();
+            } catch (Exception ignored) {
+                // nothing to undo
+            }
+            return "n/a (create extension pgstattuple)";
+        }
+    }
+
+    static String query(Connection connection, String sql) throws Exception {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getString(1);
+        }
+    }
+
+    static double perSecond(int rows, long nanos) {
+        return rows / (nanos / 1_000_000_000.0);
+    }
+
+}
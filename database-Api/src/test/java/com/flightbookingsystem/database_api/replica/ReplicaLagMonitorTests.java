@@ -0,0 +1,83 @@
+package com.flightbookingsystem.database_api.replica;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.jdbc.ReturningWork;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaLagMonitorTests {
+
+	// polls against mocks fail quietly, the positions are set by hand
+	EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+	ReplicaLagMonitor monitor = new ReplicaLagMonitor(mock(DataSource.class), mock(DataSource.class), entityManagerFactory,
+		new SimpleMeterRegistry(), "select 1", "select 1", 1000, 60_000);
+
+	@AfterEach
+	void stop() {
+		monitor.stop();
+	}
+
+	@Test
+	void lsnsAreReadAsOneNumber() {
+		assertEquals(0x16B374D848L, ReplicaLagMonitor.parse("16/B374D848"));
+		assertEquals(0L, ReplicaLagMonitor.parse("0/0"));
+		assertTrue(ReplicaLagMonitor.parse("1/0") > ReplicaLagMonitor.parse("0/FFFFFFFF"));
+		assertThrows(IllegalArgumentException.class, () -> ReplicaLagMonitor.parse("B374D848"));
+	}
+
+	@Test
+	void replicaOnlyServesClientsWhoseWritesItHasReplayed() {
+		// never heard from
+		assertFalse(monitor.canServe(null));
+
+		monitor.primaryLsn = 5000;
+		monitor.replicaLsn = 4500;
+		monitor.replicaSeenAt = System.currentTimeMillis();
+		assertTrue(monitor.canServe(null));
+		assertTrue(monitor.canServe(4500L));
+		assertFalse(monitor.canServe(4501L));
+
+		// too far behind for anybody
+		monitor.replicaLsn = 3000;
+		assertFalse(monitor.canServe(null));
+	}
+
+	@Test
+	void sessionLsnIsReadOnTheConnectionTheRequestHolds() throws Exception {
+		Connection connection = mock(Connection.class, RETURNS_DEEP_STUBS);
+		ResultSet row = connection.createStatement().executeQuery("select 1");
+		when(row.next()).thenReturn(true);
+		when(row.getString(1)).thenReturn("16/B374D848");
+		Session session = mock(Session.class);
+		when(session.doReturningWork(any())).thenAnswer(work -> ((ReturningWork<?>) work.getArgument(0)).execute(connection));
+		EntityManager entityManager = mock(EntityManager.class);
+		when(entityManager.unwrap(Session.class)).thenReturn(session);
+
+		TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+		try {
+			// the pool of the mock primary has no connections, so this one can only come from the session
+			assertEquals("16/B374D848", monitor.currentPrimaryLsn());
+		} finally {
+			TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+		}
+	}
+
+}
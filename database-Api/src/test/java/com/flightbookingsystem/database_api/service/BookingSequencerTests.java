@@ -0,0 +1,156 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.model.SeatStatus;
+import com.flightbookingsystem.database_api.reposatories.SeatRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookingSequencerTests {
+
+	UUID flightId = UUID.randomUUID();
+	UUID firstSeat = UUID.randomUUID();
+	UUID secondSeat = UUID.randomUUID();
+	UUID customer = UUID.randomUUID();
+	SeatRepository seatRepository = mock(SeatRepository.class);
+	BookingSequencer sequencer = new BookingSequencer(seatRepository, new TransactionTemplate(new NoTransactionManager()),
+		new SimpleMeterRegistry(), true, 4, 1000, 100, 5000, 600);
+	ExecutorService clients = Executors.newFixedThreadPool(32);
+
+	BookingSequencerTests() {
+		when(seatRepository.findSeatHoldsByFlightFlightId(flightId)).thenReturn(List.of(this.seat(firstSeat), this.seat(secondSeat)));
+	}
+
+	@AfterEach
+	void stop() {
+		clients.shutdownNow();
+		sequencer.stop();
+	}
+
+	@Test
+	void onlyOneOfManyHoldsOfTheSameSeatIsWritten() throws Exception {
+		AtomicInteger writes = new AtomicInteger();
+		List<Future<ResponseEntity<String>>> answers = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			answers.add(clients.submit(() -> sequencer.execute(flightId, firstSeat, SeatStatus.RESERVED, customer, () -> {
+				writes.incrementAndGet();
+				return ResponseEntity.ok("held");
+			})));
+		}
+
+		int held = 0;
+		for (Future<ResponseEntity<String>> answer : answers) {
+			held += answer.get().getStatusCode() == HttpStatus.OK ? 1 : 0;
+		}
+		assertEquals(1, held);
+		assertEquals(1, writes.get());
+		// only the holder can book it, nobody can hold it again
+		assertEquals(HttpStatus.CONFLICT, sequencer.execute(flightId, firstSeat, SeatStatus.BOOKED, UUID.randomUUID(), () -> ResponseEntity.ok("booked")).getStatusCode());
+		assertEquals(HttpStatus.OK, sequencer.execute(flightId, firstSeat, SeatStatus.BOOKED, customer, () -> ResponseEntity.ok("booked")).getStatusCode());
+		assertEquals(HttpStatus.CONFLICT, sequencer.execute(flightId, firstSeat, SeatStatus.RESERVED, customer, () -> ResponseEntity.ok("held")).getStatusCode());
+	}
+
+	@Test
+	void aFailedWriteDoesNotTakeTheRestOfTheBatchDown() throws Exception {
+		Future<ResponseEntity<String>> failing = clients.submit(() -> sequencer.execute(flightId, firstSeat, SeatStatus.RESERVED, customer, () -> {
+			throw new IllegalStateException("constraint");
+		}));
+		Future<ResponseEntity<String>> other = clients.submit(() -> sequencer.execute(flightId, secondSeat, SeatStatus.RESERVED, customer, () -> ResponseEntity.ok("held")));
+
+		assertEquals(HttpStatus.OK, other.get().getStatusCode());
+		assertNotNull(assertThrows(Exception.class, failing::get));
+		// nothing was written for the first seat, so it is still free
+		assertEquals(HttpStatus.OK, sequencer.execute(flightId, firstSeat, SeatStatus.RESERVED, customer, () -> ResponseEntity.ok("held")).getStatusCode());
+		assertEquals(HttpStatus.CONFLICT, sequencer.execute(flightId, UUID.randomUUID(), SeatStatus.RESERVED, customer, () -> ResponseEntity.ok("held")).getStatusCode());
+	}
+
+	@Test
+	void aChangeWhoseCallerStoppedWaitingIsNotWritten() throws Exception {
+		BookingSequencer impatient = new BookingSequencer(seatRepository, new TransactionTemplate(new NoTransactionManager()),
+			new SimpleMeterRegistry(), true, 4, 1000, 100, 200, 600);
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger writes = new AtomicInteger();
+		try {
+			Future<ResponseEntity<String>> slow = clients.submit(() -> impatient.execute(flightId, firstSeat, SeatStatus.RESERVED, customer, () -> {
+				writing.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return ResponseEntity.ok("held");
+			}));
+			assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+			// queued behind the slow batch until its caller gives up
+			assertEquals(HttpStatus.GATEWAY_TIMEOUT, impatient.execute(flightId, secondSeat, SeatStatus.RESERVED, customer, () -> {
+				writes.incrementAndGet();
+				return ResponseEntity.ok("held");
+			}).getStatusCode());
+			release.countDown();
+
+			// the slow one was taken before the timeout, so its caller waited for the write
+			assertEquals(HttpStatus.OK, slow.get().getStatusCode());
+			assertEquals(HttpStatus.OK, impatient.execute(flightId, secondSeat, SeatStatus.RESERVED, customer, () -> ResponseEntity.ok("held")).getStatusCode());
+			assertEquals(0, writes.get());
+		} finally {
+			release.countDown();
+			impatient.stop();
+		}
+	}
+
+	@Test
+	void seatsMoveOnlyWhereTheirStatusAllows() {
+		UUID other = UUID.randomUUID();
+		assertNull(BookingSequencer.conflict(SeatStatus.AVAILABLE, null, SeatStatus.RESERVED, customer));
+		assertNull(BookingSequencer.conflict(null, null, SeatStatus.BOOKED, customer));
+		assertNull(BookingSequencer.conflict(SeatStatus.RESERVED, customer, SeatStatus.BOOKED, customer));
+		assertNull(BookingSequencer.conflict(SeatStatus.BOOKED, null, SeatStatus.AVAILABLE, other));
+		assertNotNull(BookingSequencer.conflict(SeatStatus.RESERVED, customer, SeatStatus.BOOKED, other));
+		assertNotNull(BookingSequencer.conflict(SeatStatus.RESERVED, customer, SeatStatus.BOOKED, null));
+		assertNotNull(BookingSequencer.conflict(SeatStatus.RESERVED, customer, SeatStatus.RESERVED, customer));
+		assertNotNull(BookingSequencer.conflict(SeatStatus.BLOCKED, null, SeatStatus.BOOKED, customer));
+	}
+
+	private SeatRepository.SeatHoldView seat(UUID seatId) {
+		return new SeatRepository.SeatHoldView() {
+			public UUID getSeatId() { return seatId; }
+			public SeatStatus getSeatStatus() { return SeatStatus.AVAILABLE; }
+			public UUID getHeldBy() { return null; }
+		};
+	}
+
+	// the writes in these tests touch no database
+	static class NoTransactionManager extends AbstractPlatformTransactionManager {
+		protected Object doGetTransaction() { return new Object(); }
+		protected void doBegin(Object transaction, TransactionDefinition definition) { }
+		protected void doCommit(DefaultTransactionStatus status) { }
+		protected void doRollback(DefaultTransactionStatus status) { }
+	}
+
+}
@@ -0,0 +1,147 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flightbookingsystem.database_api.dto.EmployeeImportResultDto;
+import com.flightbookingsystem.database_api.model.Airline;
+import com.flightbookingsystem.database_api.model.Employee;
+import com.flightbookingsystem.database_api.model.EmployeeRole;
+import com.flightbookingsystem.database_api.reposatories.EmployeeRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmployeeImportServiceTests {
+
+	static final String HEADER = "name,email,phone,address,employeeRole,status\n";
+
+	EmployeeRepository employeeRepository = mock(EmployeeRepository.class);
+	EntityManager entityManager = mock(EntityManager.class);
+	EmployeeImportService employeeImportService = new EmployeeImportService(employeeRepository,
+		new TransactionTemplate(new BookingSequencerTests.NoTransactionManager()), entityManager, new ObjectMapper());
+	Airline airline = new Airline();
+	// copies, the service clears its batch list once it is written
+	List<List<Employee>> saved = new ArrayList<>();
+
+	@SuppressWarnings("unchecked")
+	EmployeeImportServiceTests() {
+		airline.setAirlineId(UUID.randomUUID());
+		when(employeeRepository.saveAll(any())).thenAnswer(call -> {
+			List<Employee> batch = new ArrayList<>();
+			((Iterable<Employee>) call.getArgument(0)).forEach(batch::add);
+			saved.add(batch);
+			return batch;
+		});
+	}
+
+	@Test
+	void goodCsvIsImportedIntoTheAirline() throws Exception {
+		EmployeeImportResultDto result = employeeImportService.importCsv(airline, this.body(HEADER
+			+ "Asha,asha@x.in,98100,\"Sector 5, Delhi\",pilot,\n"
+			+ "\n"
+			+ "Ravi,ravi@x.in,98200,Mumbai,CREW,ON_LEAVE\n"));
+
+		assertEquals(2, result.getImported());
+		assertEquals(1, result.getBatches());
+		assertNull(result.getFailedLine());
+		assertNull(result.getError());
+		List<Employee> batch = saved.get(0);
+		assertEquals("Sector 5, Delhi", batch.get(0).getAddress());
+		assertEquals(EmployeeRole.PILOT, batch.get(0).getEmployeeRole());
+		assertEquals("ACTIVE", batch.get(0).getStatus());
+		assertEquals("ON_LEAVE", batch.get(1).getStatus());
+		assertSame(airline, batch.get(1).getAirline());
+	}
+
+	@Test
+	void goodJsonIsImportedIntoTheAirline() throws Exception {
+		EmployeeImportResultDto result = employeeImportService.importJson(airline, this.body("[\n"
+			+ "  {\"name\": \"Asha\", \"email\": \"asha@x.in\", \"employeeRole\": \"PILOT\"},\n"
+			+ "  {\"name\": \"Ravi\", \"email\": \"ravi@x.in\", \"employeeRole\": \"CREW\", \"status\": \"ON_LEAVE\"}\n"
+			+ "]"));
+
+		assertEquals(2, result.getImported());
+		assertNull(result.getFailedLine());
+		assertEquals("ACTIVE", saved.get(0).get(0).getStatus());
+	}
+
+	@Test
+	void malformedCsvLineStopsTheImportAtThatLine() throws Exception {
+		EmployeeImportResultDto result = employeeImportService.importCsv(airline, this.body(HEADER
+			+ "Asha,asha@x.in,98100,Delhi,PILOT,\n"
+			+ "Ravi,ravi@x.in,Mumbai,CREW\n"
+			+ "Meera,meera@x.in,98300,Pune,CREW,\n"));
+
+		assertEquals(3, result.getFailedLine());
+		assertTrue(result.getError().contains("columns"));
+		assertEquals(0, result.getImported());
+		verify(employeeRepository, never()).saveAll(any());
+	}
+
+	@Test
+	void malformedJsonObjectStopsTheImportAtItsLine() throws Exception {
+		EmployeeImportResultDto result = employeeImportService.importJson(airline, this.body("[\n"
+			+ "  {\"name\": \"Asha\", \"email\": \"asha@x.in\", \"employeeRole\": \"PILOT\"},\n"
+			+ "  {\"name\": \"Ravi\", \"email\": \"ravi@x.in\", \"employeeRole\": \"STEWARD\"}\n"
+			+ "]"));
+
+		assertEquals(3, result.getFailedLine());
+		assertEquals(0, result.getImported());
+	}
+
+	@Test
+	void duplicateInTheSecondBatchKeepsTheFirstAndReportsWhereTheSecondStarted() throws Exception {
+		StringBuilder csv = new StringBuilder(HEADER);
+		for (int i = 0; i < EmployeeImportService.BATCH_SIZE + 10; i++) {
+			csv.append("Employee ").append(i).append(",e").append(i).append("@x.in,,,CREW,\n");
+		}
+		// the first flush goes through, the second hits the unique email
+		doNothing().doThrow(new PersistenceException("duplicate key value violates unique constraint"))
+			.when(entityManager).flush();
+
+		EmployeeImportResultDto result = employeeImportService.importCsv(airline, this.body(csv.toString()));
+
+		assertEquals(EmployeeImportService.BATCH_SIZE, result.getImported());
+		assertEquals(1, result.getBatches());
+		// line 1 is the header, the second batch starts right after the first one
+		assertEquals(EmployeeImportService.BATCH_SIZE + 2, result.getFailedLine());
+		verify(entityManager, times(2)).clear();
+	}
+
+	@Test
+	void rejectedJsonBatchIsReportedNotThrown() throws Exception {
+		doThrow(new PersistenceException("value too long for type character varying(255)")).when(entityManager).flush();
+
+		EmployeeImportResultDto result = employeeImportService.importJson(airline, this.body("[\n"
+			+ "  {\"name\": \"Asha\", \"email\": \"asha@x.in\", \"employeeRole\": \"PILOT\"}\n"
+			+ "]"));
+
+		assertEquals(0, result.getImported());
+		assertEquals(2, result.getFailedLine());
+	}
+
+	private InputStream body(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Hot flight benchmark for the lock based path against the sequenced one (booking.sequencer.enabled).
+ * the lock based path is the default: each hold and booking locks its seat row (select for update) and
+ * checks the same status rule as the sequencer, so both modes give the same answers.
+ * It is not a unit test, start the database api once per mode on a flight with free seats and run
+ * mvn -q test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ *     "-Dexec.args=-cp %classpath com.flightbookingsystem.database_api.service.HotFlightBookingBenchmark
+ *      http://localhost:8088 <flightId> <customerId> 64"
+ * arguments are the database api, the flight, a customer and the number of clients. start the api with
+ * admission.customer.rate-per-second and admission.flight.max-concurrent well above the client count,
+ * otherwise the admission limits are measured instead.
+ *
+ * every client holds a random free seat (PUT /seat/{seatId}?customerId= RESERVED) and books it when the hold went
+ * through, until every seat is taken. it prints requests per second, the p50 and p99 of holds and bookings,
+ * and how many bookings landed on a seat that already had one.
+ */
+
+public class HotFlightBookingBenchmark {
+
+    static final ObjectMapper objectMapper = new ObjectMapper();
+    static final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    public static void main(String[] args) throws Exception {
+        String api = (args.length > 0 ? args[0] : "http://localhost:8088") + "/api/v1/db";
+        String flightId = args[1];
+        String customerId = args[2];
+        int clients = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        JsonNode seatMap = objectMapper.readTree(send("GET", api + "/seat/map/" + flightId, null).body());
+        List<String> seats = new ArrayList<>();
+        Map<String, String> seatNumbers = new ConcurrentHashMap<>();
+        seatMap.get("availableSeatIds").fields().forEachRemaining(seat -> {
+            seats.add(seat.getValue().asText());
+            seatNumbers.put(seat.getValue().asText(), seat.getKey());
+        });
+        System.out.printf("%d free seats, %d clients%n", seats.size(), clients);
+
+        Set<String> taken = ConcurrentHashMap.newKeySet();
+        Map<String, AtomicInteger> bookingsPerSeat = new ConcurrentHashMap<>();
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        // latency in ms, one slot per ms up to 10 s
+        AtomicLongArray latencies = new AtomicLongArray(10_001);
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long startedAt = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            pool.execute(() -> {
+                while (taken.size() < seats.size()) {
+                    String seatId = seats.get(ThreadLocalRandom.current().nextInt(seats.size()));
+                    if (taken.contains(seatId)) {
+                        continue;
+                    }
+                    int hold = timed(latencies, requests, () -> send("PUT", api + "/seat/" + seatId + "?customerId=" + customerId,
+                        "{\"seatNumber\":\"" + seatNumbers.get(seatId) + "\",\"seatClass\":\"ECONOMY\",\"seatStatus\":\"RESERVED\"}").statusCode());
+                    if (hold != 200) {
+                        (hold == 409 ? conflicts : errors).incrementAndGet();
+                        taken.add(seatId);
+                        continue;
+                    }
+                    int booking = timed(latencies, requests, () -> send("POST", api + "/booking/create",
+                        "{\"bookingStatus\":\"CONFIRMED\",\"customer\":{\"customerId\":\"" + customerId + "\"},"
+                            + "\"flight\":{\"flightId\":\"" + flightId + "\"},\"seat\":{\"seatId\":\"" + seatId + "\"}}").statusCode());
+                    if (booking == 201) {
+                        bookingsPerSeat.computeIfAbsent(seatId, id -> new AtomicInteger()).incrementAndGet();
+                    } else {
+                        (booking == 409 ? conflicts : errors).incrementAndGet();
+                    }
+                    taken.add(seatId);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        int bookings = bookingsPerSeat.values().stream().mapToInt(AtomicInteger::get).sum();
+        System.out.printf("%.1f s, %d requests, %.0f requests/s%n", seconds, requests.get(), requests.get() / seconds);
+        System.out.printf("p50 %d ms, p99 %d ms%n", percentile(latencies, requests.get(), 0.50), percentile(latencies, requests.get(), 0.99));
+        System.out.printf("%d bookings on %d seats, %d double bookings, %d conflicts, %d errors%n",
+            bookings, bookingsPerSeat.size(), bookings - bookingsPerSeat.size(), conflicts.get(), errors.get());
+    }
+
+    static HttpResponse<String> send(String method, String url, String body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        try {
+            return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (Exception e) {
+            throw new IllegalStateException(method + " " + url, e);
+        }
+    }
+
+    interface Call {
+        int run();
+    }
+
+    static int timed(AtomicLongArray latencies, AtomicInteger requests, Call call) {
+        long startedAt = System.nanoTime();
+        int status;
+        try {
+            status = call.run();
+        } catch (IllegalStateException e) {
+            status = -1;
+        }
+        latencies.incrementAndGet((int) Math.min(latencies.length() - 1, (System.nanoTime() - startedAt) / 1_000_000));
+        requests.incrementAndGet();
+        return status;
+    }
+
+    static long percentile(AtomicLongArray latencies, int total, double percentile) {
+        long seen = 0;
+        for (int ms = 0; ms < latencies.length(); ms++) {
+            seen += latencies.get(ms);
+            if (seen >= total * percentile) {
+                return ms;
+            }
+        }
+        return latencies.length() - 1;
+    }
+}
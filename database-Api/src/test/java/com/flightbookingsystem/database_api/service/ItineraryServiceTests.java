@@ -0,0 +1,156 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.model.Airline;
+import com.flightbookingsystem.database_api.model.Airport;
+import com.flightbookingsystem.database_api.model.Booking;
+import com.flightbookingsystem.database_api.model.BookingStatus;
+import com.flightbookingsystem.database_api.model.Customer;
+import com.flightbookingsystem.database_api.model.Flight;
+import com.flightbookingsystem.database_api.model.ItineraryEntry;
+import com.flightbookingsystem.database_api.model.Payment;
+import com.flightbookingsystem.database_api.model.PaymentStatus;
+import com.flightbookingsystem.database_api.model.Seat;
+import com.flightbookingsystem.database_api.model.SeatClass;
+import com.flightbookingsystem.database_api.reposatories.BookingRepository;
+import com.flightbookingsystem.database_api.reposatories.ItineraryEntryRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ItineraryServiceTests {
+
+	ItineraryEntryRepository itineraryEntryRepository = mock(ItineraryEntryRepository.class);
+	ItineraryService itineraryService = new ItineraryService(itineraryEntryRepository, mock(BookingRepository.class),
+		mock(TransactionTemplate.class), mock(EntityManager.class));
+
+	@Test
+	void savedBookingIsProjectedWithFlightSeatAndPayment() {
+		Booking booking = this.booking(BookingStatus.CONFIRMED);
+
+		itineraryService.bookingSaved(booking);
+
+		ItineraryEntry entry = this.savedEntry();
+		assertEquals(booking.getBookingId(), entry.getBookingId());
+		assertEquals(booking.getCustomer().getCustomerId(), entry.getCustomerId());
+		assertEquals("K7Q2MX", entry.getPnrNumber());
+		assertEquals(BookingStatus.CONFIRMED, entry.getBookingStatus());
+		assertEquals(booking.getFlight().getFlightId(), entry.getFlightId());
+		assertEquals("Indigo", entry.getAirlineName());
+		assertEquals("DEL", entry.getOriginAirportCode());
+		assertEquals("Mumbai", entry.getDestinationCity());
+		assertEquals("12A", entry.getSeatNumber());
+		assertEquals(SeatClass.ECONOMY, entry.getSeatClass());
+		assertEquals(118.0, entry.getAmount());
+		assertEquals(PaymentStatus.SUCCESS, entry.getPaymentStatus());
+	}
+
+	@Test
+	void cancelledBookingKeepsItsRowWithTheNewStatus() {
+		Booking booking = this.booking(BookingStatus.CANCELLED);
+		booking.setPayment(null);
+
+		itineraryService.bookingSaved(booking);
+
+		ItineraryEntry entry = this.savedEntry();
+		assertEquals(BookingStatus.CANCELLED, entry.getBookingStatus());
+		assertNull(entry.getPaymentId());
+		assertNull(entry.getAmount());
+	}
+
+	@Test
+	void bookingWithoutCustomerIsNotProjected() {
+		Booking booking = this.booking(BookingStatus.PENDING);
+		booking.setCustomer(null);
+
+		itineraryService.bookingSaved(booking);
+
+		verify(itineraryEntryRepository, never()).save(any());
+		verify(itineraryEntryRepository).deleteById(booking.getBookingId());
+	}
+
+	@Test
+	void seatChangeUpdatesTheRowsOfThatSeat() {
+		Seat seat = this.booking(BookingStatus.CONFIRMED).getSeat();
+		seat.setSeatNumber("1C");
+		seat.setSeatClass(SeatClass.BUSINESS);
+
+		itineraryService.seatSaved(seat);
+
+		verify(itineraryEntryRepository).updateSeat(seat.getSeatId(), "1C", SeatClass.BUSINESS);
+	}
+
+	@Test
+	void flightChangeUpdatesEveryBookingOnIt() {
+		Flight flight = this.booking(BookingStatus.CONFIRMED).getFlight();
+		flight.setStatus("DELAYED");
+		flight.setAirline(null);
+
+		itineraryService.flightSaved(flight);
+
+		verify(itineraryEntryRepository).updateFlight(flight.getFlightId(), flight.getDeparture(), flight.getArrival(),
+			"DELAYED", null, "DEL", "Delhi", "BOM", "Mumbai");
+	}
+
+	private ItineraryEntry savedEntry() {
+		ArgumentCaptor<ItineraryEntry> saved = ArgumentCaptor.forClass(ItineraryEntry.class);
+		verify(itineraryEntryRepository).save(saved.capture());
+		return saved.getValue();
+	}
+
+	private Booking booking(BookingStatus status) {
+		Customer customer = new Customer();
+		customer.setCustomerId(UUID.randomUUID());
+
+		Airline airline = new Airline();
+		airline.setName("Indigo");
+		Flight flight = new Flight();
+		flight.setFlightId(UUID.randomUUID());
+		flight.setDeparture(ZonedDateTime.parse("2027-03-01T06:00+05:30[Asia/Kolkata]"));
+		flight.setArrival(ZonedDateTime.parse("2027-03-01T08:15+05:30[Asia/Kolkata]"));
+		flight.setStatus("SCHEDULED");
+		flight.setAirline(airline);
+		flight.setOriginAirport(this.airport("DEL", "Delhi"));
+		flight.setDestinationAirport(this.airport("BOM", "Mumbai"));
+
+		Seat seat = new Seat();
+		seat.setSeatId(UUID.randomUUID());
+		seat.setSeatNumber("12A");
+		seat.setSeatClass(SeatClass.ECONOMY);
+
+		Payment payment = new Payment();
+		payment.setPaymentId(UUID.randomUUID());
+		payment.setAmount(118.0);
+		payment.setMethod("UPI");
+		payment.setPaymentStatus(PaymentStatus.SUCCESS);
+
+		Booking booking = new Booking();
+		booking.setBookingId(UUID.randomUUID());
+		booking.setPnrNumber("K7Q2MX");
+		booking.setBookingStatus(status);
+		booking.setBookingTime(ZonedDateTime.now());
+		booking.setCustomer(customer);
+		booking.setFlight(flight);
+		booking.setSeat(seat);
+		booking.setPayment(payment);
+		return booking;
+	}
+
+	private Airport airport(String code, String city) {
+		Airport airport = new Airport();
+		airport.setAirportCode(code);
+		airport.setCity(city);
+		return airport;
+	}
+
+}
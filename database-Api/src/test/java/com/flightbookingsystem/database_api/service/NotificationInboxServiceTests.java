@@ -0,0 +1,100 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.model.NotificationInbox;
+import com.flightbookingsystem.database_api.reposatories.NotificationInboxRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationInboxServiceTests {
+
+	UUID customerId = UUID.randomUUID();
+	UUID otherCustomerId = UUID.randomUUID();
+
+	NotificationInboxRepository notificationInboxRepository = mock(NotificationInboxRepository.class);
+	NotificationInboxService notificationInboxService = new NotificationInboxService(notificationInboxRepository,
+		mock(DataSource.class), mock(TransactionTemplate.class));
+	// the notification_inbox table, changed the way the upsert changes it
+	Map<UUID, Long> unread = new HashMap<>();
+
+	NotificationInboxServiceTests() {
+		when(notificationInboxRepository.addUnread(any(), anyLong())).thenAnswer(call -> {
+			unread.merge(call.getArgument(0), call.getArgument(1), Long::sum);
+			return 1;
+		});
+		when(notificationInboxRepository.findById(any())).thenAnswer(call -> {
+			UUID id = call.getArgument(0);
+			return Optional.ofNullable(unread.get(id)).map(count -> new NotificationInbox(id, count));
+		});
+		doAnswer(call -> unread.remove(call.getArgument(0))).when(notificationInboxRepository).deleteById(any());
+	}
+
+	@Test
+	void newNotificationsAreCountedPerCustomer() {
+		notificationInboxService.notificationCreated(customerId);
+		notificationInboxService.notificationCreated(customerId);
+		notificationInboxService.notificationCreated(otherCustomerId);
+
+		assertEquals(2, notificationInboxService.unreadCount(customerId));
+		assertEquals(1, notificationInboxService.unreadCount(otherCustomerId));
+	}
+
+	@Test
+	void markReadTakesOffWhatItTurnedRead() {
+		for (int i = 0; i < 5; i++) {
+			notificationInboxService.notificationCreated(customerId);
+		}
+
+		notificationInboxService.notificationsRead(customerId, 3);
+		assertEquals(2, notificationInboxService.unreadCount(customerId));
+
+		// everything was read already, e.g. a second click on mark all read
+		notificationInboxService.notificationsRead(customerId, 0);
+		assertEquals(2, notificationInboxService.unreadCount(customerId));
+	}
+
+	@Test
+	void onlyDeletingAnUnreadNotificationLowersTheCount() {
+		notificationInboxService.notificationCreated(customerId);
+		notificationInboxService.notificationCreated(customerId);
+
+		notificationInboxService.notificationDeleted(customerId, false);
+		assertEquals(2, notificationInboxService.unreadCount(customerId));
+
+		notificationInboxService.notificationDeleted(customerId, true);
+		assertEquals(1, notificationInboxService.unreadCount(customerId));
+	}
+
+	@Test
+	void customerWithoutNotificationsHasNothingUnread() {
+		notificationInboxService.notificationsRead(customerId, 0);
+		notificationInboxService.notificationDeleted(customerId, false);
+
+		assertEquals(0, notificationInboxService.unreadCount(customerId));
+		verify(notificationInboxRepository, never()).addUnread(any(), anyLong());
+	}
+
+	@Test
+	void deletedCustomerTakesItsInboxAlong() {
+		notificationInboxService.notificationCreated(customerId);
+
+		notificationInboxService.customerDeleted(customerId);
+
+		assertEquals(0, notificationInboxService.unreadCount(customerId));
+	}
+
+}
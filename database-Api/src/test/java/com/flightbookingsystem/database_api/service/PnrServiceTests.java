@@ -0,0 +1,142 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.dto.PnrBookingDto;
+import com.flightbookingsystem.database_api.model.Booking;
+import com.flightbookingsystem.database_api.model.Customer;
+import com.flightbookingsystem.database_api.replica.ReplicaRoutingDataSource;
+import com.flightbookingsystem.database_api.reposatories.BookingRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PnrServiceTests {
+
+	@Test
+	void codesAreSixCharactersAndNeverRepeat() {
+		Set<String> codes = new HashSet<>();
+		for (long number = 1; number <= 1_000_000; number++) {
+			String code = PnrService.encode(number);
+			assertEquals(6, code.length(), code);
+			assertTrue(codes.add(code), "repeated " + code + " for " + number);
+		}
+	}
+
+	@Test
+	void codesOnlyUseTheCrockfordAlphabet() {
+		for (long number = 1; number <= 10_000; number++) {
+			assertTrue(PnrService.encode(number).matches("[0-9A-HJKMNP-TV-Z]{6}"));
+		}
+	}
+
+	@Test
+	void codesGrowPastTheSixCharacterRange() {
+		long lastSixCharacterNumber = (1L << 30) - 1;
+
+		assertEquals(6, PnrService.encode(lastSixCharacterNumber).length());
+		assertEquals(7, PnrService.encode(lastSixCharacterNumber + 1).length());
+	}
+
+	@Test
+	void lookupIsACopyWithoutThePassword() {
+		BookingRepository bookingRepository = mock(BookingRepository.class);
+		Customer customer = new Customer();
+		customer.setCustomerId(UUID.randomUUID());
+		customer.setPassword("hash");
+		Booking booking = new Booking();
+		booking.setPnrNumber("K7Q2MX");
+		booking.setCustomer(customer);
+		when(bookingRepository.findDetailByPnrNumber("K7Q2MX")).thenReturn(Optional.of(booking));
+		PnrService pnrService = new PnrService(mock(JdbcTemplate.class), mock(EntityManagerFactory.class), bookingRepository,
+			mock(ApplicationEventPublisher.class), new ConcurrentMapCacheManager(PnrService.CACHE));
+
+		PnrBookingDto found = pnrService.findByPnr("K7Q2MX");
+		customer.setName("changed after the lookup");
+
+		assertEquals(customer.getCustomerId(), found.getCustomer().getCustomerId());
+		assertNull(found.getCustomer().getName());
+		assertNull(pnrService.findByPnr("AAAAAA"));
+	}
+
+	@Test
+	void evictionWaitsForTheCommitEvent() {
+		ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+		ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(PnrService.CACHE);
+		cacheManager.getCache(PnrService.CACHE).put("K7Q2MX", "cached");
+		PnrService pnrService = new PnrService(mock(JdbcTemplate.class), mock(EntityManagerFactory.class),
+			mock(BookingRepository.class), eventPublisher, cacheManager);
+
+		pnrService.evict("K7Q2MX");
+
+		assertNotNull(cacheManager.getCache(PnrService.CACHE).get("K7Q2MX"));
+		PnrService.PnrChanged changed = new PnrService.PnrChanged("K7Q2MX");
+		verify(eventPublisher).publishEvent(changed);
+		pnrService.evictAfterCommit(changed);
+		assertNull(cacheManager.getCache(PnrService.CACHE).get("K7Q2MX"));
+	}
+
+	@Test
+	void lookupsReadFromTheReplicaAreNotCached() {
+		BookingRepository bookingRepository = mock(BookingRepository.class);
+		Booking booking = new Booking();
+		booking.setPnrNumber("K7Q2MX");
+		when(bookingRepository.findDetailByPnrNumber("K7Q2MX")).thenReturn(Optional.of(booking));
+
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+			context.register(Caching.class);
+			context.registerBean(CacheManager.class, () -> new ConcurrentMapCacheManager(PnrService.CACHE));
+			context.registerBean(PnrService.class, () -> new PnrService(mock(JdbcTemplate.class), mock(EntityManagerFactory.class),
+				bookingRepository, mock(ApplicationEventPublisher.class), context.getBean(CacheManager.class)) {
+				@Override
+				void createSequence() {
+				}
+			});
+			context.refresh();
+			PnrService pnrService = context.getBean(PnrService.class);
+
+			ReplicaRoutingDataSource.use(ReplicaRoutingDataSource.REPLICA);
+			try {
+				pnrService.findByPnr("K7Q2MX");
+				pnrService.findByPnr("K7Q2MX");
+			} finally {
+				ReplicaRoutingDataSource.clear();
+			}
+			verify(bookingRepository, times(2)).findDetailByPnrNumber("K7Q2MX");
+
+			// a primary read fills it, replica reads are served from it after that
+			pnrService.findByPnr("K7Q2MX");
+			ReplicaRoutingDataSource.use(ReplicaRoutingDataSource.REPLICA);
+			try {
+				pnrService.findByPnr("K7Q2MX");
+			} finally {
+				ReplicaRoutingDataSource.clear();
+			}
+			verify(bookingRepository, times(3)).findDetailByPnrNumber("K7Q2MX");
+		}
+	}
+
+	@Configuration
+	@EnableCaching
+	static class Caching {
+	}
+
+}
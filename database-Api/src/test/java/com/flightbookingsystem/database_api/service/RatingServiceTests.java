@@ -0,0 +1,169 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.model.Airline;
+import com.flightbookingsystem.database_api.model.Airport;
+import com.flightbookingsystem.database_api.model.Flight;
+import com.flightbookingsystem.database_api.model.RatingAggregate;
+import com.flightbookingsystem.database_api.model.RatingAggregateId;
+import com.flightbookingsystem.database_api.model.RatingScope;
+import com.flightbookingsystem.database_api.reposatories.RatingAggregateRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RatingServiceTests {
+
+	RatingAggregateRepository ratingAggregateRepository = mock(RatingAggregateRepository.class);
+	RatingService ratingService = new RatingService(ratingAggregateRepository, mock(DataSource.class), mock(TransactionTemplate.class));
+	// the rating_aggregate table, changed the way the upsert changes it
+	Map<RatingAggregateId, RatingAggregate> rows = new HashMap<>();
+
+	Airline airline = this.airline();
+	Airline otherAirline = this.airline();
+	Airport delhi = this.airport();
+	Airport mumbai = this.airport();
+	Airport pune = this.airport();
+	Flight flight = this.flight(airline, delhi, mumbai);
+
+	RatingServiceTests() {
+		when(ratingAggregateRepository.add(anyString(), any(), any(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong()))
+			.thenAnswer(call -> {
+				RatingAggregateId id = new RatingAggregateId(RatingScope.valueOf(call.getArgument(0)), call.getArgument(1), call.getArgument(2));
+				RatingAggregate row = rows.computeIfAbsent(id, RatingAggregate::new);
+				row.setRatingCount(row.getRatingCount() + (long) call.getArgument(3));
+				row.setRatingSum(row.getRatingSum() + (long) call.getArgument(4));
+				row.setStars1(row.getStars1() + (long) call.getArgument(5));
+				row.setStars2(row.getStars2() + (long) call.getArgument(6));
+				row.setStars3(row.getStars3() + (long) call.getArgument(7));
+				row.setStars4(row.getStars4() + (long) call.getArgument(8));
+				row.setStars5(row.getStars5() + (long) call.getArgument(9));
+				return 1;
+			});
+		when(ratingAggregateRepository.findById(any())).thenAnswer(call -> Optional.ofNullable(rows.get(call.getArgument(0))));
+		doAnswer(call -> rows.remove(this.id(call.getArgument(0)))).when(ratingAggregateRepository).delete(any());
+	}
+
+	@Test
+	void ratingsAreCountedForTheFlightItsAirlineAndItsRoute() {
+		ratingService.ratingAdded(flight, 5);
+		ratingService.ratingAdded(flight, 3);
+		ratingService.ratingAdded(this.flight(airline, delhi, mumbai), 4);
+
+		RatingAggregate ofFlight = this.find(RatingScope.FLIGHT, flight.getFlightId(), null);
+		assertEquals(2, ofFlight.getRatingCount());
+		assertEquals(4.0, ofFlight.getAverage());
+		assertEquals(1, ofFlight.getStars3());
+		assertEquals(1, ofFlight.getStars5());
+
+		RatingAggregate ofAirline = this.find(RatingScope.AIRLINE, airline.getAirlineId(), null);
+		assertEquals(3, ofAirline.getRatingCount());
+		assertEquals(12, ofAirline.getRatingSum());
+		assertEquals(3, this.find(RatingScope.ROUTE, delhi.getAirportId(), mumbai.getAirportId()).getRatingCount());
+	}
+
+	@Test
+	void removedRatingIsTakenOutAgain() {
+		ratingService.ratingAdded(flight, 5);
+		ratingService.ratingAdded(flight, 2);
+		ratingService.ratingRemoved(flight, 5);
+
+		RatingAggregate ofAirline = this.find(RatingScope.AIRLINE, airline.getAirlineId(), null);
+		assertEquals(1, ofAirline.getRatingCount());
+		assertEquals(2, ofAirline.getRatingSum());
+		assertEquals(0, ofAirline.getStars5());
+		assertEquals(1, ofAirline.getStars2());
+	}
+
+	@Test
+	void flightMovedToAnotherAirlineAndRouteTakesItsRatingsAlong() {
+		ratingService.ratingAdded(flight, 5);
+		ratingService.ratingAdded(flight, 1);
+		// another flight keeps the old airline and route rated
+		ratingService.ratingAdded(this.flight(airline, delhi, mumbai), 4);
+
+		flight.setAirline(otherAirline);
+		flight.setDestinationAirport(pune);
+		ratingService.flightMoved(airline, delhi, mumbai, flight);
+
+		assertEquals(1, this.find(RatingScope.AIRLINE, airline.getAirlineId(), null).getRatingCount());
+		assertEquals(4, this.find(RatingScope.AIRLINE, airline.getAirlineId(), null).getRatingSum());
+		assertEquals(1, this.find(RatingScope.ROUTE, delhi.getAirportId(), mumbai.getAirportId()).getRatingCount());
+		RatingAggregate ofNewAirline = this.find(RatingScope.AIRLINE, otherAirline.getAirlineId(), null);
+		assertEquals(2, ofNewAirline.getRatingCount());
+		assertEquals(1, ofNewAirline.getStars1());
+		assertEquals(1, ofNewAirline.getStars5());
+		assertEquals(6, this.find(RatingScope.ROUTE, delhi.getAirportId(), pune.getAirportId()).getRatingSum());
+		// the flight itself keeps its ratings
+		assertEquals(2, this.find(RatingScope.FLIGHT, flight.getFlightId(), null).getRatingCount());
+	}
+
+	@Test
+	void deletedFlightLeavesItsAirlineAndRoute() {
+		ratingService.ratingAdded(flight, 5);
+		ratingService.ratingAdded(this.flight(airline, delhi, mumbai), 2);
+
+		ratingService.flightDeleted(flight);
+
+		assertFalse(rows.containsKey(this.id(RatingScope.FLIGHT, flight.getFlightId(), null)));
+		RatingAggregate ofAirline = this.find(RatingScope.AIRLINE, airline.getAirlineId(), null);
+		assertEquals(1, ofAirline.getRatingCount());
+		assertEquals(2, ofAirline.getRatingSum());
+		assertEquals(0, this.find(RatingScope.ROUTE, delhi.getAirportId(), mumbai.getAirportId()).getStars5());
+	}
+
+	@Test
+	void subjectWithoutFeedbackReadsAsZero() {
+		RatingAggregate none = ratingService.find(RatingScope.AIRLINE, otherAirline.getAirlineId(), null);
+
+		assertEquals(0, none.getRatingCount());
+		assertEquals(0.0, none.getAverage());
+	}
+
+	private RatingAggregate find(RatingScope scope, UUID subjectId, UUID otherId) {
+		return ratingService.find(scope, subjectId, otherId);
+	}
+
+	private RatingAggregateId id(RatingScope scope, UUID subjectId, UUID otherId) {
+		return new RatingAggregateId(scope, subjectId, otherId == null ? RatingAggregateId.NONE : otherId);
+	}
+
+	private RatingAggregateId id(RatingAggregate aggregate) {
+		return new RatingAggregateId(aggregate.getScope(), aggregate.getSubjectId(), aggregate.getOtherId());
+	}
+
+	private Flight flight(Airline airline, Airport origin, Airport destination) {
+		Flight flight = new Flight();
+		flight.setFlightId(UUID.randomUUID());
+		flight.setAirline(airline);
+		flight.setOriginAirport(origin);
+		flight.setDestinationAirport(destination);
+		return flight;
+	}
+
+	private Airline airline() {
+		Airline airline = new Airline();
+		airline.setAirlineId(UUID.randomUUID());
+		return airline;
+	}
+
+	private Airport airport() {
+		Airport airport = new Airport();
+		airport.setAirportId(UUID.randomUUID());
+		return airport;
+	}
+
+}
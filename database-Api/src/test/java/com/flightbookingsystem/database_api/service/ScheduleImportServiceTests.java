@@ -0,0 +1,57 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.dto.ScheduleEntryDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScheduleImportServiceTests {
+
+	@Test
+	void dailyEntryGivesOneFlightPerDayInLocalTime() {
+		ScheduleEntryDto entry = this.entry(LocalDate.of(2027, 3, 1), LocalDate.of(2027, 3, 31), null);
+
+		List<ScheduleImportService.PlannedFlight> planned = ScheduleImportService.expand(List.of(entry));
+
+		assertEquals(31, planned.size());
+		assertEquals(ZonedDateTime.parse("2027-03-01T06:00+05:30[Asia/Kolkata]"), planned.get(0).departure);
+		assertEquals(ZonedDateTime.parse("2027-03-01T08:15+05:30[Asia/Kolkata]"), planned.get(0).arrival);
+	}
+
+	@Test
+	void expansionOrderIsTheSameEveryTime() {
+		List<ScheduleEntryDto> entries = List.of(
+			this.entry(LocalDate.of(2027, 1, 1), LocalDate.of(2027, 6, 30), List.of(DayOfWeek.FRIDAY, DayOfWeek.MONDAY)),
+			this.entry(LocalDate.of(2027, 1, 1), LocalDate.of(2027, 1, 7), null));
+
+		List<ScheduleImportService.PlannedFlight> first = ScheduleImportService.expand(entries);
+		List<ScheduleImportService.PlannedFlight> second = ScheduleImportService.expand(entries);
+
+		assertEquals(52 + 7, first.size());
+		for (int i = 0; i < first.size(); i++) {
+			// a resumed import skips importedFlights of this list, so it must not change between runs
+			assertEquals(first.get(i).entry, second.get(i).entry);
+			assertEquals(first.get(i).departure, second.get(i).departure);
+		}
+		assertEquals(DayOfWeek.FRIDAY, first.get(0).departure.getDayOfWeek());
+		assertEquals(1, first.get(52).entry);
+	}
+
+	private ScheduleEntryDto entry(LocalDate from, LocalDate to, List<DayOfWeek> days) {
+		ScheduleEntryDto entry = new ScheduleEntryDto();
+		entry.setStartDate(from);
+		entry.setEndDate(to);
+		entry.setDaysOfWeek(days);
+		entry.setDepartureTime(LocalTime.of(6, 0));
+		entry.setTimeZone("Asia/Kolkata");
+		entry.setDurationMinutes(135);
+		return entry;
+	}
+
+}
@@ -0,0 +1,200 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flightbookingsystem.database_api.dto.SeatStatusDeltaDto;
+import com.flightbookingsystem.database_api.model.SeatStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatEventHubTests {
+
+	UUID flightId = UUID.randomUUID();
+	UUID otherFlightId = UUID.randomUUID();
+	List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+	CountDownLatch sending = new CountDownLatch(0);
+	SeatEventHub hub = this.hub(4, 60_000);
+
+	@AfterEach
+	void stop() {
+		hub.stop();
+	}
+
+	@Test
+	void everySubscriberOfTheFlightGetsTheChange() throws Exception {
+		RecordingEmitter first = this.subscribe(flightId);
+		RecordingEmitter second = this.subscribe(flightId);
+		RecordingEmitter other = this.subscribe(otherFlightId);
+
+		hub.seatChanged(this.delta(flightId, SeatStatus.BOOKED));
+
+		this.await(() -> first.frames.size() == 2 && second.frames.size() == 2);
+		assertTrue(first.frames.get(1).contains("event: seat"));
+		assertTrue(first.frames.get(1).contains("\"seatStatus\":\"BOOKED\""));
+		assertEquals(first.frames, second.frames);
+		assertEquals(List.of(":\n\n"), other.frames);
+	}
+
+	@Test
+	void slowSubscriberIsToldToResyncAndClosed() throws Exception {
+		sending = new CountDownLatch(1);
+		RecordingEmitter slow = this.subscribe(flightId);
+
+		// the sender is stuck on the first frame, the queue of 4 overflows
+		for (int i = 0; i < 10; i++) {
+			hub.seatChanged(this.delta(flightId, SeatStatus.RESERVED));
+		}
+		sending.countDown();
+
+		this.await(() -> slow.completed);
+		assertEquals("event: resync\ndata: {}\n\n", slow.frames.get(slow.frames.size() - 1));
+		assertTrue(slow.frames.size() < 10);
+	}
+
+	@Test
+	void stalledSubscribersAreDroppedWithoutHoldingUpOtherFlights() throws Exception {
+		hub.stop();
+		hub = this.hub(4, 200);
+		// as many clients as sender threads, each blocks its thread on the first frame
+		CountDownLatch stalled = new CountDownLatch(1);
+		sending = stalled;
+		List<RecordingEmitter> stuck = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			stuck.add(this.subscribe(otherFlightId));
+		}
+		sending = new CountDownLatch(0);
+		RecordingEmitter reader = this.subscribe(flightId);
+
+		this.await(() -> hub.subscribers.get() == 1);
+		hub.seatChanged(this.delta(flightId, SeatStatus.BOOKED));
+		this.await(() -> reader.frames.size() == 2);
+		assertFalse(hub.channels.containsKey(otherFlightId));
+
+		// the writes go through after all, the clients are told to reload and closed
+		stalled.countDown();
+		this.await(() -> stuck.stream().allMatch(emitter -> emitter.completed));
+		for (RecordingEmitter emitter : stuck) {
+			assertEquals("event: resync\ndata: {}\n\n", emitter.frames.get(emitter.frames.size() - 1));
+		}
+		this.await(() -> hub.senders.getCorePoolSize() == 4);
+	}
+
+	@Test
+	void completedSubscriberIsRemovedWithItsChannel() throws Exception {
+		RecordingEmitter first = this.subscribe(flightId);
+		RecordingEmitter second = this.subscribe(flightId);
+
+		first.finish();
+		assertEquals(1, hub.subscribers.get());
+		assertTrue(hub.channels.containsKey(flightId));
+
+		second.finish();
+		assertEquals(0, hub.subscribers.get());
+		assertFalse(hub.channels.containsKey(flightId));
+	}
+
+	@Test
+	void subscribingWhileTheLastOneLeavesNeverLosesTheSubscriber() throws Exception {
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<RecordingEmitter>> staying = new ArrayList<>();
+			for (int i = 0; i < 2000; i++) {
+				clients.submit(() -> this.subscribe(flightId).finish());
+				staying.add(clients.submit(() -> this.subscribe(flightId)));
+				clients.submit(() -> this.subscribe(flightId).finish());
+			}
+			for (Future<RecordingEmitter> subscriber : staying) {
+				subscriber.get();
+			}
+			clients.shutdown();
+			assertTrue(clients.awaitTermination(10, TimeUnit.SECONDS));
+
+			// every subscriber still open is in the channel that changes are published to
+			assertEquals(2000, hub.subscribers.get());
+			assertEquals(2000, hub.channels.get(flightId).subscribers.size());
+		} finally {
+			clients.shutdownNow();
+		}
+	}
+
+	private SeatEventHub hub(int queueSize, long sendTimeoutMillis) {
+		return new SeatEventHub(new ObjectMapper(), new SimpleMeterRegistry(), 60_000, sendTimeoutMillis, queueSize, 100_000, 4, 3600) {
+			@Override
+			ResponseBodyEmitter newEmitter() {
+				RecordingEmitter emitter = new RecordingEmitter();
+				emitters.add(emitter);
+				return emitter;
+			}
+		};
+	}
+
+	private RecordingEmitter subscribe(UUID flight) {
+		return (RecordingEmitter) hub.subscribe(flight);
+	}
+
+	private SeatStatusDeltaDto delta(UUID flight, SeatStatus status) {
+		return new SeatStatusDeltaDto(flight, UUID.randomUUID(), "12A", status, SeatEventHub.change(status));
+	}
+
+	private void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "timed out");
+			Thread.sleep(10);
+		}
+	}
+
+	// stands in for the servlet side: keeps what was sent and runs the callbacks the hub registered
+	class RecordingEmitter extends ResponseBodyEmitter {
+		final List<String> frames = new CopyOnWriteArrayList<>();
+		// the latch of the test when the emitter was opened
+		final CountDownLatch gate = sending;
+		volatile Runnable onCompletion;
+		volatile boolean completed;
+
+		@Override
+		public void send(Object frame, MediaType mediaType) {
+			try {
+				gate.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			frames.add(new String((byte[]) frame, StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public synchronized void onCompletion(Runnable callback) {
+			this.onCompletion = callback;
+		}
+
+		@Override
+		public void complete() {
+			completed = true;
+		}
+
+		// what the container does once the stream is closed
+		RecordingEmitter finish() {
+			onCompletion.run();
+			return this;
+		}
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.flightbookingsystem.database_api.service;
+
+import com.flightbookingsystem.database_api.model.SeatClass;
+import com.flightbookingsystem.database_api.model.SeatLayout;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SeatLayoutServiceTests {
+
+	@Test
+	void cabinsExitsAndSkippedRowsAreCompiled() {
+		SeatLayout layout = SeatLayoutService.compile("BUSINESS 1-2 AC-DF; economy 10-14 ABC-DEF; EXIT 12; SKIP 13", null);
+
+		assertEquals(2, layout.getCabins().size());
+		assertEquals(SeatClass.BUSINESS, layout.getCabins().get(0).getSeatClass());
+		assertEquals("WA-AW", layout.getCabins().get(0).getPositions());
+		assertEquals("WMA-AMW", layout.getCabins().get(1).getPositions());
+		assertEquals(List.of(1, 2, 10, 11, 12, 14), layout.getRows());
+		assertEquals(List.of(12), layout.getExitRows());
+		assertEquals(2 * 4 + 4 * 6, layout.getSeatCount());
+		assertEquals(".-..", layout.getEmptyRows().get(0).substring(1));
+		assertArrayEquals(new int[] {5, 6}, layout.getSeatIndex().get("14F"));
+		assertNull(layout.getSeatIndex().get("13A"));
+	}
+
+	@Test
+	void shortFormFillsTheCapacityWithEconomyRows() {
+		SeatLayout layout = SeatLayoutService.compile("2-4-2", 250);
+
+		assertEquals("AB-CDEF-GH", layout.getCabins().get(0).getColumns());
+		assertEquals("WA-AMMA-AW", layout.getCabins().get(0).getPositions());
+		assertEquals(32, layout.getRows().size());
+	}
+
+	@Test
+	void brokenConfigurationsAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> SeatLayoutService.compile("3-3", null));
+		assertThrows(IllegalArgumentException.class, () -> SeatLayoutService.compile("PREMIUM 1-3 ABC", null));
+		assertThrows(IllegalArgumentException.class, () -> SeatLayoutService.compile("ECONOMY 1-10 ABC; BUSINESS 5-6 AC", null));
+		assertThrows(IllegalArgumentException.class, () -> SeatLayoutService.compile("ECONOMY 1-10 AAB", null));
+		assertThrows(IllegalArgumentException.class, () -> SeatLayoutService.compile("ECONOMY 1-10 ABC; EXIT 11", null));
+	}
+
+}
@@ -2,8 +2,13 @@ package com.FBS.employee_api;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+import com.FBS.client.DatabaseApiAsyncClient;
+import com.FBS.tracing.FileSpanExporter;
 
 @SpringBootApplication
+@Import({FileSpanExporter.class, DatabaseApiAsyncClient.class})
 public class EmployeeApiApplication {
 
 	public static void main(String[] args) {
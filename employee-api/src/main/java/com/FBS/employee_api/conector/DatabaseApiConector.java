@@ -1,16 +1,38 @@
 package com.FBS.employee_api.conector;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.retry.annotation.Retry;
+
+import com.FBS.client.DatabaseApiAsyncClient;
+import com.FBS.employee_api.dto.EmployeeImportResultDTO;
 import com.FBS.employee_api.model.Airline;
 import com.FBS.employee_api.model.Employee;
 
 
+/*
+ * calls database api, every endpoint has its own circuit breaker and bulkhead (see resilience4j.* in application.properties)
+ * so a slow database api fails fast here instead of holding all tomcat threads.
+ * only the GET call is retried, bulk imports are long running and only get a bulkhead
+ */
 
 @Component
 public class DatabaseApiConector {
@@ -18,31 +40,60 @@ public class DatabaseApiConector {
     @Value("${database.api.url}")
     String databaseApiUrl;
 
+    RestTemplate restTemplate;
+
+    // bulk imports stream for a long time, they only get a connect timeout
+    RestTemplate importRestTemplate;
+
+    // non blocking client used by the Async methods
+    DatabaseApiAsyncClient asyncClient;
+
+    @Autowired
+    public DatabaseApiConector(@Value("${database.api.timeout-millis:5000}") int timeoutMillis,
+                               RestTemplateBuilder restTemplateBuilder,
+                               DatabaseApiAsyncClient asyncClient){
+        this.asyncClient = asyncClient;
+
+        // built by spring boot so every call is timed as http.client.requests
+        this.restTemplate = restTemplateBuilder
+            .connectTimeout(Duration.ofMillis(timeoutMillis))
+            .readTimeout(Duration.ofMillis(timeoutMillis))
+            .build();
+        this.importRestTemplate = restTemplateBuilder
+            .connectTimeout(Duration.ofMillis(timeoutMillis))
+            .build();
+    }
+
+    @CircuitBreaker(name = "registerEmployee")
+    @Bulkhead(name = "registerEmployee")
     public Employee callDatabasePostMethodToRegisterEmployee(Employee employee, UUID airlineId){
 
         // create Url
         String url = databaseApiUrl + "/employee/create/{airlineId}";
 
         // call post method
-        RestTemplate restTemplate = new RestTemplate();
         ResponseEntity<Employee> response = restTemplate.postForEntity(url, employee, Employee.class, airlineId);
         return response.getBody();
         
     }
 
 
+    @CircuitBreaker(name = "getAirline")
+    @Bulkhead(name = "getAirline")
+    @Retry(name = "getAirline")
     public Airline callDatabaseGetMethodToGetAirline(UUID airlineId){
 
         // create Url
         String url = databaseApiUrl + "/airline/get/{airlineId}";
 
         // call get method
-        RestTemplate restTemplate = new RestTemplate();
         ResponseEntity<Airline> response = restTemplate.getForEntity(url, Airline.class, airlineId);
         return response.getBody();
     }
 
 
+    @CircuitBreaker(name = "updateAirline")
+    @Bulkhead(name = "updateAirline")
     public Airline callDatabasePutMethodToUpdateAirline(Airline airline, UUID airlineId){
 
         
@@ -50,10 +101,65 @@ public class DatabaseApiConector {
         String url = databaseApiUrl + "/airline/update/{airlineId}";
 
         // call put method
-        RestTemplate restTemplate = new RestTemplate();
         ResponseEntity<Airline> response = restTemplate.postForEntity(url, airline, Airline.class, airlineId);
         return response.getBody();
         
     }
     
+
+    @Bulkhead(name = "importEmployees")
+    public EmployeeImportResultDTO callDatabasePostMethodToImportEmployees(InputStream body, MediaType contentType, UUID airlineId){
+
+        // create Url
+        String url = databaseApiUrl + "/employee/bulk/{airlineId}";
+
+        // copy the incoming body straight into the request, the file is never held in memory
+        ResponseExtractor<ResponseEntity<EmployeeImportResultDTO>> extractor =
+            importRestTemplate.responseEntityExtractor(EmployeeImportResultDTO.class);
+        ResponseEntity<EmployeeImportResultDTO> response = importRestTemplate.execute(url, HttpMethod.POST,
+            request -> {
+                request.getHeaders().setContentType(contentType);
+                body.transferTo(request.getBody());
+            },
+            extractor, airlineId);
+        return response.getBody();
+    }
+
+
+    /*
+     * Non blocking variants of the methods above, made by DatabaseApiAsyncClient.
+     * They return at once, the future completes when database api answers or fails with
+     * HttpClientErrorException / HttpServerErrorException like RestTemplate does,
+     * or with ResourceAccessException when it can not be reached or does not answer in database.api.timeout-millis.
+     * Cancelling the returned future aborts the http exchange.
+     */
+
+    public CompletableFuture<Employee> callDatabasePostMethodToRegisterEmployeeAsync(Employee employee, UUID airlineId){
+        String url = databaseApiUrl + "/employee/create/" + airlineId;
+        return asyncClient.call("registerEmployee", "/employee/create/{airlineId}", asyncClient.jsonPost(url, employee), Employee.class);
+    }
+
+
+    public CompletableFuture<Airline> callDatabaseGetMethodToGetAirlineAsync(UUID airlineId){
+        String url = databaseApiUrl + "/airline/get/" + airlineId;
+        return asyncClient.callWithRetry("getAirline", "/airline/get/{airlineId}", asyncClient.get(url), Airline.class);
+    }
+
+
+    public CompletableFuture<Airline> callDatabasePutMethodToUpdateAirlineAsync(Airline airline, UUID airlineId){
+        String url = databaseApiUrl + "/airline/update/" + airlineId;
+        return asyncClient.call("updateAirline", "/airline/update/{airlineId}", asyncClient.jsonPost(url, airline), Airline.class);
+    }
+
+
+    public CompletableFuture<EmployeeImportResultDTO> callDatabasePostMethodToImportEmployeesAsync(InputStream body, MediaType contentType, UUID airlineId){
+        String url = databaseApiUrl + "/employee/bulk/" + airlineId;
+        // no request timeout here, a large import may stream for a long time
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .header(HttpHeaders.CONTENT_TYPE, contentType.toString())
+            .POST(HttpRequest.BodyPublishers.ofInputStream(() -> body))
+            .build();
+        return asyncClient.stream("importEmployees", "/employee/bulk/{airlineId}", request, EmployeeImportResultDTO.class);
+    }
+
 }
@@ -1,11 +1,19 @@
 package com.FBS.employee_api.controller;
 import com.FBS.employee_api.dto.EmployeeDTO;
+import com.FBS.employee_api.dto.EmployeeImportResultDTO;
 import com.FBS.employee_api.model.Employee;
 import com.FBS.employee_api.service.EmployeeService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 
 @RestController // marks this as controller with @ResponseBody by default
 @RequestMapping("/api/v1/airline/employee") // base path for all endpoints
@@ -21,12 +29,21 @@ public class EmployeeController {
       
 
     @PostMapping("/register")
-    public Employee registerEmployee(@RequestBody EmployeeDTO employeeDTO){
+    public CompletableFuture<Employee> registerEmployee(@RequestBody EmployeeDTO employeeDTO){
         try {
             return this.employeeService.registerEmployee(employeeDTO);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
+
+    // bulk import, body is a json array of employees or csv rows with a header line
+    @PostMapping(value = "/bulk/{airlineId}", consumes = {MediaType.APPLICATION_JSON_VALUE, "text/csv"})
+    public ResponseEntity<EmployeeImportResultDTO> importEmployees(@PathVariable UUID airlineId,
+                                                                   @RequestHeader("Content-Type") MediaType contentType,
+                                                                   InputStream body){
+        EmployeeImportResultDTO result = this.employeeService.importEmployees(airlineId, body, contentType);
+        return ResponseEntity.status(result.getError() == null ? HttpStatus.OK : HttpStatus.BAD_REQUEST).body(result);
+    }
     
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.FBS.employee_api.dto;
+
+import java.util.UUID;
+
+import lombok.*; // lombok
+
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeImportResultDTO {
+
+    private UUID airlineId;
+    private int imported;
+    private int batches;
+    private Integer failedLine;
+    private String error;
+
+}
@@ -1,14 +1,18 @@
 package com.FBS.employee_api.service;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.InputStream;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 
 import com.FBS.employee_api.conector.DatabaseApiConector;
 import com.FBS.employee_api.dto.EmployeeDTO;
+import com.FBS.employee_api.dto.EmployeeImportResultDTO;
 import com.FBS.employee_api.model.Airline;
 import com.FBS.employee_api.model.Employee;
 import com.FBS.employee_api.utility.MapUtility;
@@ -25,32 +29,40 @@ public class EmployeeService {
         this.databaseApiConector = databaseApiConector; 
     }
 
-    public Employee registerEmployee(EmployeeDTO employeeDTO){
+    public CompletableFuture<Employee> registerEmployee(EmployeeDTO employeeDTO){
 
-         
         UUID airlineId = UUID.fromString(employeeDTO.getAirlineId());
-        Airline airline = this.getAirlineFromDatabase(airlineId);
-    
-        if (airline == null) {
-            throw new RuntimeException("Airline not found with ID: " + airlineId);
-        }
-    
         Employee employee = mapUtility.mapToEmployee(employeeDTO);
-    
-        // null safety
-        List<Employee> employees = airline.getEmployees();
-        if (employees == null) {
-            employees = new ArrayList<>();
-        }
-        employees.add(employee);
-        airline.setEmployees(employees);
-    
+
         // set default status
         employee.setStatus("ACTIVE");
-        employee.setAirline(airline);
-        airline = this.updateAirlineInDatabase(airline, airlineId);
-        employee = this.registerEmployeeInDatabase(employee, airlineId); 
-        return employee;
+
+        // database api links the employee to the airline in one insert,
+        // the airline and its employees list are never loaded or written back.
+        // the call is non blocking, no thread waits while database api works
+        return this.databaseApiConector.callDatabasePostMethodToRegisterEmployeeAsync(employee, airlineId)
+            .exceptionally(error -> {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof HttpClientErrorException.NotFound) {
+                    throw new RuntimeException("Airline not found with ID: " + airlineId);
+                }
+                throw new CompletionException(cause);
+            });
+    }
+
+    public EmployeeImportResultDTO importEmployees(UUID airlineId, InputStream body, MediaType contentType){
+        try {
+            return this.databaseApiConector.callDatabasePostMethodToImportEmployees(body, contentType, airlineId);
+        } catch (HttpClientErrorException.NotFound e) {
+            throw new RuntimeException("Airline not found with ID: " + airlineId);
+        } catch (HttpClientErrorException.BadRequest e) {
+            // the import stopped at a bad row, the body says how many rows before it were saved
+            EmployeeImportResultDTO result = e.getResponseBodyAs(EmployeeImportResultDTO.class);
+            if (result == null) {
+                throw e;
+            }
+            return result;
+        }
     }
 
     public Employee registerEmployeeInDatabase(Employee employee, UUID airlineId){
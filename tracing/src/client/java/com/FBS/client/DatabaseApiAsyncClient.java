@@ -0,0 +1,277 @@
+package com.FBS.client;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.RequestReplySenderContext;
+
+/*
+ * this class is responsible for the non blocking calls to database api, the Async methods of the
+ * database api connectors in employee api and airline api. like FileSpanExporter it is kept once here,
+ * the services that use it add src/client/java as a source root and import it.
+ *
+ * circuit breaker, retry and bulkhead are taken from their registries here instead of the annotations, so they
+ * use the same instances and settings. the annotations answer with a future of their own, and a timeout or a
+ * cancel of that future never reached the http exchange. here both cancel the exchange in flight.
+ * the http client runs on spring's applicationTaskExecutor, sized by spring.task.execution.pool.*.
+ */
+
+@Component
+public class DatabaseApiAsyncClient {
+
+    HttpClient httpClient;
+    Executor executor;
+    ObjectMapper objectMapper;
+    ObservationRegistry observationRegistry;
+    CircuitBreakerRegistry circuitBreakerRegistry;
+    BulkheadRegistry bulkheadRegistry;
+    RetryRegistry retryRegistry;
+    long timeoutMillis;
+
+    @Autowired
+    public DatabaseApiAsyncClient(@Qualifier("applicationTaskExecutor") Executor executor,
+                                  ObjectMapper objectMapper,
+                                  ObservationRegistry observationRegistry,
+                                  CircuitBreakerRegistry circuitBreakerRegistry,
+                                  BulkheadRegistry bulkheadRegistry,
+                                  RetryRegistry retryRegistry,
+                                  @Value("${database.api.timeout-millis:5000}") int timeoutMillis){
+        this.executor = executor;
+        this.objectMapper = objectMapper;
+        this.observationRegistry = observationRegistry;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.retryRegistry = retryRegistry;
+        this.timeoutMillis = timeoutMillis;
+        this.httpClient = HttpClient.newBuilder()
+            .executor(executor)
+            .connectTimeout(Duration.ofMillis(timeoutMillis))
+            .build();
+    }
+
+    public HttpRequest get(String url){
+        return HttpRequest.newBuilder(URI.create(url))
+            .timeout(Duration.ofMillis(timeoutMillis))
+            .GET()
+            .build();
+    }
+
+    public HttpRequest jsonPost(String url, Object body){
+        try {
+            return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(timeoutMillis))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * This method is responsible for one call behind the circuit breaker and bulkhead called name,
+     * failed with ResourceAccessException when database api can not be reached or does not answer
+     * in database.api.timeout-millis
+     * @param name resilience4j instance
+     * @param route uri template, for metrics and traces
+     * @param request
+     * @param type of the answer
+     * @return CompletableFuture, cancelling it aborts the exchange
+     */
+    public <T> CompletableFuture<T> call(String name, String route, HttpRequest request, Class<T> type){
+        return this.execute(route, request, type, timeoutMillis,
+            circuitBreakerRegistry.circuitBreaker(name), null, bulkheadRegistry.bulkhead(name));
+    }
+
+    // like call, failed attempts are retried as the retry called name says, only for idempotent requests
+    public <T> CompletableFuture<T> callWithRetry(String name, String route, HttpRequest request, Class<T> type){
+        return this.execute(route, request, type, timeoutMillis,
+            circuitBreakerRegistry.circuitBreaker(name), retryRegistry.retry(name), bulkheadRegistry.bulkhead(name));
+    }
+
+    // a long running upload, only behind the bulkhead called name and without timeout
+    public <T> CompletableFuture<T> stream(String name, String route, HttpRequest request, Class<T> type){
+        return this.execute(route, request, type, 0, null, null, bulkheadRegistry.bulkhead(name));
+    }
+
+    // circuit breaker outside, then retry, then bulkhead, the order the aspects had
+    private <T> CompletableFuture<T> execute(String route, HttpRequest request, Class<T> type, long timeoutMillis,
+                                             CircuitBreaker circuitBreaker, Retry retry, Bulkhead bulkhead){
+        AtomicReference<CompletableFuture<?>> inFlight = new AtomicReference<>();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Supplier<CompletionStage<T>> call = Bulkhead.decorateCompletionStage(bulkhead,
+            () -> this.attempt(route, request, type, timeoutMillis, inFlight, result));
+        if (retry != null) {
+            Supplier<CompletionStage<T>> attempt = call;
+            call = () -> this.retry(attempt, retry.asyncContext(), new CompletableFuture<>(), result);
+        }
+        if (circuitBreaker != null) {
+            call = CircuitBreaker.decorateCompletionStage(circuitBreaker, call);
+        }
+        call.get().whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            }
+        });
+        // the caller gave up, stop the exchange that is running now
+        result.whenComplete((value, error) -> {
+            CompletableFuture<?> exchange = inFlight.get();
+            if (error != null && exchange != null) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private <T> CompletableFuture<T> attempt(String route, HttpRequest request, Class<T> type, long timeoutMillis,
+                                             AtomicReference<CompletableFuture<?>> inFlight, CompletableFuture<T> result){
+        if (result.isDone()) {
+            return CompletableFuture.failedFuture(new CancellationException());
+        }
+        // copy the request so the observation can add the trace headers
+        HttpRequest.Builder traced = HttpRequest.newBuilder(request, (name, value) -> true);
+        Observation observation = this.startObservation(request.method(), route, traced);
+        CompletableFuture<HttpResponse<byte[]>> exchange = httpClient.sendAsync(traced.build(), HttpResponse.BodyHandlers.ofByteArray());
+        inFlight.set(exchange);
+        CompletableFuture<T> answer = exchange.thenApply(response -> this.readBody(response, type));
+        if (timeoutMillis > 0) {
+            answer.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        CompletableFuture<T> attempt = new CompletableFuture<>();
+        answer.whenComplete((value, error) -> {
+            this.stopObservation(observation, error);
+            if (error == null) {
+                attempt.complete(value);
+            } else {
+                exchange.cancel(true);
+                attempt.completeExceptionally(this.networkFault(request, timeoutMillis, error));
+            }
+        });
+        return attempt;
+    }
+
+    /*
+     * fails like RestTemplate does when database api can not be reached or is too slow, with ResourceAccessException.
+     * the http client reports these as ConnectException, HttpTimeoutException or the TimeoutException of orTimeout,
+     * which the retry-exceptions of the retry config do not name.
+     */
+    private Throwable networkFault(HttpRequest request, long timeoutMillis, Throwable error){
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        String call = request.method() + " request for \"" + request.uri() + "\"";
+        if (cause instanceof TimeoutException) {
+            return new ResourceAccessException("I/O error on " + call + ": timed out",
+                new HttpTimeoutException("no answer after " + timeoutMillis + " ms"));
+        }
+        if (cause instanceof IOException io) {
+            // ConnectException comes without a message
+            String reason = io.getMessage() != null ? io.getMessage() : io.getClass().getSimpleName();
+            return new ResourceAccessException("I/O error on " + call + ": " + reason, io);
+        }
+        return cause;
+    }
+
+    // runs attempts until one answers or the retry gives up, the wait between them holds no thread
+    private <T> CompletableFuture<T> retry(Supplier<CompletionStage<T>> attempt, Retry.AsyncContext<T> context,
+                                           CompletableFuture<T> retried, CompletableFuture<T> result){
+        attempt.get().whenComplete((value, error) -> {
+            if (error == null) {
+                context.onComplete();
+                retried.complete(value);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            long delay = result.isDone() ? -1 : context.onError(cause);
+            if (delay < 1) {
+                retried.completeExceptionally(cause);
+            } else {
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor)
+                    .execute(() -> this.retry(attempt, context, retried, result));
+            }
+        });
+        return retried;
+    }
+
+    /*
+     * same role as the RestTemplate instrumentation, which does not see HttpClient calls.
+     * times the call as database.api.async.requests and opens a client span whose trace context
+     * is written into the request headers, so database api continues the same trace.
+     */
+    private Observation startObservation(String method, String route, HttpRequest.Builder request){
+        RequestReplySenderContext<HttpRequest.Builder, HttpResponse<byte[]>> context =
+            new RequestReplySenderContext<>(HttpRequest.Builder::header);
+        context.setCarrier(request);
+        context.setRemoteServiceName("database-api");
+        return Observation.createNotStarted("database.api.async.requests", () -> context, observationRegistry)
+            .contextualName(method + " " + route)
+            .lowCardinalityKeyValue("method", method)
+            .lowCardinalityKeyValue("uri", route)
+            .start();
+    }
+
+    private void stopObservation(Observation observation, Throwable error){
+        observation.lowCardinalityKeyValue("outcome", error == null ? "SUCCESS" : "ERROR");
+        if (error != null) {
+            observation.error(error);
+        }
+        observation.stop();
+    }
+
+    // fails like RestTemplate does, with HttpClientErrorException or HttpServerErrorException
+    private <T> T readBody(HttpResponse<byte[]> response, Class<T> type){
+        HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+        if (status.is4xxClientError()) {
+            throw HttpClientErrorException.create(status, status.toString(), HttpHeaders.EMPTY, response.body(), StandardCharsets.UTF_8);
+        }
+        if (status.isError()) {
+            throw HttpServerErrorException.create(status, status.toString(), HttpHeaders.EMPTY, response.body(), StandardCharsets.UTF_8);
+        }
+        if (response.body().length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(response.body(), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}